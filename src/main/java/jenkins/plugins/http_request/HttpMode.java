@@ -14,6 +14,13 @@ public enum HttpMode {
 	OPTIONS,
 	PATCH;
 
+	/**
+	 * @return true when sending the request twice has the same effect as sending it once, so it can be retried
+	 */
+	public boolean isIdempotent() {
+		return this != POST && this != PATCH;
+	}
+
 	public static ListBoxModel getFillItems() {
 		ListBoxModel items = new ListBoxModel();
 		for (HttpMode httpMode : values()) {
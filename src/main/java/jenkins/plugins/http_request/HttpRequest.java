@@ -66,10 +66,19 @@ public class HttpRequest extends Builder {
     private String outputFile                 = DescriptorImpl.outputFile;
     private Integer timeout                   = DescriptorImpl.timeout;
     private Boolean consoleLogResponseBody    = DescriptorImpl.consoleLogResponseBody;
+    private Integer consoleLogResponseBodyMaxSize = DescriptorImpl.consoleLogResponseBodyMaxSize;
+    private Boolean consoleLogResponseBodyOnFailure = DescriptorImpl.consoleLogResponseBodyOnFailure;
     private Boolean quiet                     = DescriptorImpl.quiet;
     private String authentication             = DescriptorImpl.authentication;
     private String requestBody                = DescriptorImpl.requestBody;
     private List<HttpRequestNameValuePair> customHeaders = DescriptorImpl.customHeaders;
+    private Integer maxAttempts               = DescriptorImpl.maxAttempts;
+    private Integer retryBackoff              = DescriptorImpl.retryBackoff;
+    private Integer retryBackoffCap           = DescriptorImpl.retryBackoffCap;
+    private String retryResponseCodes         = DescriptorImpl.retryResponseCodes;
+    private String retryExceptions            = DescriptorImpl.retryExceptions;
+    private Boolean retryNonIdempotent        = DescriptorImpl.retryNonIdempotent;
+    private Boolean coalesce                  = DescriptorImpl.coalesce;
 
 	@DataBoundConstructor
 	public HttpRequest(@Nonnull String url) {
@@ -181,6 +190,24 @@ public class HttpRequest extends Builder {
 		this.consoleLogResponseBody = consoleLogResponseBody;
 	}
 
+	public Integer getConsoleLogResponseBodyMaxSize() {
+		return consoleLogResponseBodyMaxSize;
+	}
+
+	@DataBoundSetter
+	public void setConsoleLogResponseBodyMaxSize(Integer consoleLogResponseBodyMaxSize) {
+		this.consoleLogResponseBodyMaxSize = consoleLogResponseBodyMaxSize;
+	}
+
+	public Boolean getConsoleLogResponseBodyOnFailure() {
+		return consoleLogResponseBodyOnFailure;
+	}
+
+	@DataBoundSetter
+	public void setConsoleLogResponseBodyOnFailure(Boolean consoleLogResponseBodyOnFailure) {
+		this.consoleLogResponseBodyOnFailure = consoleLogResponseBodyOnFailure;
+	}
+
 	public Boolean getQuiet() {
 		return quiet;
 	}
@@ -217,6 +244,69 @@ public class HttpRequest extends Builder {
 		this.customHeaders = customHeaders;
 	}
 
+	public Integer getMaxAttempts() {
+		return maxAttempts;
+	}
+
+	@DataBoundSetter
+	public void setMaxAttempts(Integer maxAttempts) {
+		this.maxAttempts = maxAttempts;
+	}
+
+	public Integer getRetryBackoff() {
+		return retryBackoff;
+	}
+
+	@DataBoundSetter
+	public void setRetryBackoff(Integer retryBackoff) {
+		this.retryBackoff = retryBackoff;
+	}
+
+	public Integer getRetryBackoffCap() {
+		return retryBackoffCap;
+	}
+
+	@DataBoundSetter
+	public void setRetryBackoffCap(Integer retryBackoffCap) {
+		this.retryBackoffCap = retryBackoffCap;
+	}
+
+	public String getRetryResponseCodes() {
+		return retryResponseCodes;
+	}
+
+	@DataBoundSetter
+	public void setRetryResponseCodes(String retryResponseCodes) {
+		this.retryResponseCodes = retryResponseCodes;
+	}
+
+	public String getRetryExceptions() {
+		return retryExceptions;
+	}
+
+	@DataBoundSetter
+	public void setRetryExceptions(String retryExceptions) {
+		this.retryExceptions = retryExceptions;
+	}
+
+	public Boolean getRetryNonIdempotent() {
+		return retryNonIdempotent;
+	}
+
+	@DataBoundSetter
+	public void setRetryNonIdempotent(Boolean retryNonIdempotent) {
+		this.retryNonIdempotent = retryNonIdempotent;
+	}
+
+	public Boolean getCoalesce() {
+		return coalesce;
+	}
+
+	@DataBoundSetter
+	public void setCoalesce(Boolean coalesce) {
+		this.coalesce = coalesce;
+	}
+
 	@Initializer(before = InitMilestone.PLUGINS_STARTED)
 	public static void xStreamCompatibility() {
 		Items.XSTREAM2.aliasField("logResponseBody", HttpRequest.class, "consoleLogResponseBody");
@@ -238,6 +328,9 @@ public class HttpRequest extends Builder {
 		if (quiet == null) {
 			quiet = false;
 		}
+		if (maxAttempts == null) {
+			maxAttempts = DescriptorImpl.maxAttempts;
+		}
 		return this;
 	}
 
@@ -325,7 +418,7 @@ public class HttpRequest extends Builder {
 
 		HttpRequestExecution exec = HttpRequestExecution.from(this, envVars, build,
 				this.getQuiet() ? TaskListener.NULL : listener);
-		launcher.getChannel().call(exec);
+		exec.dispatch(launcher.getChannel());
 
         return true;
     }
@@ -343,10 +436,20 @@ public class HttpRequest extends Builder {
         public static final String   outputFile                = "";
         public static final int      timeout                   = 0;
         public static final Boolean  consoleLogResponseBody    = false;
+        public static final int      consoleLogResponseBodyMaxSize = 0;
+        public static final Boolean  consoleLogResponseBodyOnFailure = false;
         public static final Boolean  quiet                     = false;
         public static final String   authentication            = "";
         public static final String   requestBody               = "";
         public static final List <HttpRequestNameValuePair> customHeaders = Collections.<HttpRequestNameValuePair>emptyList();
+        public static final int      maxAttempts               = 1;
+        public static final int      retryBackoff              = 500;
+        public static final int      retryBackoffCap           = 10000;
+        public static final String   retryResponseCodes        = "408,429,502:504";
+        public static final String   retryExceptions           = "java.net.SocketException,java.net.SocketTimeoutException," +
+                "org.apache.http.NoHttpResponseException";
+        public static final Boolean  retryNonIdempotent        = false;
+        public static final Boolean  coalesce                  = false;
 
         public DescriptorImpl() {
             load();
@@ -439,6 +542,25 @@ public class HttpRequest extends Builder {
             return checkValidResponseCodes(value);
         }
 
+        public FormValidation doCheckRetryResponseCodes(@QueryParameter String value) {
+            return checkValidResponseCodes(value);
+        }
+
+        public FormValidation doCheckMaxAttempts(@QueryParameter String value) {
+            return checkMaxAttempts(value);
+        }
+
+        public FormValidation doCheckConsoleLogResponseBodyMaxSize(@QueryParameter String value) {
+            return FormValidation.validateNonNegativeInteger(value);
+        }
+
+        public static FormValidation checkMaxAttempts(String value) {
+            if (value == null || value.trim().isEmpty()) {
+                return FormValidation.ok();
+            }
+            return FormValidation.validatePositiveInteger(value);
+        }
+
         public static FormValidation checkValidResponseCodes(String value) {
             if (value == null || value.trim().isEmpty()) {
                 return FormValidation.ok();
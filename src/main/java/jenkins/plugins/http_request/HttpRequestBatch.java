@@ -0,0 +1,105 @@
+package jenkins.plugins.http_request;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+import org.kohsuke.stapler.QueryParameter;
+
+import hudson.AbortException;
+import hudson.EnvVars;
+import hudson.Extension;
+import hudson.Launcher;
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+import hudson.model.BuildListener;
+import hudson.model.TaskListener;
+import hudson.tasks.BuildStepDescriptor;
+import hudson.tasks.Builder;
+import hudson.util.FormValidation;
+
+/**
+ * Runs several requests, described as for {@link HttpRequest}, at most maxConcurrent at a time.
+ * Without fail fast every request runs and the build fails afterwards when one of them failed.
+ */
+public class HttpRequestBatch extends Builder {
+
+	private final List<HttpRequest> requests;
+	private Integer maxConcurrent = DescriptorImpl.maxConcurrent;
+	private Boolean failFast = DescriptorImpl.failFast;
+
+	@DataBoundConstructor
+	public HttpRequestBatch(List<HttpRequest> requests) {
+		this.requests = requests != null ? requests : Collections.<HttpRequest>emptyList();
+	}
+
+	public List<HttpRequest> getRequests() {
+		return requests;
+	}
+
+	public Integer getMaxConcurrent() {
+		return maxConcurrent;
+	}
+
+	@DataBoundSetter
+	public void setMaxConcurrent(Integer maxConcurrent) {
+		this.maxConcurrent = maxConcurrent;
+	}
+
+	public Boolean getFailFast() {
+		return failFast;
+	}
+
+	@DataBoundSetter
+	public void setFailFast(Boolean failFast) {
+		this.failFast = failFast;
+	}
+
+	@Override
+	public boolean perform(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener)
+			throws InterruptedException, IOException {
+		EnvVars envVars = build.getEnvironment(listener);
+		for (Map.Entry<String, String> e : build.getBuildVariables().entrySet()) {
+			envVars.put(e.getKey(), e.getValue());
+		}
+
+		List<HttpRequestExecution> executions = new ArrayList<>();
+		for (HttpRequest http : requests) {
+			executions.add(HttpRequestExecution.from(http, envVars, build,
+					Boolean.TRUE.equals(http.getQuiet()) ? TaskListener.NULL : listener));
+		}
+		HttpRequestBatchExecution batch = new HttpRequestBatchExecution(executions,
+				maxConcurrent != null ? maxConcurrent : DescriptorImpl.maxConcurrent,
+				!Boolean.FALSE.equals(failFast), listener.getLogger());
+		batch.dispatch(launcher.getChannel());
+		if (batch.getFailures() > 0) {
+			throw new AbortException(batch.getFailures() + " of " + executions.size() + " requests failed");
+		}
+		return true;
+	}
+
+	@Extension
+	public static final class DescriptorImpl extends BuildStepDescriptor<Builder> {
+		public static final int maxConcurrent = HttpRequestBatchStep.DescriptorImpl.maxConcurrent;
+		public static final Boolean failFast = HttpRequestBatchStep.DescriptorImpl.failFast;
+
+		@SuppressWarnings("rawtypes")
+		@Override
+		public boolean isApplicable(Class<? extends AbstractProject> aClass) {
+			return true;
+		}
+
+		@Override
+		public String getDisplayName() {
+			return "HTTP Request batch";
+		}
+
+		public FormValidation doCheckMaxConcurrent(@QueryParameter String value) {
+			return FormValidation.validatePositiveInteger(value);
+		}
+	}
+}
@@ -0,0 +1,183 @@
+package jenkins.plugins.http_request;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.acegisecurity.Authentication;
+import org.acegisecurity.context.SecurityContext;
+import org.acegisecurity.context.SecurityContextHolder;
+
+import hudson.remoting.VirtualChannel;
+import hudson.security.ACL;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import jenkins.model.Jenkins;
+
+import jenkins.plugins.http_request.HttpRequestExecution.InvalidResponseCodeException;
+
+/**
+ * Dispatches the requests of a batch from the master, at most maxConcurrent at a time. Each request keeps the limits
+ * of the global configuration and is sent by the connection pools of the node, shared by the whole batch.
+ * <p>
+ * The responses are returned in the order of the requests. When failing fast the first failure cancels the requests
+ * still running, closes the responses already received and is thrown, otherwise every request runs and a failed one is answered by its error message with
+ * the status of the response refused, 0 without response.
+ */
+final class HttpRequestBatchExecution {
+
+	private static ExecutorService executorService;
+
+	private final List<HttpRequestExecution> requests;
+	private final int maxConcurrent;
+	private final boolean failFast;
+	private final PrintStream logger;
+	private int failures;
+
+	HttpRequestBatchExecution(List<HttpRequestExecution> requests, int maxConcurrent, boolean failFast,
+							  PrintStream logger) {
+		this.requests = requests;
+		this.maxConcurrent = Math.max(1, maxConcurrent);
+		this.failFast = failFast;
+		this.logger = logger;
+	}
+
+	List<ResponseContentSupplier> dispatch(VirtualChannel channel) throws IOException, InterruptedException {
+		Authentication auth = Jenkins.getAuthentication();
+		CompletionService<ResponseContentSupplier> completion = new ExecutorCompletionService<>(getExecutorService());
+		Map<Future<ResponseContentSupplier>, Integer> running = new HashMap<>();
+		ResponseContentSupplier[] responses = new ResponseContentSupplier[requests.size()];
+		failures = 0;
+		int next = 0;
+		boolean returned = false;
+		try {
+			for (; next < requests.size() && running.size() < maxConcurrent; next++) {
+				running.put(completion.submit(task(requests.get(next), channel, auth)), next);
+			}
+			while (!running.isEmpty()) {
+				Future<ResponseContentSupplier> done = completion.take();
+				int index = running.remove(done);
+				try {
+					responses[index] = done.get();
+				} catch (ExecutionException e) {
+					Throwable cause = e.getCause();
+					logger.println("Request " + (index + 1) + " of " + requests.size() + " failed: " + cause.getMessage());
+					if (failFast) {
+						throw rethrow(cause);
+					}
+					failures++;
+					responses[index] = new ResponseContentSupplier(cause.getMessage(), status(cause));
+				}
+				if (next < requests.size()) {
+					running.put(completion.submit(task(requests.get(next), channel, auth)), next);
+					next++;
+				}
+			}
+			returned = true;
+		} finally {
+			if (!running.isEmpty()) {
+				logger.println("Cancelling " + running.size() + " requests still running");
+				for (Future<ResponseContentSupplier> future : running.keySet()) {
+					if (!future.cancel(true)) {
+						//done before it could be cancelled
+						closeQuietly(result(future));
+					}
+				}
+			}
+			if (!returned) {
+				//the caller never gets them, their connections and temp files are released here
+				for (ResponseContentSupplier response : responses) {
+					closeQuietly(response);
+				}
+			}
+		}
+		if (failures > 0) {
+			logger.println(failures + " of " + requests.size() + " requests failed");
+		}
+		return new ArrayList<>(Arrays.asList(responses));
+	}
+
+	/**
+	 * @return requests of the last dispatch answered by their error message
+	 */
+	int getFailures() {
+		return failures;
+	}
+
+	private static Callable<ResponseContentSupplier> task(final HttpRequestExecution request,
+														  final VirtualChannel channel, final Authentication auth) {
+		return new Callable<ResponseContentSupplier>() {
+			@Override
+			public ResponseContentSupplier call() throws Exception {
+				SecurityContext context = ACL.impersonate(auth);
+				try {
+					return request.dispatch(channel);
+				} finally {
+					SecurityContextHolder.setContext(context);
+				}
+			}
+		};
+	}
+
+	private static ResponseContentSupplier result(Future<ResponseContentSupplier> future) {
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			return null;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		}
+	}
+
+	private void closeQuietly(ResponseContentSupplier response) {
+		if (response == null) {
+			return;
+		}
+		try {
+			response.close();
+		} catch (IOException e) {
+			logger.println("Unable to close a response of the batch: " + e.getMessage());
+		}
+	}
+
+	private static int status(Throwable e) {
+		Throwable cause = e instanceof IllegalStateException && e.getCause() != null ? e.getCause() : e;
+		return cause instanceof InvalidResponseCodeException ? ((InvalidResponseCodeException) cause).getStatus() : 0;
+	}
+
+	private static IOException rethrow(Throwable e) throws InterruptedException {
+		if (e instanceof IOException) {
+			return (IOException) e;
+		}
+		if (e instanceof InterruptedException) {
+			throw (InterruptedException) e;
+		}
+		if (e instanceof RuntimeException) {
+			throw (RuntimeException) e;
+		}
+		if (e instanceof Error) {
+			throw (Error) e;
+		}
+		return new IOException(e);
+	}
+
+	static synchronized ExecutorService getExecutorService() {
+		if (executorService == null) {
+			executorService = Executors.newCachedThreadPool(
+					new NamingThreadFactory(new DaemonThreadFactory(), "HttpRequestBatchExecution"));
+		}
+		return executorService;
+	}
+}
@@ -0,0 +1,198 @@
+package jenkins.plugins.http_request;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Future;
+
+import javax.inject.Inject;
+
+import org.acegisecurity.Authentication;
+import org.acegisecurity.context.SecurityContext;
+import org.acegisecurity.context.SecurityContextHolder;
+import org.jenkinsci.plugins.workflow.steps.AbstractStepDescriptorImpl;
+import org.jenkinsci.plugins.workflow.steps.AbstractStepExecutionImpl;
+import org.jenkinsci.plugins.workflow.steps.AbstractStepImpl;
+import org.jenkinsci.plugins.workflow.steps.StepContextParameter;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+import org.kohsuke.stapler.QueryParameter;
+
+import hudson.Extension;
+import hudson.Launcher;
+import hudson.model.TaskListener;
+import hudson.security.ACL;
+import hudson.util.FormValidation;
+import jenkins.model.Jenkins;
+
+/**
+ * Runs several requests, described as for {@link HttpRequestStep}, and returns their responses in the same order.
+ */
+public final class HttpRequestBatchStep extends AbstractStepImpl {
+
+	private final List<HttpRequestStep> requests;
+	private int maxConcurrent = DescriptorImpl.maxConcurrent;
+	private boolean failFast = DescriptorImpl.failFast;
+
+	@DataBoundConstructor
+	public HttpRequestBatchStep(List<HttpRequestStep> requests) {
+		this.requests = requests != null ? requests : Collections.<HttpRequestStep>emptyList();
+	}
+
+	public List<HttpRequestStep> getRequests() {
+		return requests;
+	}
+
+	public int getMaxConcurrent() {
+		return maxConcurrent;
+	}
+
+	@DataBoundSetter
+	public void setMaxConcurrent(int maxConcurrent) {
+		this.maxConcurrent = maxConcurrent;
+	}
+
+	public boolean isFailFast() {
+		return failFast;
+	}
+
+	@DataBoundSetter
+	public void setFailFast(boolean failFast) {
+		this.failFast = failFast;
+	}
+
+	@Override
+	public DescriptorImpl getDescriptor() {
+		return (DescriptorImpl) super.getDescriptor();
+	}
+
+	@Extension
+	public static final class DescriptorImpl extends AbstractStepDescriptorImpl {
+		public static final int maxConcurrent = 4;
+		public static final boolean failFast = true;
+
+		public DescriptorImpl() {
+			super(Execution.class);
+		}
+
+		@Override
+		public String getFunctionName() {
+			return "httpRequestBatch";
+		}
+
+		@Override
+		public String getDisplayName() {
+			return "Perform several HTTP Requests and return a list of response objects";
+		}
+
+		public FormValidation doCheckMaxConcurrent(@QueryParameter String value) {
+			return FormValidation.validatePositiveInteger(value);
+		}
+	}
+
+	public static final class Execution extends AbstractStepExecutionImpl {
+
+		@Inject
+		private transient HttpRequestBatchStep step;
+
+		@StepContextParameter
+		private transient TaskListener listener;
+
+		private transient volatile Future<?> task;
+		private transient boolean done;
+
+		@Override
+		public boolean start() throws Exception {
+			final Authentication auth = Jenkins.getAuthentication();
+			task = HttpRequestBatchExecution.getExecutorService().submit(new Runnable() {
+				@Override
+				public void run() {
+					SecurityContext context = ACL.impersonate(auth);
+					try {
+						succeed(Execution.this.run());
+					} catch (Throwable e) {
+						fail(e);
+					} finally {
+						SecurityContextHolder.setContext(context);
+					}
+				}
+			});
+			return false;
+		}
+
+		private List<ResponseContentSupplier> run() throws Exception {
+			List<HttpRequestExecution> requests = new ArrayList<>();
+			for (HttpRequestStep request : step.getRequests()) {
+				requests.add(HttpRequestExecution.from(request,
+						request.getQuiet() ? TaskListener.NULL : listener,
+						getContext()));
+			}
+
+			Launcher launcher = getContext().get(Launcher.class);
+			return new HttpRequestBatchExecution(requests, step.getMaxConcurrent(),
+					step.isFailFast(), listener.getLogger()).dispatch(launcher != null ? launcher.getChannel() : null);
+		}
+
+		@Override
+		public void stop(Throwable cause) throws Exception {
+			Future<?> task = this.task;
+			if (task != null) {
+				task.cancel(true);
+			}
+			fail(cause);
+		}
+
+		/**
+		 * The context is completed once, by the batch or by stop, whichever comes first.
+		 */
+		private synchronized boolean complete() {
+			if (done) {
+				return false;
+			}
+			done = true;
+			return true;
+		}
+
+		private void succeed(List<ResponseContentSupplier> responses) {
+			if (!complete()) {
+				//stopped meanwhile, nobody reads them
+				close(responses);
+				return;
+			}
+			try {
+				for (ResponseContentSupplier response : responses) {
+					HttpRequestStep.keepInBuild(response, getContext());
+				}
+			} catch (Throwable e) {
+				close(responses);
+				getContext().onFailure(e);
+				return;
+			}
+			getContext().onSuccess(responses);
+		}
+
+		private void fail(Throwable cause) {
+			if (complete()) {
+				getContext().onFailure(cause);
+			}
+		}
+
+		private void close(List<ResponseContentSupplier> responses) {
+			for (ResponseContentSupplier response : responses) {
+				try {
+					response.close();
+				} catch (IOException e) {
+					listener.getLogger().println("Unable to close a response of the batch: " + e.getMessage());
+				}
+			}
+		}
+
+		@Override
+		public void onResume() {
+			getContext().onFailure(new Exception("Resume after a restart not supported for httpRequestBatch"));
+		}
+
+		private static final long serialVersionUID = 1L;
+	}
+}
@@ -1,44 +1,47 @@
 package jenkins.plugins.http_request;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.PrintStream;
 import java.io.UnsupportedEncodingException;
 import java.net.ConnectException;
-import java.net.Socket;
+import java.net.MalformedURLException;
 import java.net.SocketTimeoutException;
 import java.net.URL;
 import java.net.UnknownHostException;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.security.KeyManagementException;
-import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
-import java.security.cert.CertificateException;
-import java.security.cert.X509Certificate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
-import javax.net.ssl.SSLContext;
-import javax.net.ssl.SSLEngine;
-import javax.net.ssl.TrustManager;
-import javax.net.ssl.X509ExtendedTrustManager;
-
+import org.apache.commons.io.output.CloseShieldOutputStream;
+import org.apache.commons.io.output.WriterOutputStream;
 import org.apache.commons.lang.StringUtils;
 import org.apache.http.HttpHost;
 import org.apache.http.HttpResponse;
-import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.HttpRequestBase;
-import org.apache.http.conn.ssl.NoopHostnameVerifier;
-import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.conn.ConnectTimeoutException;
 import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClientBuilder;
-import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
 import org.apache.http.protocol.HttpContext;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
 
 import com.cloudbees.plugins.credentials.CredentialsMatchers;
 import com.cloudbees.plugins.credentials.CredentialsProvider;
 import com.cloudbees.plugins.credentials.common.StandardUsernamePasswordCredentials;
 import com.cloudbees.plugins.credentials.domains.URIRequirementBuilder;
+import com.google.common.base.Strings;
 import com.google.common.collect.Range;
 import com.google.common.io.ByteStreams;
 
@@ -47,19 +50,44 @@ import hudson.CloseProofOutputStream;
 import hudson.EnvVars;
 import hudson.FilePath;
 import hudson.model.AbstractBuild;
+import hudson.model.Computer;
 import hudson.model.Item;
+import hudson.model.Node;
 import hudson.model.TaskListener;
 import hudson.remoting.RemoteOutputStream;
+import hudson.remoting.VirtualChannel;
 import hudson.security.ACL;
 import jenkins.security.MasterToSlaveCallable;
 
 import jenkins.plugins.http_request.HttpRequest.DescriptorImpl;
-import jenkins.plugins.http_request.HttpRequestStep.Execution;
 import jenkins.plugins.http_request.auth.Authenticator;
 import jenkins.plugins.http_request.auth.CredentialBasicAuthentication;
+import jenkins.plugins.http_request.auth.FormAuthentication;
+import jenkins.plugins.http_request.util.BatchingOutputStream;
+import jenkins.plugins.http_request.util.Bulkhead;
+import jenkins.plugins.http_request.util.Bulkheads;
+import jenkins.plugins.http_request.util.CircuitBreaker;
+import jenkins.plugins.http_request.util.CircuitBreakers;
+import jenkins.plugins.http_request.util.ConnectionPoolSettings;
+import jenkins.plugins.http_request.util.ContentMatcher;
+import jenkins.plugins.http_request.util.DiskResponseCache;
+import jenkins.plugins.http_request.util.HedgePolicy;
+import jenkins.plugins.http_request.util.HttpClientRegistry;
 import jenkins.plugins.http_request.util.HttpClientUtil;
 import jenkins.plugins.http_request.util.HttpRequestNameValuePair;
+import jenkins.plugins.http_request.util.LatencyTracker;
+import jenkins.plugins.http_request.util.MemoryResponseCache;
+import jenkins.plugins.http_request.util.PageMerger;
+import jenkins.plugins.http_request.util.Paginator;
+import jenkins.plugins.http_request.util.RateLimiter;
+import jenkins.plugins.http_request.util.RateLimiters;
 import jenkins.plugins.http_request.util.RequestAction;
+import jenkins.plugins.http_request.util.RequestCoalescer;
+import jenkins.plugins.http_request.util.RequestHedger;
+import jenkins.plugins.http_request.util.ResponseBodyLog;
+import jenkins.plugins.http_request.util.ResponseMemoryBudget;
+import jenkins.plugins.http_request.util.RetryPolicy;
+import jenkins.plugins.http_request.util.SpillOutputStream;
 
 /**
  * @author Janario Oliveira
@@ -67,6 +95,17 @@ import jenkins.plugins.http_request.util.RequestAction;
 public class HttpRequestExecution extends MasterToSlaveCallable<ResponseContentSupplier, RuntimeException> {
 
 	private static final long serialVersionUID = -2066857816168989599L;
+	private static final String RESPONSE_CACHE = "http-request-cache";
+	/**
+	 * Bytes of a body logged only on failure, without max size.
+	 */
+	private static final int FAILURE_LOG_SIZE = 64 * 1024;
+	/**
+	 * Console log buffered on a node, sent to the master when full, after the delay or at the end of the request.
+	 */
+	private static final int REMOTE_LOG_SIZE = 8 * 1024;
+	private static final long REMOTE_LOG_DELAY = TimeUnit.SECONDS.toMillis(1);
+	private static final Logger LOGGER = Logger.getLogger(HttpRequestExecution.class.getName());
 	private final String url;
 	private final HttpMode httpMode;
 	private final boolean ignoreSslErrors;
@@ -80,12 +119,38 @@ public class HttpRequestExecution extends MasterToSlaveCallable<ResponseContentS
 	private final FilePath outputFile;
 	private final int timeout;
 	private final boolean consoleLogResponseBody;
+	private final int consoleLogMaxSize;
+	private final boolean consoleLogOnFailure;
 	private final ResponseHandle responseHandle;
 
 	private final Authenticator authenticator;
+	private final ConnectionPoolSettings poolSettings;
+	private final HttpTransport transport;
+	private final RetryPolicy retryPolicy;
+	private final HedgePolicy hedgePolicy;
+	private transient int hedges;
+	private final boolean coalesce;
+	private final String responseCacheDirectory;
+	private final long responseCacheSize;
+	private final boolean memoryCache;
+	private final long memoryCacheSize;
+	private final long memoryCacheMaxEntrySize;
+	private final long spillThreshold;
+	private final long spillMaxAge;
+	private final long memoryBudget;
+	private final ResponseMemoryPolicy memoryPolicy;
+	private final long memoryMaxWait;
+	private final Paginator paginator;
+
+	private final transient Bulkhead bulkhead;
+	private final transient RateLimiter rateLimiter;
+	private final transient CircuitBreaker circuitBreaker;
+	private String openCircuit;
 
 	private final OutputStream remoteLogger;
 	private transient PrintStream localLogger;
+	private transient BatchingOutputStream batchingLogger;
+	private transient ResponseMemoryBudget.Reservation memory;
 
 	static HttpRequestExecution from(HttpRequest http,
 									 EnvVars envVars, AbstractBuild<?, ?> build, TaskListener taskListener) {
@@ -96,6 +161,7 @@ public class HttpRequestExecution extends MasterToSlaveCallable<ResponseContentS
 
 			FilePath outputFile = http.resolveOutputFile(envVars, build);
 			Item project = build.getProject();
+			Node node = build.getBuiltOn();
 
 			return new HttpRequestExecution(
 					url, http.getHttpMode(), http.getIgnoreSslErrors(),
@@ -103,8 +169,14 @@ public class HttpRequestExecution extends MasterToSlaveCallable<ResponseContentS
 					http.getAuthentication(),
 
 					http.getValidResponseCodes(), http.getValidResponseContent(),
-					http.getConsoleLogResponseBody(), outputFile,
-					ResponseHandle.NONE,
+					http.getConsoleLogResponseBody(), http.getConsoleLogResponseBodyMaxSize(),
+					http.getConsoleLogResponseBodyOnFailure(), outputFile,
+					ResponseHandle.NONE, HttpTransport.DEFAULT,
+					retryPolicy(http.getHttpMode(), http.getMaxAttempts(), http.getRetryBackoff(),
+							http.getRetryBackoffCap(), http.getRetryResponseCodes(), http.getRetryExceptions(),
+							http.getRetryNonIdempotent()),
+					HedgePolicy.NONE, Boolean.TRUE.equals(http.getCoalesce()), false,
+					node != null ? node.getRootPath() : null, Paginator.NONE,
 
 					project,
 					taskListener.getLogger());
@@ -113,29 +185,65 @@ public class HttpRequestExecution extends MasterToSlaveCallable<ResponseContentS
 		}
 	}
 
-	static HttpRequestExecution from(HttpRequestStep step, TaskListener taskListener, Execution execution) {
+	static HttpRequestExecution from(HttpRequestStep step, TaskListener taskListener, StepContext context) {
 		List<HttpRequestNameValuePair> headers = step.resolveHeaders();
-		FilePath outputFile = execution.resolveOutputFile();
-		Item project = execution.getProject();
+		FilePath outputFile = step.resolveOutputFile(context);
+		Item project = HttpRequestStep.resolveProject(context);
 		return new HttpRequestExecution(
 				step.getUrl(), step.getHttpMode(), step.isIgnoreSslErrors(),
 				step.getHttpProxy(), step.getRequestBody(), headers, step.getTimeout(),
 				step.getAuthentication(),
 
 				step.getValidResponseCodes(), step.getValidResponseContent(),
-				step.getConsoleLogResponseBody(), outputFile,
-				step.getResponseHandle(),
+				step.getConsoleLogResponseBody(), step.getConsoleLogResponseBodyMaxSize(),
+				step.isConsoleLogResponseBodyOnFailure(), outputFile,
+				step.getResponseHandle(), step.getTransport(),
+				retryPolicy(step.getHttpMode(), step.getMaxAttempts(), step.getRetryBackoff(),
+						step.getRetryBackoffCap(), step.getRetryResponseCodes(), step.getRetryExceptions(),
+						step.isRetryNonIdempotent()),
+				hedgePolicy(step.getHttpMode(), step.getHedgeDelay(), step.isHedgeDelayObserved(),
+						step.getMaxHedges(), step.getHedgeUrls()),
+				step.isCoalesce(), step.isMemoryCache(), HttpRequestStep.resolveNodeRoot(context),
+				new Paginator(step.getPagination(), step.getPaginationParameter(), step.getPaginationCursorField(),
+						step.getPaginationMaxPages(), step.getPaginationMaxSize() * 1024L * 1024L),
 				project, taskListener.getLogger());
 	}
 
+	/**
+	 * Requests which are not idempotent are sent once, unless retrying them was asked for.
+	 */
+	private static RetryPolicy retryPolicy(HttpMode httpMode, Integer maxAttempts, Integer backoff, Integer backoffCap,
+										   String responseCodes, String exceptions, Boolean nonIdempotent) {
+		if (maxAttempts == null || maxAttempts <= 1 || !(httpMode.isIdempotent() || Boolean.TRUE.equals(nonIdempotent))) {
+			return RetryPolicy.NONE;
+		}
+		return new RetryPolicy(maxAttempts,
+				backoff != null ? backoff : DescriptorImpl.retryBackoff,
+				backoffCap != null ? backoffCap : DescriptorImpl.retryBackoffCap,
+				DescriptorImpl.parseToRange(responseCodes != null && !responseCodes.trim().isEmpty() ?
+						responseCodes : DescriptorImpl.retryResponseCodes),
+				exceptions != null ? exceptions : DescriptorImpl.retryExceptions);
+	}
+
+	/**
+	 * Only requests which read are hedged.
+	 */
+	private static HedgePolicy hedgePolicy(HttpMode httpMode, int delay, boolean observedDelay, int maxHedges, String urls) {
+		if (httpMode != HttpMode.GET && httpMode != HttpMode.HEAD) {
+			return HedgePolicy.NONE;
+		}
+		return new HedgePolicy(delay, observedDelay, maxHedges, urls);
+	}
+
 	private HttpRequestExecution(
 			String url, HttpMode httpMode, boolean ignoreSslErrors,
 			String httpProxy, String body, List<HttpRequestNameValuePair> headers, Integer timeout,
 			String authentication,
 
 			String validResponseCodes, String validResponseContent,
-			Boolean consoleLogResponseBody, FilePath outputFile,
-			ResponseHandle responseHandle,
+			Boolean consoleLogResponseBody, Integer consoleLogMaxSize, Boolean consoleLogOnFailure, FilePath outputFile,
+			ResponseHandle responseHandle, HttpTransport transport, RetryPolicy retryPolicy, HedgePolicy hedgePolicy,
+			boolean coalesce, boolean memoryCache, FilePath nodeRoot, Paginator paginator,
 
 			Item project, PrintStream logger
 	) {
@@ -147,8 +255,30 @@ public class HttpRequestExecution extends MasterToSlaveCallable<ResponseContentS
 		this.body = body;
 		this.headers = headers;
 		this.timeout = timeout != null ? timeout : -1;
+		HttpRequestGlobalConfig globalConfig = HttpRequestGlobalConfig.get();
+		this.poolSettings = globalConfig.getConnectionPoolSettings();
+		this.bulkhead = Bulkheads.forUrl(url, globalConfig.getHostConcurrencyLimits());
+		this.rateLimiter = RateLimiters.forUrl(url, globalConfig.getHostRateLimits());
+		this.circuitBreaker = CircuitBreakers.forUrl(url, globalConfig.getCircuitBreakerFailures(),
+				globalConfig.getCircuitBreakerErrorRate(), Math.max(1, globalConfig.getCircuitBreakerWindow()),
+				globalConfig.getCircuitBreakerOpenDuration());
+		this.transport = transport != null && transport != HttpTransport.DEFAULT ? transport : globalConfig.getTransport();
+		this.retryPolicy = retryPolicy;
+		this.hedgePolicy = hedgePolicy;
+		this.paginator = paginator;
+		int responseCacheSize = globalConfig.getResponseCacheSize();
+		this.responseCacheDirectory = responseCacheSize > 0 && nodeRoot != null ?
+				nodeRoot.child(RESPONSE_CACHE).getRemote() : null;
+		this.responseCacheSize = responseCacheSize * 1024L * 1024L;
+		this.memoryCacheSize = globalConfig.getMemoryCacheSize() * 1024L * 1024L;
+		this.memoryCacheMaxEntrySize = globalConfig.getMemoryCacheMaxEntrySize() * 1024L;
+		this.spillThreshold = Math.max(0, globalConfig.getSpillThreshold()) * 1024L * 1024L;
+		this.spillMaxAge = TimeUnit.HOURS.toMillis(Math.max(0, globalConfig.getSpillMaxAge()));
+		this.memoryBudget = Math.max(0, globalConfig.getResponseMemoryBudget()) * 1024L * 1024L;
+		this.memoryPolicy = globalConfig.getResponseMemoryPolicy();
+		this.memoryMaxWait = TimeUnit.SECONDS.toMillis(Math.max(0, globalConfig.getResponseMemoryMaxWait()));
 		if (authentication != null && !authentication.isEmpty()) {
-			Authenticator auth = HttpRequestGlobalConfig.get().getAuthentication(authentication);
+			Authenticator auth = globalConfig.getAuthentication(authentication);
 
 			if (auth == null) {
 				StandardUsernamePasswordCredentials credential = CredentialsMatchers.firstOrNull(
@@ -174,35 +304,278 @@ public class HttpRequestExecution extends MasterToSlaveCallable<ResponseContentS
 		this.validResponseCodes = validResponseCodes;
 		this.validResponseContent = validResponseContent != null ? validResponseContent : "";
 		this.consoleLogResponseBody = Boolean.TRUE.equals(consoleLogResponseBody);
-		this.responseHandle = this.consoleLogResponseBody || !this.validResponseContent.isEmpty() ?
+		this.consoleLogMaxSize = consoleLogMaxSize != null ? Math.max(0, consoleLogMaxSize) * 1024 : 0;
+		this.consoleLogOnFailure = Boolean.TRUE.equals(consoleLogOnFailure);
+		//the next page is found in the content of the page, a content left open to the caller is read once checked
+		this.responseHandle = paginator.isEnabled() || responseHandle == ResponseHandle.LEAVE_OPEN &&
+				(this.consoleLogResponseBody || this.consoleLogOnFailure || !this.validResponseContent.isEmpty()) ?
 				ResponseHandle.STRING : responseHandle;
+		//only requests which read are coalesced, their responses are shared as strings
+		this.coalesce = coalesce && (httpMode == HttpMode.GET || httpMode == HttpMode.HEAD)
+				&& this.responseHandle == ResponseHandle.STRING;
+		//only small responses read as a string are kept in memory
+		this.memoryCache = memoryCache && this.responseHandle == ResponseHandle.STRING && httpMode == HttpMode.GET
+				&& this.memoryCacheSize > 0;
 		this.outputFile = outputFile;
 
 		this.localLogger = logger;
 		this.remoteLogger = new RemoteOutputStream(new CloseProofOutputStream(logger));
 	}
 
+	/**
+	 * Runs the request on the node of the channel, or in this JVM without channel, once the limits kept on the
+	 * master let it go.
+	 */
+	ResponseContentSupplier dispatch(VirtualChannel channel) throws IOException, InterruptedException {
+		if (circuitBreaker != null && !circuitBreaker.allowRequest()) {
+			//answered here without reaching the node
+			openCircuit = "Circuit breaker open for " + circuitBreaker.getHost() +
+					", retry in " + circuitBreaker.getRetryAfter() + "s";
+			return call();
+		}
+
+		Bulkhead.Permit permit;
+		try {
+			if (rateLimiter != null) {
+				rateLimiter.acquire(logger());
+			}
+			permit = bulkhead != null ? bulkhead.acquire(logger()) : null;
+		} catch (IOException | InterruptedException | RuntimeException e) {
+			//never sent, it tells nothing about the host
+			if (circuitBreaker != null) {
+				circuitBreaker.onIgnored();
+			}
+			throw e;
+		}
+
+		try {
+			ResponseContentSupplier response = channel != null ? channel.call(this) : call();
+			recordOutcome(response.getStatus());
+			return response;
+		} catch (IOException | InterruptedException | RuntimeException e) {
+			recordFailure(e);
+			throw e;
+		} finally {
+			release(permit);
+		}
+	}
+
+	/**
+	 * Requests answered by a server error or a timeout are failures of the host.
+	 */
+	private void recordOutcome(int status) {
+		if (circuitBreaker == null) {
+			return;
+		}
+		if (status >= 500 || status == 408) {
+			circuitBreaker.onFailure();
+		} else {
+			circuitBreaker.onSuccess();
+		}
+	}
+
+	private void recordFailure(Throwable e) {
+		if (circuitBreaker == null) {
+			return;
+		}
+		Throwable cause = e instanceof IllegalStateException && e.getCause() != null ? e.getCause() : e;
+		if (cause instanceof InvalidResponseCodeException) {
+			recordOutcome(((InvalidResponseCodeException) cause).getStatus());
+		} else if (cause instanceof ConnectTimeoutException || cause instanceof SocketTimeoutException) {
+			//timeouts are interrupted I/O as well, but the host didn't answer
+			circuitBreaker.onFailure();
+		} else if (cause instanceof InterruptedException || cause instanceof InterruptedIOException) {
+			circuitBreaker.onIgnored();
+		} else if (cause instanceof AbortException) {
+			//the host answered, the response was not the one expected
+			circuitBreaker.onSuccess();
+		} else {
+			circuitBreaker.onFailure();
+		}
+	}
+
 	@Override
 	public ResponseContentSupplier call() throws RuntimeException {
+		SpillOutputStream.setMaxAge(spillMaxAge);
+		try {
+			logRequest();
+			if (openCircuit != null) {
+				logger().println("Treating " + openCircuit + " as 503 Service Unavailable");
+				ResponseContentSupplier response = new ResponseContentSupplier(openCircuit + " as 503 Service Unavailable", 503);
+				processResponse(response);
+				return response;
+			}
+			return authAndRequest();
+		} catch (IOException | InterruptedException |
+				NoSuchAlgorithmException | KeyManagementException e) {
+			throw new IllegalStateException(e);
+		} finally {
+			releaseMemory();
+			flushLogger();
+		}
+	}
+
+	/**
+	 * Form authentication sends blocking requests to login, those requests stay on the synchronous path.
+	 * The non blocking client is an Apache HttpClient, other transports stay on the synchronous path too.
+	 * Retries, hedged and coalesced requests wait for other requests and stay on the synchronous path as well,
+	 * the response caches are kept by the node which sends the request, the pages of a response are followed
+	 * by the node too. A response buffered within the response memory budget may wait for it.
+	 */
+	boolean canCallAsync() {
+		return !(authenticator instanceof FormAuthentication) && transport == HttpTransport.APACHE_HTTP_CLIENT
+				&& retryPolicy.getMaxAttempts() == 1 && !hedgePolicy.isEnabled() && !coalesce
+				&& responseCacheDirectory == null && !memoryCache && !paginator.isEnabled()
+				&& !(memoryBudget > 0 && responseHandle == ResponseHandle.STRING);
+	}
+
+	/**
+	 * Sends the request with the non blocking client of this JVM, no thread waits for the response.
+	 * The response is buffered in memory and then processed in the remoting thread pool, as saving it may write
+	 * to the workspace of an agent.
+	 *
+	 * @return null when the request would have to wait for its turn, it must then be dispatched
+	 */
+	Future<HttpResponse> callAsync(final FutureCallback<ResponseContentSupplier> callback)
+			throws IOException, InterruptedException, NoSuchAlgorithmException, KeyManagementException {
+		if (circuitBreaker != null && circuitBreaker.getState() != CircuitBreaker.State.CLOSED) {
+			return null;
+		}
+		SpillOutputStream.setMaxAge(spillMaxAge);
+		final Bulkhead.Permit permit = bulkhead != null ? bulkhead.tryAcquire() : null;
+		if (bulkhead != null && permit == null) {
+			return null;
+		}
+		if (rateLimiter != null && !rateLimiter.tryAcquire()) {
+			release(permit);
+			return null;
+		}
+		FutureCallback<ResponseContentSupplier> releasing = new FutureCallback<ResponseContentSupplier>() {
+			@Override
+			public void completed(ResponseContentSupplier result) {
+				release(permit);
+				recordOutcome(result.getStatus());
+				callback.completed(result);
+			}
+
+			@Override
+			public void failed(Exception ex) {
+				release(permit);
+				recordFailure(ex);
+				callback.failed(ex);
+			}
+
+			@Override
+			public void cancelled() {
+				release(permit);
+				if (circuitBreaker != null) {
+					circuitBreaker.onIgnored();
+				}
+				callback.cancelled();
+			}
+		};
+		try {
+			return doCallAsync(releasing);
+		} catch (IOException | InterruptedException | NoSuchAlgorithmException | KeyManagementException | RuntimeException e) {
+			release(permit);
+			throw e;
+		}
+	}
+
+	private static void release(Bulkhead.Permit permit) {
+		if (permit != null) {
+			permit.release();
+		}
+	}
+
+	private Future<HttpResponse> doCallAsync(final FutureCallback<ResponseContentSupplier> callback)
+			throws IOException, InterruptedException, NoSuchAlgorithmException, KeyManagementException {
+		logRequest();
+
+		CloseableHttpAsyncClient httpclient = HttpClientRegistry.getAsyncClient(ignoreSslErrors, poolSettings);
+		HttpClientUtil clientUtil = new HttpClientUtil();
+		HttpRequestBase httpRequestBase = clientUtil.createRequestBase(new RequestAction(new URL(url), httpMode, body, null, headers));
+		httpRequestBase.setConfig(HttpClientRegistry.requestConfig(httpProxy, timeout,
+				poolSettings.getConnectionRequestTimeout()));
+		HttpContext context = HttpClientRegistry.newContext();
+
+		if (authenticator != null) {
+			auth(HttpClientRegistry.getClient(httpProxy, ignoreSslErrors, timeout, poolSettings),
+					httpRequestBase, context);
+		}
+
+		logger().println("Sending request to url: " + httpRequestBase.getURI());
+		return httpclient.execute(httpRequestBase, context, new FutureCallback<HttpResponse>() {
+			@Override
+			public void completed(final HttpResponse response) {
+				logger().println("Response Code: " + response.getStatusLine());
+				processAsync(response, null, callback);
+			}
+
+			@Override
+			public void failed(Exception ex) {
+				if (ex instanceof UnknownHostException || ex instanceof SocketTimeoutException || ex instanceof ConnectException) {
+					processAsync(null, (IOException) ex, callback);
+				} else {
+					callback.failed(ex);
+				}
+			}
+
+			@Override
+			public void cancelled() {
+				callback.cancelled();
+			}
+		});
+	}
+
+	/**
+	 * Reads the response or the error answering the request off the I/O threads, a spilled or kept content is
+	 * written to a file.
+	 */
+	private void processAsync(final HttpResponse httpResponse, final IOException error,
+							  final FutureCallback<ResponseContentSupplier> callback) {
+		Computer.threadPoolForRemoting.submit(new Runnable() {
+			@Override
+			public void run() {
+				ResponseContentSupplier response = null;
+				try {
+					response = httpResponse != null ?
+							new ResponseContentSupplier(responseHandle, httpResponse, spillThreshold, null) :
+							responseFromException(error);
+					processResponse(response);
+					if (responseHandle != ResponseHandle.LEAVE_OPEN) {
+						response.release();
+					}
+				} catch (Exception e) {
+					try {
+						if (response != null) {
+							response.close();
+						}
+					} catch (IOException ignored) {
+						// already failing
+					}
+					callback.failed(e);
+					return;
+				}
+				callback.completed(response);
+			}
+		});
+	}
+
+	private void logRequest() {
 		logger().println("HttpMethod: " + httpMode);
 		logger().println("URL: " + url);
 		for (HttpRequestNameValuePair header : headers) {
 			logger().print(header.getName() + ": ");
 			logger().println(header.getMaskValue() ? "*****" : header.getValue());
 		}
-
-		try {
-			return authAndRequest();
-		} catch (IOException | InterruptedException |
-				KeyStoreException | NoSuchAlgorithmException | KeyManagementException e) {
-			throw new IllegalStateException(e);
-		}
 	}
 
 	private PrintStream logger() {
 		if (localLogger == null) {
 			try {
-				localLogger = new PrintStream(remoteLogger, true, StandardCharsets.UTF_8.name());
+				batchingLogger = new BatchingOutputStream(remoteLogger, REMOTE_LOG_SIZE, REMOTE_LOG_DELAY);
+				localLogger = new PrintStream(batchingLogger, false, StandardCharsets.UTF_8.name());
 			} catch (UnsupportedEncodingException e) {
 				throw new IllegalStateException(e);
 			}
@@ -210,89 +583,338 @@ public class HttpRequestExecution extends MasterToSlaveCallable<ResponseContentS
 		return localLogger;
 	}
 
+	/**
+	 * @return the memory of this request in the response memory budget of the node, null without budget
+	 */
+	private ResponseMemoryBudget.Reservation memory() {
+		if (memory == null && memoryBudget > 0) {
+			memory = ResponseMemoryBudget.get(memoryBudget).reserve(memoryPolicy, memoryMaxWait, logger());
+		}
+		return memory;
+	}
+
+	/**
+	 * The response is handed over, the memory it holds is no longer counted as in flight.
+	 */
+	private void releaseMemory() {
+		if (memory != null) {
+			memory.close();
+			memory = null;
+		}
+	}
+
+	/**
+	 * Sends what is left of the console log, whether the request succeeded or not.
+	 */
+	private void flushLogger() {
+		if (localLogger == null) {
+			return;
+		}
+		localLogger.flush();
+		if (batchingLogger != null && LOGGER.isLoggable(Level.FINE)) {
+			LOGGER.log(Level.FINE, "Console log of {0}: {1} writes sent in {2} remoting calls",
+					new Object[]{url, batchingLogger.getWrites(), batchingLogger.getCalls()});
+		}
+	}
+
 	private ResponseContentSupplier authAndRequest()
-			throws IOException, InterruptedException, KeyStoreException, NoSuchAlgorithmException, KeyManagementException {
+			throws IOException, InterruptedException, NoSuchAlgorithmException, KeyManagementException {
 		//only leave open if no error happen
 		ResponseHandle responseHandle = ResponseHandle.NONE;
-		CloseableHttpClient httpclient = null;
+		ResponseContentSupplier response = null;
 		try {
-			HttpClientBuilder clientBuilder = HttpClientBuilder.create().useSystemProperties();
-			configureTimeoutAndSsl(clientBuilder);
-			if (this.httpProxy != null) {
-				clientBuilder.setProxy(this.httpProxy);
-			}
+			CloseableHttpClient httpclient = HttpClientRegistry.getClient(transport, httpProxy, ignoreSslErrors, timeout,
+					poolSettings);
 
 			HttpClientUtil clientUtil = new HttpClientUtil();
 			HttpRequestBase httpRequestBase = clientUtil.createRequestBase(new RequestAction(new URL(url), httpMode, body, null, headers));
-			HttpContext context = new BasicHttpContext();
+			HttpContext context = HttpClientRegistry.newContext();
 
-			httpclient = auth(clientBuilder, httpRequestBase, context);
+			auth(httpclient, httpRequestBase, context);
 
-			ResponseContentSupplier response = executeRequest(httpclient, clientUtil, httpRequestBase, context);
-			processResponse(response);
+			response = executeRequest(httpclient, clientUtil, httpRequestBase, context);
+			if (paginator.isEnabled()) {
+				response = paginate(httpclient, clientUtil, httpRequestBase, context, response);
+			} else {
+				processResponse(response);
+			}
 
 			responseHandle = this.responseHandle;
-			if (responseHandle == ResponseHandle.LEAVE_OPEN) {
-				response.setHttpClient(httpclient);
-			}
 			return response;
 		} finally {
-			if (responseHandle != ResponseHandle.LEAVE_OPEN) {
-				if (httpclient != null) {
-					httpclient.close();
-				}
+			//the client is shared, closing the response gives the connection back to the pool
+			if ((responseHandle == ResponseHandle.STRING || responseHandle == ResponseHandle.KEEP_ON_NODE)
+					&& response != null) {
+				response.release();
+			} else if (responseHandle != ResponseHandle.LEAVE_OPEN && response != null) {
+				response.close();
 			}
 		}
 	}
 
-	private void configureTimeoutAndSsl(HttpClientBuilder clientBuilder) throws NoSuchAlgorithmException, KeyStoreException, KeyManagementException {
-		//timeout
-		if (timeout > 0) {
-			int t = timeout * 1000;
-			RequestConfig config = RequestConfig.custom()
-					.setSocketTimeout(t)
-					.setConnectTimeout(t)
-					.setConnectionRequestTimeout(t)
-					.build();
-			clientBuilder.setDefaultRequestConfig(config);
-		}
-		//Ignore SSL errors
-		if (ignoreSslErrors) {
-			SSLContext sc = SSLContext.getInstance("SSL");
-			sc.init(null, new TrustManager[]{new NoopTrustManager()}, new java.security.SecureRandom());
-			SSLConnectionSocketFactory sslsf = new SSLConnectionSocketFactory(sc, NoopHostnameVerifier.INSTANCE);
-			clientBuilder.setSSLSocketFactory(sslsf);
-		}
-	}
-
-	private CloseableHttpClient auth(
-			HttpClientBuilder clientBuilder, HttpRequestBase httpRequestBase,
+	private void auth(
+			CloseableHttpClient httpclient, HttpRequestBase httpRequestBase,
 			HttpContext context) throws IOException, InterruptedException {
 		if (authenticator == null) {
-			return clientBuilder.build();
+			return;
 		}
 
 		logger().println("Using authentication: " + authenticator.getKeyName());
-		return authenticator.authenticate(clientBuilder, context, httpRequestBase, logger());
+		authenticator.authenticate(httpclient, context, httpRequestBase, logger());
 	}
 
+	/**
+	 * Sends the request again, with the same client and pool, while it fails in a way the retry policy allows.
+	 */
 	private ResponseContentSupplier executeRequest(
 			CloseableHttpClient httpclient, HttpClientUtil clientUtil, HttpRequestBase httpRequestBase,
 			HttpContext context) throws IOException, InterruptedException {
-		ResponseContentSupplier responseContentSupplier;
-		try {
-			final HttpResponse response = clientUtil.execute(httpclient, context, httpRequestBase, logger());
-			// The HttpEntity is consumed by the ResponseContentSupplier
-			responseContentSupplier = new ResponseContentSupplier(responseHandle, response);
-		} catch (UnknownHostException uhe) {
-			logger().println("Treating UnknownHostException(" + uhe.getMessage() + ") as 404 Not Found");
-			responseContentSupplier = new ResponseContentSupplier("UnknownHostException as 404 Not Found", 404);
-		} catch (SocketTimeoutException | ConnectException ce) {
-			logger().println("Treating " + ce.getClass() + "(" + ce.getMessage() + ") as 408 Request Timeout");
-			responseContentSupplier = new ResponseContentSupplier(ce.getClass() + "(" + ce.getMessage() + ") as 408 Request Timeout", 408);
+		int maxAttempts = retryPolicy.getMaxAttempts();
+		for (int attempt = 1; ; attempt++) {
+			long start = System.nanoTime();
+			ResponseContentSupplier response;
+			try {
+				final HttpResponse httpResponse = send(httpclient, clientUtil, httpRequestBase, context);
+				// The HttpEntity is consumed by the ResponseContentSupplier
+				response = new ResponseContentSupplier(responseHandle, httpResponse, spillThreshold, memory());
+			} catch (IOException e) {
+				if (attempt < maxAttempts && retryPolicy.isRetryable(e) && !Thread.currentThread().isInterrupted()) {
+					retryAfter(attempt, start, e.toString(), httpRequestBase);
+					continue;
+				}
+				if (maxAttempts > 1) {
+					logAttempt(attempt, start, e.toString());
+				}
+				if (e instanceof UnknownHostException || e instanceof SocketTimeoutException || e instanceof ConnectException) {
+					return responseFromException(e);
+				}
+				throw e;
+			}
+
+			if (attempt < maxAttempts && retryPolicy.isRetryable(response.getStatus())) {
+				response.close();
+				retryAfter(attempt, start, "status " + response.getStatus(), httpRequestBase);
+				continue;
+			}
+			if (maxAttempts > 1) {
+				logAttempt(attempt, start, "status " + response.getStatus());
+			}
+			if (hedgePolicy.isEnabled()) {
+				logger().println("Hedged requests sent: " + hedges);
+				response.setHedges(hedges);
+			}
+			return response;
 		}
+	}
 
-		return responseContentSupplier;
+	/**
+	 * Follows the next pages with the same client, each page gives its connection back to the pool before the next
+	 * one is sent. The pages are merged as they arrive, into the output file or into the content of the response.
+	 */
+	private ResponseContentSupplier paginate(
+			CloseableHttpClient httpclient, HttpClientUtil clientUtil, HttpRequestBase firstRequest,
+			HttpContext context, ResponseContentSupplier firstPage) throws IOException, InterruptedException {
+		SpillOutputStream content = null;
+		OutputStream out;
+		if (outputFile != null) {
+			logger().println("Saving pages to " + outputFile);
+			out = outputFile.write();
+		} else {
+			out = content = new SpillOutputStream(spillThreshold, -1, memory());
+		}
+
+		ResponseContentSupplier page = firstPage;
+		String pageUrl = url;
+		int pages = 0;
+		boolean contentFound = validResponseContent.isEmpty();
+		try (PageMerger merger = new PageMerger(out)) {
+			while (true) {
+				pages++;
+				String pageContent = page.getContent();
+				if (consoleLogResponseBody && !consoleLogOnFailure) {
+					logBody("Page " + pages, pageContent);
+				}
+				try {
+					responseCodeIsValid(page);
+				} catch (AbortException e) {
+					if (consoleLogOnFailure) {
+						logFailedBody("Page " + pages, pageContent);
+					}
+					throw e;
+				}
+				contentFound = contentFound || pageContent != null && pageContent.contains(validResponseContent);
+				merger.append(pageContent);
+
+				String next = paginator.next(url, pageUrl, page.getHeaders(), pageContent, pages);
+				if (next == null || next.equals(pageUrl)) {
+					break;
+				}
+				if (!sameOrigin(url, next)) {
+					//the headers of the request, authentication included, are only sent where the first page was
+					logger().println("Pagination stopped after " + pages + " pages, the next page " + next +
+							" is not on the scheme, host and port of " + url);
+					break;
+				}
+				if (pages >= paginator.getMaxPages()) {
+					logger().println("Pagination stopped after " + pages + " pages, the max pages is reached");
+					break;
+				}
+				if (merger.getSize() >= paginator.getMaxSize()) {
+					logger().println("Pagination stopped after " + merger.getSize() + " bytes, the max size is reached");
+					break;
+				}
+
+				page.close();
+				logger().println("Following next page: " + next);
+				HttpRequestBase request = clientUtil.createRequestBase(
+						new RequestAction(new URL(next), httpMode, body, null, headers));
+				//the headers set by the authentication
+				request.setHeaders(firstRequest.getAllHeaders());
+				request.setConfig(firstRequest.getConfig());
+				pageUrl = next;
+				page = executeRequest(httpclient, clientUtil, request, context);
+			}
+		} finally {
+			page.close();
+		}
+
+		logger().println("Pages received: " + pages);
+		if (!contentFound) {
+			if (content != null && content.getFile() != null && !content.getFile().delete()) {
+				logger().println("Unable to delete " + content.getFile());
+			}
+			throw new AbortException("Fail: Response doesn't contain expected content '" + validResponseContent + "'");
+		}
+		FilePath contentFile = content != null && content.getFile() != null ? new FilePath(content.getFile()) : null;
+		if (contentFile != null) {
+			logger().println("Response body kept on disk: " + contentFile.getRemote());
+		}
+		return new ResponseContentSupplier(page, content != null ? content.toByteArray() : null, contentFile, pages);
+	}
+
+	private static boolean sameOrigin(String url, String other) throws MalformedURLException {
+		URL first = new URL(url);
+		URL second = new URL(other);
+		return first.getProtocol().equalsIgnoreCase(second.getProtocol())
+				&& first.getHost().equalsIgnoreCase(second.getHost())
+				&& (first.getPort() != -1 ? first.getPort() : first.getDefaultPort())
+				== (second.getPort() != -1 ? second.getPort() : second.getDefaultPort());
+	}
+
+	/**
+	 * Answers from the memory cache of this node when the request asks for it.
+	 */
+	private HttpResponse send(final CloseableHttpClient httpclient, final HttpClientUtil clientUtil,
+							  final HttpRequestBase httpRequestBase, final HttpContext context)
+			throws IOException, InterruptedException {
+		if (!memoryCache) {
+			return sendCached(httpclient, clientUtil, httpRequestBase, context);
+		}
+		MemoryResponseCache cache = MemoryResponseCache.get(memoryCacheSize, memoryCacheMaxEntrySize);
+		return cache.execute(httpRequestBase, authenticator != null ? authenticator.getKeyName() : null,
+				new RequestCoalescer.Upstream() {
+					@Override
+					public HttpResponse execute() throws IOException, InterruptedException {
+						return sendCached(httpclient, clientUtil, httpRequestBase, context);
+					}
+				}, logger());
+	}
+
+	/**
+	 * Answers from the disk cache of this node when it is enabled.
+	 */
+	private HttpResponse sendCached(final CloseableHttpClient httpclient, final HttpClientUtil clientUtil,
+									final HttpRequestBase httpRequestBase, final HttpContext context)
+			throws IOException, InterruptedException {
+		if (responseCacheDirectory == null) {
+			return sendCoalesced(httpclient, clientUtil, httpRequestBase, context);
+		}
+		DiskResponseCache cache = DiskResponseCache.get(new File(responseCacheDirectory), responseCacheSize);
+		return cache.execute(httpRequestBase, authenticator != null ? authenticator.getKeyName() : null,
+				new RequestCoalescer.Upstream() {
+					@Override
+					public HttpResponse execute() throws IOException, InterruptedException {
+						return sendCoalesced(httpclient, clientUtil, httpRequestBase, context);
+					}
+				}, logger());
+	}
+
+	/**
+	 * Waits for the response of an identical request in flight on this node when requests are coalesced.
+	 */
+	private HttpResponse sendCoalesced(final CloseableHttpClient httpclient, final HttpClientUtil clientUtil,
+									   final HttpRequestBase httpRequestBase, final HttpContext context)
+			throws IOException, InterruptedException {
+		if (!coalesce) {
+			return doSend(httpclient, clientUtil, httpRequestBase, context);
+		}
+		String key = RequestCoalescer.key(httpRequestBase, authenticator != null ? authenticator.getKeyName() : null);
+		return RequestCoalescer.execute(key, new RequestCoalescer.Upstream() {
+			@Override
+			public HttpResponse execute() throws IOException, InterruptedException {
+				return doSend(httpclient, clientUtil, httpRequestBase, context);
+			}
+		}, timeout, spillThreshold, logger());
+	}
+
+	/**
+	 * Sends duplicates of the request when it is hedged, to the same url or to the mirrors in turn.
+	 */
+	private HttpResponse doSend(CloseableHttpClient httpclient, HttpClientUtil clientUtil, HttpRequestBase httpRequestBase,
+								HttpContext context) throws IOException, InterruptedException {
+		if (!hedgePolicy.isEnabled()) {
+			return clientUtil.execute(httpclient, context, httpRequestBase, logger());
+		}
+		String host = httpRequestBase.getURI().getHost();
+		long delay = hedgePolicy.getDelay(host);
+		long start = System.nanoTime();
+		HttpResponse response;
+		if (delay == 0) {
+			//the response times of the host are not known yet
+			response = clientUtil.execute(httpclient, context, httpRequestBase, logger());
+		} else {
+			List<HttpRequestBase> duplicates = new ArrayList<>();
+			for (int i = 1; i <= hedgePolicy.getMaxHedges(); i++) {
+				HttpRequestBase duplicate = clientUtil.createRequestBase(
+						new RequestAction(new URL(hedgePolicy.getUrl(i, url)), httpMode, body, null, headers));
+				//the headers set by the authentication
+				duplicate.setHeaders(httpRequestBase.getAllHeaders());
+				duplicate.setConfig(httpRequestBase.getConfig());
+				duplicates.add(duplicate);
+			}
+			RequestHedger hedger = new RequestHedger(httpclient, context, logger());
+			try {
+				response = hedger.execute(httpRequestBase, duplicates, delay);
+			} finally {
+				hedges += hedger.getHedges();
+			}
+		}
+		if (hedgePolicy.isObservedDelay() && response.getStatusLine().getStatusCode() < 500) {
+			LatencyTracker.forHost(host).record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+		}
+		return response;
+	}
+
+	private void retryAfter(int attempt, long start, String outcome, HttpRequestBase httpRequestBase)
+			throws InterruptedException {
+		long delay = retryPolicy.backoff(attempt);
+		logAttempt(attempt, start, outcome + ", retrying in " + delay + " ms");
+		Thread.sleep(delay);
+		httpRequestBase.reset();
+	}
+
+	private void logAttempt(int attempt, long start, String outcome) {
+		logger().println("Attempt " + attempt + " of " + retryPolicy.getMaxAttempts() + ": " + outcome + " after " +
+				TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+	}
+
+	private ResponseContentSupplier responseFromException(IOException e) {
+		if (e instanceof UnknownHostException) {
+			logger().println("Treating UnknownHostException(" + e.getMessage() + ") as 404 Not Found");
+			return new ResponseContentSupplier("UnknownHostException as 404 Not Found", 404);
+		}
+		logger().println("Treating " + e.getClass() + "(" + e.getMessage() + ") as 408 Request Timeout");
+		return new ResponseContentSupplier(e.getClass() + "(" + e.getMessage() + ") as 408 Request Timeout", 408);
 	}
 
 	private void responseCodeIsValid(ResponseContentSupplier response) throws AbortException {
@@ -303,23 +925,42 @@ public class HttpRequestExecution extends MasterToSlaveCallable<ResponseContentS
 				return;
 			}
 		}
-		throw new AbortException("Fail: the returned code " + response.getStatus() + " is not in the accepted range: " + ranges);
+		throw new InvalidResponseCodeException(response.getStatus(),
+				"Fail: the returned code " + response.getStatus() + " is not in the accepted range: " + ranges);
 	}
 
 	private void processResponse(ResponseContentSupplier response) throws IOException, InterruptedException {
-		//logs
-		if (consoleLogResponseBody) {
-			logger().println("Response: \n" + response.getContent());
+		//a body larger than the spill threshold is read from its file without loading it
+		if (response.getContentFile() != null) {
+			logger().println("Response body kept on disk: " + response.getContentFile().getRemote());
+			processStream(response);
+			return;
+		}
+		if (responseHandle != ResponseHandle.STRING && response.getContentStream() != null) {
+			processStream(response);
+			return;
 		}
 
-		//validate status code
-		responseCodeIsValid(response);
+		//logs, only once the response is refused when failures only are logged
+		if (consoleLogResponseBody && !consoleLogOnFailure) {
+			logBody("Response", response.getContent());
+		}
 
-		//validate content
-		if (!validResponseContent.isEmpty()) {
-			if (!response.getContent().contains(validResponseContent)) {
-				throw new AbortException("Fail: Response doesn't contain expected content '" + validResponseContent + "'");
+		try {
+			//validate status code
+			responseCodeIsValid(response);
+
+			//validate content
+			if (!validResponseContent.isEmpty()) {
+				if (!response.getContent().contains(validResponseContent)) {
+					throw new AbortException("Fail: Response doesn't contain expected content '" + validResponseContent + "'");
+				}
+			}
+		} catch (AbortException e) {
+			if (consoleLogOnFailure) {
+				logFailedBody("Response", response.getContent());
 			}
+			throw e;
 		}
 
 		//save file
@@ -344,42 +985,121 @@ public class HttpRequestExecution extends MasterToSlaveCallable<ResponseContentS
 		}
 	}
 
-	private static class NoopTrustManager extends X509ExtendedTrustManager {
-
-		@Override
-		public void checkClientTrusted(X509Certificate[] arg0, String arg1)
-				throws CertificateException {
-		}
+	private void logBody(String title, String content) {
+		logger().println(title + ": \n" + ResponseBodyLog.abbreviate(content, consoleLogMaxSize));
+	}
 
-		@Override
-		public void checkServerTrusted(X509Certificate[] chain, String authType)
-				throws CertificateException {
+	/**
+	 * Logs the body of a refused response with the same bound as a streamed one, even without max size.
+	 */
+	private void logFailedBody(String title, String content) {
+		logger().println(title + ": \n" +
+				ResponseBodyLog.abbreviate(content, consoleLogMaxSize > 0 ? consoleLogMaxSize : FAILURE_LOG_SIZE));
+	}
 
+	/**
+	 * Reads the content once, without keeping it in memory: the status code is checked before, the content is
+	 * logged, checked and saved while it is read. The output file is deleted when the expected content is missing.
+	 * A body logged with a max size, or only on failure, is kept in a buffer of that size until the end.
+	 */
+	private void processStream(ResponseContentSupplier response) throws IOException, InterruptedException {
+		boolean logBody = consoleLogResponseBody || consoleLogOnFailure;
+		//validate status code, the content of a refused response is still logged
+		InvalidResponseCodeException invalidStatus = null;
+		try {
+			responseCodeIsValid(response);
+		} catch (InvalidResponseCodeException e) {
+			if (!logBody) {
+				throw e;
+			}
+			invalidStatus = e;
 		}
 
-		@Override
-		public X509Certificate[] getAcceptedIssuers() {
-			return null;
+		InputStream in = response.getContentStream();
+		Charset charset = Strings.isNullOrEmpty(response.getCharset()) ?
+				Charset.defaultCharset() : Charset.forName(response.getCharset());
+		ContentMatcher matcher = null;
+		ResponseBodyLog bodyLog = null;
+		if (logBody || !validResponseContent.isEmpty() || outputFile != null) {
+			List<OutputStream> sinks = new ArrayList<>();
+			if (consoleLogOnFailure || logBody && consoleLogMaxSize > 0) {
+				bodyLog = new ResponseBodyLog(consoleLogMaxSize > 0 ? consoleLogMaxSize : FAILURE_LOG_SIZE);
+				sinks.add(bodyLog);
+			} else if (logBody) {
+				logger().println("Response: ");
+				sinks.add(new WriterOutputStream(new OutputStreamWriter(
+						new CloseShieldOutputStream(logger()), StandardCharsets.UTF_8), charset));
+			}
+			if (!validResponseContent.isEmpty()) {
+				matcher = new ContentMatcher(validResponseContent, charset);
+				sinks.add(matcher);
+			}
+			if (outputFile != null && invalidStatus == null) {
+				logger().println("Saving response body to " + outputFile);
+				sinks.add(outputFile.write());
+			}
+			copy(in, sinks);
+			if (logBody && bodyLog == null) {
+				logger().println();
+			}
 		}
 
-		@Override
-		public void checkClientTrusted(X509Certificate[] chain, String authType, Socket socket)
-				throws CertificateException {
+		boolean contentMissing = !validResponseContent.isEmpty() && (matcher == null || !matcher.isFound());
+		if (bodyLog != null && (!consoleLogOnFailure || invalidStatus != null || contentMissing)) {
+			logger().println("Response: \n" + bodyLog.toString(charset));
+		}
+		if (invalidStatus != null) {
+			throw invalidStatus;
+		}
+		//validate content
+		if (contentMissing) {
+			if (outputFile != null) {
+				outputFile.delete();
+			}
+			throw new AbortException("Fail: Response doesn't contain expected content '" + validResponseContent + "'");
 		}
+	}
 
-		@Override
-		public void checkClientTrusted(X509Certificate[] chain, String authType, SSLEngine engine)
-				throws CertificateException {
+	private static void copy(InputStream in, List<OutputStream> sinks) throws IOException {
+		try {
+			byte[] buffer = new byte[8192];
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				for (OutputStream sink : sinks) {
+					sink.write(buffer, 0, read);
+				}
+			}
+		} finally {
+			in.close();
+			IOException failure = null;
+			for (OutputStream sink : sinks) {
+				try {
+					sink.close();
+				} catch (IOException e) {
+					failure = e;
+				}
+			}
+			if (failure != null) {
+				throw failure;
+			}
 		}
+	}
+
+	/**
+	 * Keeps the status of a response refused by the valid response codes, for the circuit breaker of the master.
+	 */
+	static final class InvalidResponseCodeException extends AbortException {
+		private static final long serialVersionUID = 4197316287052648912L;
+
+		private final int status;
 
-		@Override
-		public void checkServerTrusted(X509Certificate[] chain, String authType, Socket socket)
-				throws CertificateException {
+		InvalidResponseCodeException(int status, String message) {
+			super(message);
+			this.status = status;
 		}
 
-		@Override
-		public void checkServerTrusted(X509Certificate[] chain, String authType, SSLEngine engine)
-				throws CertificateException {
+		int getStatus() {
+			return status;
 		}
 	}
 }
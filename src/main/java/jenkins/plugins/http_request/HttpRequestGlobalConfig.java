@@ -2,10 +2,12 @@ package jenkins.plugins.http_request;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import net.sf.json.JSONObject;
 
+import org.kohsuke.stapler.QueryParameter;
 import org.kohsuke.stapler.StaplerRequest;
 
 import hudson.Extension;
@@ -13,6 +15,7 @@ import hudson.XmlFile;
 import hudson.init.InitMilestone;
 import hudson.init.Initializer;
 import hudson.util.FormValidation;
+import hudson.util.ListBoxModel;
 import hudson.util.XStream2;
 import jenkins.model.GlobalConfiguration;
 import jenkins.model.Jenkins;
@@ -20,6 +23,12 @@ import jenkins.model.Jenkins;
 import jenkins.plugins.http_request.auth.Authenticator;
 import jenkins.plugins.http_request.auth.BasicDigestAuthentication;
 import jenkins.plugins.http_request.auth.FormAuthentication;
+import jenkins.plugins.http_request.util.ConnectionPoolSettings;
+import jenkins.plugins.http_request.util.DnsSettings;
+import jenkins.plugins.http_request.util.HostAddressOverride;
+import jenkins.plugins.http_request.util.HostConcurrencyLimit;
+import jenkins.plugins.http_request.util.HostRateLimit;
+import jenkins.plugins.http_request.util.HostConnectionLimit;
 import jenkins.plugins.http_request.util.HttpRequestNameValuePair;
 
 /**
@@ -31,6 +40,34 @@ public class HttpRequestGlobalConfig extends GlobalConfiguration {
     private List<BasicDigestAuthentication> basicDigestAuthentications = new ArrayList<BasicDigestAuthentication>();
     private List<FormAuthentication> formAuthentications = new ArrayList<FormAuthentication>();
 
+    private int maxConnections = 200;
+    private int maxConnectionsPerRoute = 50;
+    private int connectionRequestTimeout = 60;
+    private int idleConnectionTimeout = 60;
+    private int keepAliveTimeout = 0;
+    private int connectAttemptDelay = 0;
+    private List<HostConnectionLimit> hostConnectionLimits = new ArrayList<HostConnectionLimit>();
+    private HttpTransport transport = HttpTransport.APACHE_HTTP_CLIENT;
+    private int dnsCacheTtl = 30;
+    private int dnsNegativeCacheTtl = 0;
+    private boolean dnsPrefetch = true;
+    private List<HostAddressOverride> hostAddressOverrides = new ArrayList<HostAddressOverride>();
+    private List<HostConcurrencyLimit> hostConcurrencyLimits = new ArrayList<HostConcurrencyLimit>();
+    private List<HostRateLimit> hostRateLimits = new ArrayList<HostRateLimit>();
+    private int circuitBreakerFailures = 0;
+    private int circuitBreakerErrorRate = 0;
+    private int circuitBreakerWindow = 20;
+    private int circuitBreakerOpenDuration = 30;
+    private int responseCacheSize = 0;
+    private int memoryCacheSize = 10;
+    private int memoryCacheMaxEntrySize = 64;
+    private int spillThreshold = 0;
+    private int spillMaxAge = 24;
+    private int responseMemoryBudget = 0;
+    private ResponseMemoryPolicy responseMemoryPolicy = ResponseMemoryPolicy.WAIT;
+    private int responseMemoryMaxWait = 60;
+    private int responseBlobThreshold = 0;
+
     private static final XStream2 XSTREAM2 = new XStream2();
 
     public HttpRequestGlobalConfig() {
@@ -100,6 +137,352 @@ public class HttpRequestGlobalConfig extends GlobalConfiguration {
         this.formAuthentications = formAuthentications;
     }
 
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public void setMaxConnections(int maxConnections) {
+        this.maxConnections = maxConnections;
+    }
+
+    public int getMaxConnectionsPerRoute() {
+        return maxConnectionsPerRoute;
+    }
+
+    public void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+        this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+    }
+
+    /**
+     * @return seconds a request without timeout waits at most for a connection of the pool
+     */
+    public int getConnectionRequestTimeout() {
+        return connectionRequestTimeout;
+    }
+
+    public void setConnectionRequestTimeout(int connectionRequestTimeout) {
+        this.connectionRequestTimeout = connectionRequestTimeout;
+    }
+
+    public int getIdleConnectionTimeout() {
+        return idleConnectionTimeout;
+    }
+
+    public void setIdleConnectionTimeout(int idleConnectionTimeout) {
+        this.idleConnectionTimeout = idleConnectionTimeout;
+    }
+
+    public int getKeepAliveTimeout() {
+        return keepAliveTimeout;
+    }
+
+    public void setKeepAliveTimeout(int keepAliveTimeout) {
+        this.keepAliveTimeout = keepAliveTimeout;
+    }
+
+    public int getConnectAttemptDelay() {
+        return connectAttemptDelay;
+    }
+
+    public void setConnectAttemptDelay(int connectAttemptDelay) {
+        this.connectAttemptDelay = connectAttemptDelay;
+    }
+
+    public List<HostConnectionLimit> getHostConnectionLimits() {
+        return hostConnectionLimits;
+    }
+
+    public void setHostConnectionLimits(List<HostConnectionLimit> hostConnectionLimits) {
+        this.hostConnectionLimits = hostConnectionLimits;
+    }
+
+    public int getDnsCacheTtl() {
+        return dnsCacheTtl;
+    }
+
+    public void setDnsCacheTtl(int dnsCacheTtl) {
+        this.dnsCacheTtl = dnsCacheTtl;
+    }
+
+    public int getDnsNegativeCacheTtl() {
+        return dnsNegativeCacheTtl;
+    }
+
+    public void setDnsNegativeCacheTtl(int dnsNegativeCacheTtl) {
+        this.dnsNegativeCacheTtl = dnsNegativeCacheTtl;
+    }
+
+    public boolean isDnsPrefetch() {
+        return dnsPrefetch;
+    }
+
+    public void setDnsPrefetch(boolean dnsPrefetch) {
+        this.dnsPrefetch = dnsPrefetch;
+    }
+
+    public List<HostAddressOverride> getHostAddressOverrides() {
+        return hostAddressOverrides;
+    }
+
+    public void setHostAddressOverrides(List<HostAddressOverride> hostAddressOverrides) {
+        this.hostAddressOverrides = hostAddressOverrides;
+    }
+
+    public List<HostConcurrencyLimit> getHostConcurrencyLimits() {
+        return hostConcurrencyLimits != null ? hostConcurrencyLimits : Collections.<HostConcurrencyLimit>emptyList();
+    }
+
+    public void setHostConcurrencyLimits(List<HostConcurrencyLimit> hostConcurrencyLimits) {
+        this.hostConcurrencyLimits = hostConcurrencyLimits;
+    }
+
+    public List<HostRateLimit> getHostRateLimits() {
+        return hostRateLimits != null ? hostRateLimits : Collections.<HostRateLimit>emptyList();
+    }
+
+    public void setHostRateLimits(List<HostRateLimit> hostRateLimits) {
+        this.hostRateLimits = hostRateLimits;
+    }
+
+    public int getCircuitBreakerFailures() {
+        return circuitBreakerFailures;
+    }
+
+    public void setCircuitBreakerFailures(int circuitBreakerFailures) {
+        this.circuitBreakerFailures = circuitBreakerFailures;
+    }
+
+    public int getCircuitBreakerErrorRate() {
+        return circuitBreakerErrorRate;
+    }
+
+    public void setCircuitBreakerErrorRate(int circuitBreakerErrorRate) {
+        this.circuitBreakerErrorRate = circuitBreakerErrorRate;
+    }
+
+    public int getCircuitBreakerWindow() {
+        return circuitBreakerWindow;
+    }
+
+    public void setCircuitBreakerWindow(int circuitBreakerWindow) {
+        this.circuitBreakerWindow = circuitBreakerWindow;
+    }
+
+    public int getCircuitBreakerOpenDuration() {
+        return circuitBreakerOpenDuration;
+    }
+
+    public void setCircuitBreakerOpenDuration(int circuitBreakerOpenDuration) {
+        this.circuitBreakerOpenDuration = circuitBreakerOpenDuration;
+    }
+
+    /**
+     * @return MB of responses kept on disk by each node, 0 disables the cache
+     */
+    public int getResponseCacheSize() {
+        return responseCacheSize;
+    }
+
+    public void setResponseCacheSize(int responseCacheSize) {
+        this.responseCacheSize = responseCacheSize;
+    }
+
+    /**
+     * @return MB of small responses kept in memory by each node, for the requests asking for it
+     */
+    public int getMemoryCacheSize() {
+        return memoryCacheSize;
+    }
+
+    public void setMemoryCacheSize(int memoryCacheSize) {
+        this.memoryCacheSize = memoryCacheSize;
+    }
+
+    /**
+     * @return KB of content of the largest response kept in memory
+     */
+    public int getMemoryCacheMaxEntrySize() {
+        return memoryCacheMaxEntrySize;
+    }
+
+    public void setMemoryCacheMaxEntrySize(int memoryCacheMaxEntrySize) {
+        this.memoryCacheMaxEntrySize = memoryCacheMaxEntrySize;
+    }
+
+    /**
+     * @return MB of a response kept as a string in memory, a larger one is kept in a temp file, 0 keeps all in memory
+     */
+    public int getSpillThreshold() {
+        return spillThreshold;
+    }
+
+    public void setSpillThreshold(int spillThreshold) {
+        this.spillThreshold = spillThreshold;
+    }
+
+    /**
+     * @return hours after which the temp files of the responses are deleted, 0 only deletes them on close
+     */
+    public int getSpillMaxAge() {
+        return spillMaxAge;
+    }
+
+    public void setSpillMaxAge(int spillMaxAge) {
+        this.spillMaxAge = spillMaxAge;
+    }
+
+    /**
+     * @return MB of responses buffered at the same time by the requests of each node, 0 does not limit them
+     */
+    public int getResponseMemoryBudget() {
+        return responseMemoryBudget;
+    }
+
+    public void setResponseMemoryBudget(int responseMemoryBudget) {
+        this.responseMemoryBudget = responseMemoryBudget;
+    }
+
+    public ResponseMemoryPolicy getResponseMemoryPolicy() {
+        return responseMemoryPolicy != null ? responseMemoryPolicy : ResponseMemoryPolicy.WAIT;
+    }
+
+    public void setResponseMemoryPolicy(ResponseMemoryPolicy responseMemoryPolicy) {
+        this.responseMemoryPolicy = responseMemoryPolicy;
+    }
+
+    /**
+     * @return seconds a request waits at most for the response memory budget with the WAIT policy
+     */
+    public int getResponseMemoryMaxWait() {
+        return responseMemoryMaxWait;
+    }
+
+    public void setResponseMemoryMaxWait(int responseMemoryMaxWait) {
+        this.responseMemoryMaxWait = responseMemoryMaxWait;
+    }
+
+    /**
+     * @return KB of a response returned to a Pipeline saved with its program, a larger one is kept in the build,
+     * 0 saves all with the program
+     */
+    public int getResponseBlobThreshold() {
+        return responseBlobThreshold;
+    }
+
+    public void setResponseBlobThreshold(int responseBlobThreshold) {
+        this.responseBlobThreshold = responseBlobThreshold;
+    }
+
+    public ConnectionPoolSettings getConnectionPoolSettings() {
+        DnsSettings dnsSettings = new DnsSettings(Math.max(0, dnsCacheTtl), Math.max(0, dnsNegativeCacheTtl), dnsPrefetch,
+                hostAddressOverrides != null ? hostAddressOverrides : Collections.<HostAddressOverride>emptyList());
+        return new ConnectionPoolSettings(Math.max(1, maxConnections), Math.max(1, maxConnectionsPerRoute),
+                Math.max(1, connectionRequestTimeout),
+                Math.max(0, idleConnectionTimeout), Math.max(0, keepAliveTimeout), Math.max(0, connectAttemptDelay),
+                hostConnectionLimits != null ? hostConnectionLimits : Collections.<HostConnectionLimit>emptyList(),
+                dnsSettings);
+    }
+
+    public HttpTransport getTransport() {
+        return transport != null && transport != HttpTransport.DEFAULT ? transport : HttpTransport.APACHE_HTTP_CLIENT;
+    }
+
+    public void setTransport(HttpTransport transport) {
+        this.transport = transport;
+    }
+
+    public ListBoxModel doFillTransportItems() {
+        return HttpTransport.getFillItems(false);
+    }
+
+    public ListBoxModel doFillResponseMemoryPolicyItems() {
+        return ResponseMemoryPolicy.getFillItems();
+    }
+
+    public FormValidation doCheckMaxConnections(@QueryParameter String value) {
+        return FormValidation.validatePositiveInteger(value);
+    }
+
+    public FormValidation doCheckMaxConnectionsPerRoute(@QueryParameter String value) {
+        return FormValidation.validatePositiveInteger(value);
+    }
+
+    public FormValidation doCheckConnectionRequestTimeout(@QueryParameter String value) {
+        return FormValidation.validatePositiveInteger(value);
+    }
+
+    public FormValidation doCheckIdleConnectionTimeout(@QueryParameter String value) {
+        return FormValidation.validateNonNegativeInteger(value);
+    }
+
+    public FormValidation doCheckKeepAliveTimeout(@QueryParameter String value) {
+        return FormValidation.validateNonNegativeInteger(value);
+    }
+
+    public FormValidation doCheckConnectAttemptDelay(@QueryParameter String value) {
+        return FormValidation.validateNonNegativeInteger(value);
+    }
+
+    public FormValidation doCheckCircuitBreakerFailures(@QueryParameter String value) {
+        return FormValidation.validateNonNegativeInteger(value);
+    }
+
+    public FormValidation doCheckCircuitBreakerErrorRate(@QueryParameter String value) {
+        FormValidation validation = FormValidation.validateNonNegativeInteger(value);
+        if (validation.kind == FormValidation.Kind.OK && Integer.parseInt(value) > 100) {
+            return FormValidation.error("The error rate is a percentage from 0 to 100");
+        }
+        return validation;
+    }
+
+    public FormValidation doCheckCircuitBreakerWindow(@QueryParameter String value) {
+        return FormValidation.validatePositiveInteger(value);
+    }
+
+    public FormValidation doCheckCircuitBreakerOpenDuration(@QueryParameter String value) {
+        return FormValidation.validateNonNegativeInteger(value);
+    }
+
+    public FormValidation doCheckResponseCacheSize(@QueryParameter String value) {
+        return FormValidation.validateNonNegativeInteger(value);
+    }
+
+    public FormValidation doCheckMemoryCacheSize(@QueryParameter String value) {
+        return FormValidation.validateNonNegativeInteger(value);
+    }
+
+    public FormValidation doCheckMemoryCacheMaxEntrySize(@QueryParameter String value) {
+        return FormValidation.validateNonNegativeInteger(value);
+    }
+
+    public FormValidation doCheckSpillThreshold(@QueryParameter String value) {
+        return FormValidation.validateNonNegativeInteger(value);
+    }
+
+    public FormValidation doCheckSpillMaxAge(@QueryParameter String value) {
+        return FormValidation.validateNonNegativeInteger(value);
+    }
+
+    public FormValidation doCheckResponseMemoryBudget(@QueryParameter String value) {
+        return FormValidation.validateNonNegativeInteger(value);
+    }
+
+    public FormValidation doCheckResponseMemoryMaxWait(@QueryParameter String value) {
+        return FormValidation.validateNonNegativeInteger(value);
+    }
+
+    public FormValidation doCheckResponseBlobThreshold(@QueryParameter String value) {
+        return FormValidation.validateNonNegativeInteger(value);
+    }
+
+    public FormValidation doCheckDnsCacheTtl(@QueryParameter String value) {
+        return FormValidation.validateNonNegativeInteger(value);
+    }
+
+    public FormValidation doCheckDnsNegativeCacheTtl(@QueryParameter String value) {
+        return FormValidation.validateNonNegativeInteger(value);
+    }
+
     public List<Authenticator> getAuthentications() {
         List<Authenticator> list = new ArrayList<Authenticator>();
         list.addAll(basicDigestAuthentications);
@@ -0,0 +1,98 @@
+package jenkins.plugins.http_request;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.kohsuke.stapler.HttpResponse;
+import org.kohsuke.stapler.HttpResponses;
+import org.kohsuke.stapler.QueryParameter;
+import org.kohsuke.stapler.interceptor.RequirePOST;
+
+import hudson.Extension;
+import hudson.model.ManagementLink;
+import jenkins.model.Jenkins;
+
+import jenkins.plugins.http_request.util.Bulkhead;
+import jenkins.plugins.http_request.util.Bulkheads;
+import jenkins.plugins.http_request.util.CircuitBreaker;
+import jenkins.plugins.http_request.util.CircuitBreakers;
+import jenkins.plugins.http_request.util.DiskResponseCache;
+import jenkins.plugins.http_request.util.MemoryResponseCache;
+import jenkins.plugins.http_request.util.RateLimiter;
+import jenkins.plugins.http_request.util.RateLimiters;
+import jenkins.plugins.http_request.util.ResponseCacheStatisticsMXBean;
+import jenkins.plugins.http_request.util.ResponseMemoryBudget;
+import jenkins.plugins.http_request.util.ResponseMemoryBudgetMXBean;
+
+/**
+ * Shows the state kept on the master for the hosts called: circuit breakers, concurrency and rate limits,
+ * the response caches and the response memory budget of the master.
+ */
+@Extension
+public class HttpRequestManagementLink extends ManagementLink {
+
+	@Override
+	public String getIconFileName() {
+		return "network.png";
+	}
+
+	@Override
+	public String getUrlName() {
+		return "http-request";
+	}
+
+	@Override
+	public String getDisplayName() {
+		return "HTTP Request";
+	}
+
+	@Override
+	public String getDescription() {
+		return "Circuit breakers, concurrency and rate limits of the hosts called by the httpRequest steps, response cache and memory.";
+	}
+
+	public List<CircuitBreaker> getCircuitBreakers() {
+		return CircuitBreakers.all();
+	}
+
+	public List<Bulkhead> getBulkheads() {
+		return Bulkheads.all();
+	}
+
+	public List<RateLimiter> getRateLimiters() {
+		return RateLimiters.all();
+	}
+
+	/**
+	 * @return the counters of the response caches of the master by name, agents publish theirs over JMX
+	 */
+	public Map<String, ResponseCacheStatisticsMXBean> getResponseCaches() {
+		Map<String, ResponseCacheStatisticsMXBean> caches = new LinkedHashMap<>();
+		if (DiskResponseCache.getStatistics() != null) {
+			caches.put("Disk", DiskResponseCache.getStatistics());
+		}
+		if (MemoryResponseCache.getStatistics() != null) {
+			caches.put("Memory", MemoryResponseCache.getStatistics());
+		}
+		return caches;
+	}
+
+	/**
+	 * @return the response memory budget of the master, null until a request used one, agents publish theirs over JMX
+	 */
+	public ResponseMemoryBudgetMXBean getResponseMemory() {
+		return ResponseMemoryBudget.getBudget();
+	}
+
+	@RequirePOST
+	public HttpResponse doResetCircuitBreaker(@QueryParameter String host) throws IOException {
+		Jenkins.getActiveInstance().checkPermission(Jenkins.ADMINISTER);
+		CircuitBreaker circuitBreaker = CircuitBreakers.get(host);
+		if (circuitBreaker != null) {
+			circuitBreaker.reset();
+		}
+		return HttpResponses.redirectToDot();
+	}
+}
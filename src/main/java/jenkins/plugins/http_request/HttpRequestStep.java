@@ -4,27 +4,43 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.annotation.Nonnull;
 import javax.inject.Inject;
 
+import org.acegisecurity.Authentication;
+import org.acegisecurity.context.SecurityContext;
+import org.acegisecurity.context.SecurityContextHolder;
+import org.apache.http.concurrent.FutureCallback;
 import org.jenkinsci.plugins.workflow.steps.AbstractStepDescriptorImpl;
+import org.jenkinsci.plugins.workflow.steps.AbstractStepExecutionImpl;
 import org.jenkinsci.plugins.workflow.steps.AbstractStepImpl;
-import org.jenkinsci.plugins.workflow.steps.AbstractSynchronousNonBlockingStepExecution;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
 import org.jenkinsci.plugins.workflow.steps.StepContextParameter;
 import org.kohsuke.stapler.AncestorInPath;
 import org.kohsuke.stapler.DataBoundConstructor;
 import org.kohsuke.stapler.DataBoundSetter;
 import org.kohsuke.stapler.QueryParameter;
 
+import hudson.AbortException;
 import hudson.Extension;
 import hudson.FilePath;
 import hudson.Launcher;
+import hudson.model.Computer;
 import hudson.model.Item;
+import hudson.model.Node;
 import hudson.model.Run;
 import hudson.model.TaskListener;
+import hudson.remoting.LocalChannel;
+import hudson.security.ACL;
+import hudson.util.DaemonThreadFactory;
 import hudson.util.FormValidation;
 import hudson.util.ListBoxModel;
+import hudson.util.NamingThreadFactory;
+import jenkins.model.Jenkins;
 
 import jenkins.plugins.http_request.util.HttpRequestNameValuePair;
 
@@ -43,12 +59,33 @@ public final class HttpRequestStep extends AbstractStepImpl {
     private MimeType contentType              = DescriptorImpl.contentType;
     private Integer timeout                   = DescriptorImpl.timeout;
     private Boolean consoleLogResponseBody    = DescriptorImpl.consoleLogResponseBody;
+	private int consoleLogResponseBodyMaxSize = DescriptorImpl.consoleLogResponseBodyMaxSize;
+	private boolean consoleLogResponseBodyOnFailure = DescriptorImpl.consoleLogResponseBodyOnFailure;
     private Boolean quiet                     = DescriptorImpl.quiet;
     private String authentication             = DescriptorImpl.authentication;
     private String requestBody                = DescriptorImpl.requestBody;
     private List<HttpRequestNameValuePair> customHeaders = DescriptorImpl.customHeaders;
 	private String outputFile = DescriptorImpl.outputFile;
 	private ResponseHandle responseHandle = DescriptorImpl.responseHandle;
+	private boolean async = DescriptorImpl.async;
+	private HttpTransport transport = DescriptorImpl.transport;
+	private int maxAttempts = DescriptorImpl.maxAttempts;
+	private int retryBackoff = DescriptorImpl.retryBackoff;
+	private int retryBackoffCap = DescriptorImpl.retryBackoffCap;
+	private String retryResponseCodes = DescriptorImpl.retryResponseCodes;
+	private String retryExceptions = DescriptorImpl.retryExceptions;
+	private boolean retryNonIdempotent = DescriptorImpl.retryNonIdempotent;
+	private int hedgeDelay = DescriptorImpl.hedgeDelay;
+	private boolean hedgeDelayObserved = DescriptorImpl.hedgeDelayObserved;
+	private int maxHedges = DescriptorImpl.maxHedges;
+	private String hedgeUrls = DescriptorImpl.hedgeUrls;
+	private boolean coalesce = DescriptorImpl.coalesce;
+	private boolean memoryCache = DescriptorImpl.memoryCache;
+	private Pagination pagination = DescriptorImpl.pagination;
+	private String paginationParameter = DescriptorImpl.paginationParameter;
+	private String paginationCursorField = DescriptorImpl.paginationCursorField;
+	private int paginationMaxPages = DescriptorImpl.paginationMaxPages;
+	private int paginationMaxSize = DescriptorImpl.paginationMaxSize;
 
     @DataBoundConstructor
     public HttpRequestStep(String url) {
@@ -140,6 +177,24 @@ public final class HttpRequestStep extends AbstractStepImpl {
         return consoleLogResponseBody;
     }
 
+	public int getConsoleLogResponseBodyMaxSize() {
+		return consoleLogResponseBodyMaxSize;
+	}
+
+	@DataBoundSetter
+	public void setConsoleLogResponseBodyMaxSize(int consoleLogResponseBodyMaxSize) {
+		this.consoleLogResponseBodyMaxSize = consoleLogResponseBodyMaxSize;
+	}
+
+	public boolean isConsoleLogResponseBodyOnFailure() {
+		return consoleLogResponseBodyOnFailure;
+	}
+
+	@DataBoundSetter
+	public void setConsoleLogResponseBodyOnFailure(boolean consoleLogResponseBodyOnFailure) {
+		this.consoleLogResponseBodyOnFailure = consoleLogResponseBodyOnFailure;
+	}
+
     @DataBoundSetter
     public void setQuiet(Boolean quiet) {
         this.quiet = quiet;
@@ -195,6 +250,177 @@ public final class HttpRequestStep extends AbstractStepImpl {
 		this.responseHandle = responseHandle;
 	}
 
+	public boolean isAsync() {
+		return async;
+	}
+
+	@DataBoundSetter
+	public void setAsync(boolean async) {
+		this.async = async;
+	}
+
+	public HttpTransport getTransport() {
+		return transport;
+	}
+
+	@DataBoundSetter
+	public void setTransport(HttpTransport transport) {
+		this.transport = transport;
+	}
+
+	public int getMaxAttempts() {
+		return maxAttempts;
+	}
+
+	@DataBoundSetter
+	public void setMaxAttempts(int maxAttempts) {
+		this.maxAttempts = maxAttempts;
+	}
+
+	public int getRetryBackoff() {
+		return retryBackoff;
+	}
+
+	@DataBoundSetter
+	public void setRetryBackoff(int retryBackoff) {
+		this.retryBackoff = retryBackoff;
+	}
+
+	public int getRetryBackoffCap() {
+		return retryBackoffCap;
+	}
+
+	@DataBoundSetter
+	public void setRetryBackoffCap(int retryBackoffCap) {
+		this.retryBackoffCap = retryBackoffCap;
+	}
+
+	public String getRetryResponseCodes() {
+		return retryResponseCodes;
+	}
+
+	@DataBoundSetter
+	public void setRetryResponseCodes(String retryResponseCodes) {
+		this.retryResponseCodes = retryResponseCodes;
+	}
+
+	public String getRetryExceptions() {
+		return retryExceptions;
+	}
+
+	@DataBoundSetter
+	public void setRetryExceptions(String retryExceptions) {
+		this.retryExceptions = retryExceptions;
+	}
+
+	public boolean isRetryNonIdempotent() {
+		return retryNonIdempotent;
+	}
+
+	@DataBoundSetter
+	public void setRetryNonIdempotent(boolean retryNonIdempotent) {
+		this.retryNonIdempotent = retryNonIdempotent;
+	}
+
+	public int getHedgeDelay() {
+		return hedgeDelay;
+	}
+
+	@DataBoundSetter
+	public void setHedgeDelay(int hedgeDelay) {
+		this.hedgeDelay = hedgeDelay;
+	}
+
+	public boolean isHedgeDelayObserved() {
+		return hedgeDelayObserved;
+	}
+
+	@DataBoundSetter
+	public void setHedgeDelayObserved(boolean hedgeDelayObserved) {
+		this.hedgeDelayObserved = hedgeDelayObserved;
+	}
+
+	public int getMaxHedges() {
+		return maxHedges;
+	}
+
+	@DataBoundSetter
+	public void setMaxHedges(int maxHedges) {
+		this.maxHedges = maxHedges;
+	}
+
+	public String getHedgeUrls() {
+		return hedgeUrls;
+	}
+
+	@DataBoundSetter
+	public void setHedgeUrls(String hedgeUrls) {
+		this.hedgeUrls = hedgeUrls;
+	}
+
+	public boolean isCoalesce() {
+		return coalesce;
+	}
+
+	@DataBoundSetter
+	public void setCoalesce(boolean coalesce) {
+		this.coalesce = coalesce;
+	}
+
+	public boolean isMemoryCache() {
+		return memoryCache;
+	}
+
+	@DataBoundSetter
+	public void setMemoryCache(boolean memoryCache) {
+		this.memoryCache = memoryCache;
+	}
+
+	public Pagination getPagination() {
+		return pagination;
+	}
+
+	@DataBoundSetter
+	public void setPagination(Pagination pagination) {
+		this.pagination = pagination;
+	}
+
+	public String getPaginationParameter() {
+		return paginationParameter;
+	}
+
+	@DataBoundSetter
+	public void setPaginationParameter(String paginationParameter) {
+		this.paginationParameter = paginationParameter;
+	}
+
+	public String getPaginationCursorField() {
+		return paginationCursorField;
+	}
+
+	@DataBoundSetter
+	public void setPaginationCursorField(String paginationCursorField) {
+		this.paginationCursorField = paginationCursorField;
+	}
+
+	public int getPaginationMaxPages() {
+		return paginationMaxPages;
+	}
+
+	@DataBoundSetter
+	public void setPaginationMaxPages(int paginationMaxPages) {
+		this.paginationMaxPages = paginationMaxPages;
+	}
+
+	public int getPaginationMaxSize() {
+		return paginationMaxSize;
+	}
+
+	@DataBoundSetter
+	public void setPaginationMaxSize(int paginationMaxSize) {
+		this.paginationMaxSize = paginationMaxSize;
+	}
+
 	@Override
     public DescriptorImpl getDescriptor() {
         return (DescriptorImpl) super.getDescriptor();
@@ -219,6 +445,57 @@ public final class HttpRequestStep extends AbstractStepImpl {
 		return headers;
 	}
 
+	FilePath resolveOutputFile(StepContext context) {
+		if (outputFile == null || outputFile.trim().isEmpty()) {
+			return null;
+		}
+
+		try {
+			FilePath workspace = context.get(FilePath.class);
+			if (workspace == null) {
+				throw new IllegalStateException("Could not find workspace to save file outputFile: " + outputFile +
+						". You should use it inside a 'node' block");
+			}
+			return workspace.child(outputFile);
+		} catch (IOException | InterruptedException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * @return the root directory of the node of the enclosing 'node' block, of the master outside of it
+	 */
+	static FilePath resolveNodeRoot(StepContext context) {
+		try {
+			Computer computer = context.get(Computer.class);
+			Node node = computer != null ? computer.getNode() : Jenkins.getInstance();
+			return node != null ? node.getRootPath() : null;
+		} catch (IOException | InterruptedException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	static Item resolveProject(StepContext context) {
+		try {
+			Run<?, ?> run = context.get(Run.class);
+			return run != null ? run.getParent() : null;
+		} catch (IOException | InterruptedException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Keeps a large content in the build, the response is saved with the Pipeline program once returned to it.
+	 */
+	static ResponseContentSupplier keepInBuild(ResponseContentSupplier response, StepContext context)
+			throws IOException, InterruptedException {
+		Run<?, ?> run = context.get(Run.class);
+		if (run != null) {
+			response.keepInBuild(run, Math.max(0, HttpRequestGlobalConfig.get().getResponseBlobThreshold()) * 1024L);
+		}
+		return response;
+	}
+
 	@Extension
     public static final class DescriptorImpl extends AbstractStepDescriptorImpl {
         public static final boolean ignoreSslErrors = HttpRequest.DescriptorImpl.ignoreSslErrors;
@@ -230,12 +507,33 @@ public final class HttpRequestStep extends AbstractStepImpl {
         public static final MimeType contentType               = HttpRequest.DescriptorImpl.contentType;
         public static final int      timeout                   = HttpRequest.DescriptorImpl.timeout;
         public static final Boolean  consoleLogResponseBody    = HttpRequest.DescriptorImpl.consoleLogResponseBody;
+		public static final int consoleLogResponseBodyMaxSize = HttpRequest.DescriptorImpl.consoleLogResponseBodyMaxSize;
+		public static final boolean consoleLogResponseBodyOnFailure = HttpRequest.DescriptorImpl.consoleLogResponseBodyOnFailure;
         public static final Boolean  quiet                     = HttpRequest.DescriptorImpl.quiet;
         public static final String   authentication            = HttpRequest.DescriptorImpl.authentication;
         public static final String   requestBody               = HttpRequest.DescriptorImpl.requestBody;
         public static final List <HttpRequestNameValuePair> customHeaders = Collections.<HttpRequestNameValuePair>emptyList();
         public static final String outputFile = "";
 		public static final ResponseHandle responseHandle = ResponseHandle.STRING;
+		public static final boolean async = false;
+		public static final HttpTransport transport = HttpTransport.DEFAULT;
+		public static final int maxAttempts = HttpRequest.DescriptorImpl.maxAttempts;
+		public static final int retryBackoff = HttpRequest.DescriptorImpl.retryBackoff;
+		public static final int retryBackoffCap = HttpRequest.DescriptorImpl.retryBackoffCap;
+		public static final String retryResponseCodes = HttpRequest.DescriptorImpl.retryResponseCodes;
+		public static final String retryExceptions = HttpRequest.DescriptorImpl.retryExceptions;
+		public static final boolean retryNonIdempotent = HttpRequest.DescriptorImpl.retryNonIdempotent;
+		public static final int hedgeDelay = 0;
+		public static final boolean hedgeDelayObserved = false;
+		public static final int maxHedges = 1;
+		public static final String hedgeUrls = "";
+		public static final boolean coalesce = HttpRequest.DescriptorImpl.coalesce;
+		public static final boolean memoryCache = false;
+		public static final Pagination pagination = Pagination.NONE;
+		public static final String paginationParameter = "";
+		public static final String paginationCursorField = "";
+		public static final int paginationMaxPages = 100;
+		public static final int paginationMaxSize = 10;
 
         public DescriptorImpl() {
             super(Execution.class);
@@ -271,6 +569,10 @@ public final class HttpRequestStep extends AbstractStepImpl {
 			return items;
 		}
 
+		public ListBoxModel doFillTransportItems() {
+			return HttpTransport.getFillItems(true);
+		}
+
         public ListBoxModel doFillAuthenticationItems(@AncestorInPath Item project,
 													  @QueryParameter String url) {
             return HttpRequest.DescriptorImpl.fillAuthenticationItems(project, url);
@@ -280,54 +582,175 @@ public final class HttpRequestStep extends AbstractStepImpl {
             return HttpRequest.DescriptorImpl.checkValidResponseCodes(value);
         }
 
+        public FormValidation doCheckRetryResponseCodes(@QueryParameter String value) {
+            return HttpRequest.DescriptorImpl.checkValidResponseCodes(value);
+        }
+
+        public FormValidation doCheckMaxAttempts(@QueryParameter String value) {
+            return HttpRequest.DescriptorImpl.checkMaxAttempts(value);
+        }
+
+        public FormValidation doCheckConsoleLogResponseBodyMaxSize(@QueryParameter String value) {
+            return FormValidation.validateNonNegativeInteger(value);
+        }
+
+        public FormValidation doCheckHedgeDelay(@QueryParameter String value) {
+            return FormValidation.validateNonNegativeInteger(value);
+        }
+
+        public FormValidation doCheckMaxHedges(@QueryParameter String value) {
+            return FormValidation.validatePositiveInteger(value);
+        }
+
+		public ListBoxModel doFillPaginationItems() {
+			return Pagination.getFillItems();
+		}
+
+        public FormValidation doCheckPaginationMaxPages(@QueryParameter String value) {
+            return FormValidation.validatePositiveInteger(value);
+        }
+
+        public FormValidation doCheckPaginationMaxSize(@QueryParameter String value) {
+            return FormValidation.validatePositiveInteger(value);
+        }
+
     }
 
-    public static final class Execution extends AbstractSynchronousNonBlockingStepExecution<ResponseContentSupplier> {
+    public static final class Execution extends AbstractStepExecutionImpl {
 
         @Inject
         private transient HttpRequestStep step;
 
-		@StepContextParameter
-		private transient Run<?, ?> run;
 		@StepContextParameter
 		private transient TaskListener listener;
 
+		private transient volatile Future<?> task;
+		private transient boolean done;
+
+		private static ExecutorService executorService;
+
 		@Override
-		protected ResponseContentSupplier run() throws Exception {
+		public boolean start() throws Exception {
+			if (step.isAsync()) {
+				TaskListener stepListener = step.getQuiet() ? TaskListener.NULL : listener;
+				Launcher launcher = getContext().get(Launcher.class);
+				HttpRequestExecution exec = HttpRequestExecution.from(step, stepListener, getContext());
+				if (launcher != null && !(launcher.getChannel() instanceof LocalChannel)) {
+					//the traffic keeps coming from the agent, as its firewall and proxy expect
+					stepListener.getLogger().println("Sending the request from the agent, async requests are only sent from the master");
+				} else if (exec.canCallAsync()) {
+					Future<?> asyncTask = exec.callAsync(new FutureCallback<ResponseContentSupplier>() {
+						@Override
+						public void completed(final ResponseContentSupplier response) {
+							//off the thread of the client, the content may be written to the build
+							getExecutorService().submit(new Runnable() {
+								@Override
+								public void run() {
+									try {
+										succeed(keepInBuild(response, getContext()));
+									} catch (Throwable e) {
+										fail(e);
+									}
+								}
+							});
+						}
+
+						@Override
+						public void failed(Exception ex) {
+							fail(ex);
+						}
+
+						@Override
+						public void cancelled() {
+							fail(new AbortException("Request cancelled"));
+						}
+					});
+					//without its turn now the request waits on the blocking path, see the limits of the global configuration
+					if (asyncTask != null) {
+						task = asyncTask;
+						return false;
+					}
+				}
+			}
+
+			final Authentication auth = Jenkins.getAuthentication();
+			task = getExecutorService().submit(new Runnable() {
+				@Override
+				public void run() {
+					SecurityContext context = ACL.impersonate(auth);
+					try {
+						succeed(Execution.this.run());
+					} catch (Throwable e) {
+						fail(e);
+					} finally {
+						SecurityContextHolder.setContext(context);
+					}
+				}
+			});
+			return false;
+		}
+
+		private ResponseContentSupplier run() throws Exception {
 			HttpRequestExecution exec = HttpRequestExecution.from(step,
 					step.getQuiet() ? TaskListener.NULL : listener,
-					this);
+					getContext());
 
 			Launcher launcher = getContext().get(Launcher.class);
-			if (launcher != null) {
-				return launcher.getChannel().call(exec);
+			return keepInBuild(exec.dispatch(launcher != null ? launcher.getChannel() : null), getContext());
+		}
+
+		@Override
+		public void stop(Throwable cause) throws Exception {
+			Future<?> task = this.task;
+			if (task != null) {
+				task.cancel(true);
 			}
+			fail(cause);
+		}
 
-			return exec.call();
+		/**
+		 * The context is completed once, by the request or by stop, whichever comes first.
+		 */
+		private synchronized boolean complete() {
+			if (done) {
+				return false;
+			}
+			done = true;
+			return true;
 		}
 
-        private static final long serialVersionUID = 1L;
+		private void succeed(ResponseContentSupplier response) throws IOException {
+			if (complete()) {
+				getContext().onSuccess(response);
+			} else {
+				//stopped meanwhile, nobody reads it
+				response.close();
+			}
+		}
 
-		FilePath resolveOutputFile() {
-			String outputFile = step.getOutputFile();
-			if (outputFile == null || outputFile.trim().isEmpty()) {
-				return null;
+		private void fail(Throwable cause) {
+			if (complete()) {
+				getContext().onFailure(cause);
 			}
+		}
 
-			try {
-				FilePath workspace = getContext().get(FilePath.class);
-				if (workspace == null) {
-					throw new IllegalStateException("Could not find workspace to save file outputFile: " + outputFile +
-							". You should use it inside a 'node' block");
-				}
-				return workspace.child(outputFile);
-			} catch (IOException | InterruptedException e) {
-				throw new IllegalStateException(e);
+		@Override
+		public void onResume() {
+			getContext().onFailure(new Exception("Resume after a restart not supported for httpRequest"));
+		}
+
+		private static synchronized ExecutorService getExecutorService() {
+			if (executorService == null) {
+				executorService = Executors.newCachedThreadPool(
+						new NamingThreadFactory(new DaemonThreadFactory(), "HttpRequestStep.Execution"));
 			}
+			return executorService;
 		}
 
+        private static final long serialVersionUID = 1L;
+
 		public Item getProject() {
-			return run.getParent();
+			return resolveProject(getContext());
 		}
 	}
 }
@@ -0,0 +1,31 @@
+package jenkins.plugins.http_request;
+
+import hudson.util.ListBoxModel;
+
+/**
+ * Engine used to send the requests.
+ */
+public enum HttpTransport {
+	/**
+	 * The transport chosen in the global configuration
+	 */
+	DEFAULT,
+	/**
+	 * Apache HttpClient with the pooled connections of the node
+	 */
+	APACHE_HTTP_CLIENT,
+	/**
+	 * The {@link java.net.HttpURLConnection} of the JDK, its connections are kept alive by the JVM
+	 */
+	URL_CONNECTION;
+
+	public static ListBoxModel getFillItems(boolean withDefault) {
+		ListBoxModel items = new ListBoxModel();
+		for (HttpTransport transport : values()) {
+			if (withDefault || transport != DEFAULT) {
+				items.add(transport.name());
+			}
+		}
+		return items;
+	}
+}
@@ -0,0 +1,33 @@
+package jenkins.plugins.http_request;
+
+import hudson.util.ListBoxModel;
+
+/**
+ * How the next page of a paginated response is found.
+ */
+public enum Pagination {
+	/**
+	 * Only the first page is requested
+	 */
+	NONE,
+	/**
+	 * The url of the Link header with rel="next", RFC 8288
+	 */
+	LINK_HEADER,
+	/**
+	 * A field of the JSON page holding the cursor, sent back as a query parameter
+	 */
+	CURSOR,
+	/**
+	 * A query parameter incremented for each page, until an empty page
+	 */
+	PAGE_NUMBER;
+
+	public static ListBoxModel getFillItems() {
+		ListBoxModel items = new ListBoxModel();
+		for (Pagination pagination : values()) {
+			items.add(pagination.name());
+		}
+		return items;
+	}
+}
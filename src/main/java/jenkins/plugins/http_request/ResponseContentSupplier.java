@@ -1,12 +1,20 @@
 package jenkins.plugins.http_request;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
 import java.io.Serializable;
+import java.lang.ref.SoftReference;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -15,14 +23,18 @@ import org.apache.http.Header;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
 import org.apache.http.entity.ContentType;
-import org.apache.http.impl.client.CloseableHttpClient;
 import org.jenkinsci.plugins.scriptsecurity.sandbox.whitelists.Whitelisted;
 
 import com.google.common.base.Strings;
 import com.google.common.io.ByteStreams;
-import com.google.common.io.CharStreams;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import hudson.FilePath;
+import hudson.model.Run;
+import jenkins.plugins.http_request.util.ContentOperations;
+import jenkins.plugins.http_request.util.ResponseBlobs;
+import jenkins.plugins.http_request.util.ResponseMemoryBudget;
+import jenkins.plugins.http_request.util.SpillOutputStream;
 
 /**
  * @author Martin d'Anjou
@@ -32,26 +44,75 @@ import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 class ResponseContentSupplier implements Serializable, AutoCloseable {
 
 	private static final long serialVersionUID = 1L;
+	private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
 
 	private int status;
 	private Map<String, List<String>> headers = new HashMap<>();
 	private String charset;
+	private int hedges;
+	private int pages;
 
 	private ResponseHandle responseHandle;
 	private String content;
+	private byte[] contentBytes;
+	/**
+	 * A body larger than the spill threshold stays in a temp file of the node which received it, each stream
+	 * reads the file again.
+	 */
+	private FilePath contentFile;
+	/**
+	 * A large body returned to a Pipeline is kept in its build, only the build and the hash of the body are saved
+	 * with the program, the body is read again when asked for.
+	 */
+	private String blobRun;
+	private String blobHash;
+	@SuppressFBWarnings("SE_TRANSIENT_FIELD_NOT_RESTORED")
+	private transient SoftReference<byte[]> blobContent;
+	/**
+	 * The body is kept once, as bytes: the text is decoded when asked for and kept as long as the memory allows it.
+	 */
+	@SuppressFBWarnings("SE_TRANSIENT_FIELD_NOT_RESTORED")
+	private transient SoftReference<String> decodedContent;
 	@SuppressFBWarnings("SE_TRANSIENT_FIELD_NOT_RESTORED")
 	private transient InputStream contentStream;
 	@SuppressFBWarnings("SE_TRANSIENT_FIELD_NOT_RESTORED")
-	private transient CloseableHttpClient httpclient;
+	private transient Closeable response;
 
 	public ResponseContentSupplier(String content, int status) {
 		this.content = content;
 		this.status = status;
 	}
 
+	/**
+	 * The pages of a paginated response merged into one content, with the status and headers of the last page.
+	 */
+	ResponseContentSupplier(ResponseContentSupplier lastPage, byte[] content, FilePath contentFile, int pages) {
+		this.status = lastPage.status;
+		this.headers = lastPage.headers;
+		this.charset = content != null || contentFile != null ? StandardCharsets.UTF_8.name() : lastPage.charset;
+		this.responseHandle = ResponseHandle.STRING;
+		this.contentBytes = content;
+		this.contentFile = contentFile;
+		this.contentStream = content != null ? new ByteArrayInputStream(content) : null;
+		this.pages = pages;
+	}
+
 	public ResponseContentSupplier(ResponseHandle responseHandle, HttpResponse response) {
+		this(responseHandle, response, 0, null);
+	}
+
+	/**
+	 * @param spillThreshold bytes of a body kept as a string in memory, a larger body is kept in a temp file,
+	 *                       0 keeps every body in memory
+	 * @param memory         memory of the request in the response memory budget of the node, null without budget
+	 */
+	ResponseContentSupplier(ResponseHandle responseHandle, HttpResponse response, long spillThreshold,
+							ResponseMemoryBudget.Reservation memory) {
 		this.status = response.getStatusLine().getStatusCode();
 		this.responseHandle = responseHandle;
+		if (response instanceof Closeable) {
+			this.response = (Closeable) response;
+		}
 		readHeaders(response);
 		readCharset(response);
 
@@ -60,10 +121,21 @@ class ResponseContentSupplier implements Serializable, AutoCloseable {
 			InputStream entityContent = entity != null ? entity.getContent() : null;
 
 			if (responseHandle == ResponseHandle.STRING && entityContent != null) {
-				byte[] bytes = ByteStreams.toByteArray(entityContent);
-				contentStream = new ByteArrayInputStream(bytes);
-				content = new String(bytes, Strings.isNullOrEmpty(charset) ?
-						Charset.defaultCharset().name() : charset);
+				try (InputStream in = entityContent) {
+					long length = entity.getContentLength();
+					if (memory != null || spillThreshold > 0 && (length < 0 || length > spillThreshold)) {
+						spill(in, length, spillThreshold, memory);
+					} else {
+						contentBytes = readBytes(in, length);
+					}
+				}
+				if (contentBytes != null) {
+					contentStream = new ByteArrayInputStream(contentBytes);
+				}
+			} else if (responseHandle == ResponseHandle.KEEP_ON_NODE && entityContent != null) {
+				try (InputStream in = entityContent) {
+					keep(in);
+				}
 			} else {
 				contentStream = entityContent;
 			}
@@ -89,17 +161,55 @@ class ResponseContentSupplier implements Serializable, AutoCloseable {
 
 	@Whitelisted
 	public String getContent() {
-		if (responseHandle == ResponseHandle.STRING) {
+		if (content != null) {
 			return content;
 		}
+		String decoded = decodedContent != null ? decodedContent.get() : null;
+		if (decoded != null) {
+			return decoded;
+		}
+		//the bytes of a kept body are not cached along with its text
+		byte[] bytes = blobHash != null ? readBlob() : getContentBytes();
+		if (bytes == null) {
+			return null;
+		}
+
+		//decoded without the intermediate char buffer a CharsetDecoder would add to the peak
+		decoded = new String(bytes, charset());
+		decodedContent = new SoftReference<>(decoded);
+		return decoded;
+	}
+
+	/**
+	 * @return the body as received, without decoding it, null without body
+	 */
+	@Whitelisted
+	public byte[] getContentBytes() {
+		if (blobHash != null) {
+			byte[] bytes = readBlob();
+			blobContent = new SoftReference<>(bytes);
+			return bytes;
+		}
+		if (contentFile != null) {
+			try (InputStream in = contentFile.read()) {
+				return ByteStreams.toByteArray(in);
+			} catch (IOException | InterruptedException e) {
+				throw new IllegalStateException("Error reading response from " + contentFile, e);
+			}
+		}
+		if (contentBytes != null || responseHandle == ResponseHandle.STRING) {
+			return contentBytes;
+		}
 		if (content != null) {
-			return content;
+			return content.getBytes(charset());
+		}
+		if (contentStream == null) {
+			return null;
 		}
 
-		try (InputStreamReader in = new InputStreamReader(contentStream,
-				Strings.isNullOrEmpty(charset) ? Charset.defaultCharset().name() : charset)) {
-			content = CharStreams.toString(in);
-			return content;
+		try (InputStream in = contentStream) {
+			contentBytes = readBytes(in, -1);
+			return contentBytes;
 		} catch (IOException e) {
 			throw new IllegalStateException("Error reading response. " +
 					"If you are reading the content in pipeline you should pass responseHandle: 'LEAVE_OPEN' and " +
@@ -109,9 +219,246 @@ class ResponseContentSupplier implements Serializable, AutoCloseable {
 
 	@Whitelisted
 	public InputStream getContentStream() {
+		if (blobHash != null) {
+			try {
+				return new FileInputStream(blobFile());
+			} catch (IOException e) {
+				throw new IllegalStateException("Error reading response from " + blobFile(), e);
+			}
+		}
+		if (contentFile != null) {
+			try {
+				return contentFile.read();
+			} catch (IOException | InterruptedException e) {
+				throw new IllegalStateException("Error reading response from " + contentFile, e);
+			}
+		}
+		if (contentStream == null && contentBytes != null) {
+			//the stream does not survive the remoting call which brings the response back
+			contentStream = new ByteArrayInputStream(contentBytes);
+		}
 		return contentStream;
 	}
 
+	/**
+	 * @return duplicates of the request sent because it took too long to answer
+	 */
+	@Whitelisted
+	public int getHedges() {
+		return hedges;
+	}
+
+	void setHedges(int hedges) {
+		this.hedges = hedges;
+	}
+
+	/**
+	 * @return pages merged into the content of a paginated response, 0 without pagination
+	 */
+	@Whitelisted
+	public int getPages() {
+		return pages;
+	}
+
+	/**
+	 * Hashes the content where it is, on the node which keeps it in a file.
+	 *
+	 * @param algorithm a MessageDigest algorithm, such as SHA-256
+	 * @return the hexadecimal digest, null without content
+	 */
+	@Whitelisted
+	public String getContentHash(String algorithm) {
+		if (blobHash != null && "SHA-256".equalsIgnoreCase(algorithm)) {
+			return blobHash;
+		}
+		try {
+			if (contentFile != null) {
+				return contentFile.act(new ContentOperations.Hash(algorithm));
+			}
+			byte[] bytes = getContentBytes();
+			return bytes != null ? ContentOperations.hash(new ByteArrayInputStream(bytes), algorithm) : null;
+		} catch (IOException | InterruptedException e) {
+			throw new IllegalStateException("Error hashing response. " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Reads a part of the content, only that part is read from the node which keeps it in a file.
+	 *
+	 * @return at most length bytes from the offset, decoded, null without content
+	 */
+	@Whitelisted
+	public String getContentSlice(long offset, int length) {
+		byte[] slice;
+		try {
+			if (contentFile != null) {
+				slice = contentFile.act(new ContentOperations.Slice(offset, length));
+			} else {
+				byte[] bytes = getContentBytes();
+				if (bytes == null) {
+					return null;
+				}
+				int from = (int) Math.min(Math.max(0, offset), bytes.length);
+				slice = Arrays.copyOfRange(bytes, from, from + Math.min(Math.max(0, length), bytes.length - from));
+			}
+		} catch (IOException | InterruptedException e) {
+			throw new IllegalStateException("Error reading response. " + e.getMessage(), e);
+		}
+		return new String(slice, charset());
+	}
+
+	/**
+	 * Reads a field of a JSON object content, parsed on the node which keeps it in a file.
+	 *
+	 * @param path dot separated path of the field
+	 * @return the value of the field as a string, null when it is missing
+	 */
+	@Whitelisted
+	public String getJsonField(String path) {
+		try {
+			if (contentFile != null) {
+				return contentFile.act(new ContentOperations.JsonField(charset().name(), path));
+			}
+			String text = getContent();
+			return text != null ? ContentOperations.jsonField(text, path) : null;
+		} catch (IOException | InterruptedException e) {
+			throw new IllegalStateException("Error reading response. " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * @return the temp file holding a body larger than the spill threshold or kept on the node, null when the
+	 * body is in memory
+	 */
+	FilePath getContentFile() {
+		return contentFile;
+	}
+
+	/**
+	 * Moves a body larger than the threshold to the directory of the build, the content read by the Pipeline is
+	 * then saved there once instead of with each state of the program.
+	 *
+	 * @param threshold bytes of a body saved with the program, 0 saves every body with it
+	 */
+	void keepInBuild(Run<?, ?> run, long threshold) throws IOException, InterruptedException {
+		if (responseHandle != ResponseHandle.STRING || threshold <= 0 || blobHash != null) {
+			return;
+		}
+		InputStream in;
+		if (contentBytes != null && contentBytes.length > threshold) {
+			in = new ByteArrayInputStream(contentBytes);
+		} else if (contentFile != null && contentFile.length() > threshold) {
+			in = contentFile.read();
+		} else {
+			return;
+		}
+		try {
+			blobHash = ResponseBlobs.store(run.getRootDir(), in);
+		} finally {
+			in.close();
+		}
+		blobRun = run.getExternalizableId();
+
+		if (contentBytes != null) {
+			blobContent = new SoftReference<>(contentBytes);
+			contentBytes = null;
+			contentStream = null;
+		}
+		if (contentFile != null) {
+			contentFile.delete();
+			contentFile = null;
+		}
+	}
+
+	/**
+	 * @return the body kept in the build, from the cache while the memory allows it
+	 */
+	private byte[] readBlob() {
+		byte[] bytes = blobContent != null ? blobContent.get() : null;
+		if (bytes != null) {
+			return bytes;
+		}
+		try (InputStream in = new FileInputStream(blobFile())) {
+			return ByteStreams.toByteArray(in);
+		} catch (IOException e) {
+			throw new IllegalStateException("Error reading response from " + blobFile(), e);
+		}
+	}
+
+	private File blobFile() {
+		Run<?, ?> run = Run.fromExternalizableId(blobRun);
+		if (run == null) {
+			throw new IllegalStateException("The build " + blobRun + " which kept the response is gone");
+		}
+		return ResponseBlobs.file(run.getRootDir(), blobHash);
+	}
+
+	private Charset charset() {
+		return Strings.isNullOrEmpty(charset) ? Charset.defaultCharset() : Charset.forName(charset);
+	}
+
+	/**
+	 * Reads the body in one buffer of the announced length, the buffer grows only when the length is unknown or wrong.
+	 */
+	private static byte[] readBytes(InputStream in, long length) throws IOException {
+		if (length < 0 || length > MAX_ARRAY_SIZE) {
+			return ByteStreams.toByteArray(in);
+		}
+		byte[] bytes = new byte[(int) length];
+		int read = 0;
+		while (read < bytes.length) {
+			int count = in.read(bytes, read, bytes.length - read);
+			if (count < 0) {
+				return Arrays.copyOf(bytes, read);
+			}
+			read += count;
+		}
+		int next = in.read();
+		if (next < 0) {
+			return bytes;
+		}
+		ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length + 8192);
+		out.write(bytes);
+		out.write(next);
+		ByteStreams.copy(in, out);
+		return out.toByteArray();
+	}
+
+	private void keep(InputStream in) throws IOException {
+		File file = SpillOutputStream.createFile();
+		try (FileOutputStream out = new FileOutputStream(file)) {
+			ByteStreams.copy(in, out);
+		} catch (IOException e) {
+			if (!file.delete()) {
+				e.addSuppressed(new IOException("Unable to delete " + file));
+			}
+			throw e;
+		}
+		contentFile = new FilePath(file);
+	}
+
+	private void spill(InputStream in, long length, long threshold, ResponseMemoryBudget.Reservation memory)
+			throws IOException {
+		SpillOutputStream out = new SpillOutputStream(threshold, length, memory);
+		try {
+			try {
+				ByteStreams.copy(in, out);
+			} finally {
+				out.close();
+			}
+		} catch (IOException e) {
+			if (out.getFile() != null && !out.getFile().delete()) {
+				e.addSuppressed(new IOException("Unable to delete " + out.getFile()));
+			}
+			throw e;
+		}
+		if (out.getFile() != null) {
+			contentFile = new FilePath(out.getFile());
+		} else {
+			contentBytes = out.toByteArray();
+		}
+	}
+
 	private void readCharset(HttpResponse response) {
 		Charset charset = null;
 		ContentType contentType = ContentType.get(response.getEntity());
@@ -145,17 +492,35 @@ class ResponseContentSupplier implements Serializable, AutoCloseable {
 		return "Status: " + this.status;
 	}
 
+	/**
+	 * Gives the connection back to the pool, if the content was not fully read the connection is discarded.
+	 * The temp file of a body larger than the spill threshold is deleted, a body kept in the build stays there
+	 * until the build is deleted.
+	 */
+	@Whitelisted
 	@Override
 	public void close() throws IOException {
-		if (httpclient != null) {
-			httpclient.close();
+		release();
+		if (contentFile != null) {
+			try {
+				contentFile.delete();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while deleting " + contentFile);
+			}
+			contentFile = null;
+		}
+	}
+
+	/**
+	 * Gives the connection back to the pool, the content read stays available to the caller.
+	 */
+	void release() throws IOException {
+		if (response != null) {
+			response.close();
 		}
 		if (contentStream != null) {
 			contentStream.close();
 		}
 	}
-
-	void setHttpClient(CloseableHttpClient httpclient) {
-		this.httpclient = httpclient;
-	}
 }
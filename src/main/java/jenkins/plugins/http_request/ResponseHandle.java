@@ -3,5 +3,9 @@ package jenkins.plugins.http_request;
 public enum ResponseHandle {
 	NONE,
 	LEAVE_OPEN,
-	STRING
+	STRING,
+	/**
+	 * The content stays in a temp file of the node which sent the request, only what is read crosses the channel
+	 */
+	KEEP_ON_NODE
 }
@@ -0,0 +1,29 @@
+package jenkins.plugins.http_request;
+
+import hudson.util.ListBoxModel;
+
+/**
+ * What a request does when buffering its response would go over the response memory budget of the node.
+ */
+public enum ResponseMemoryPolicy {
+	/**
+	 * Waits for other requests to give their memory back, for a bounded time
+	 */
+	WAIT,
+	/**
+	 * Keeps the response in a temp file of the node instead
+	 */
+	SPILL,
+	/**
+	 * Fails the request right away
+	 */
+	FAIL;
+
+	public static ListBoxModel getFillItems() {
+		ListBoxModel items = new ListBoxModel();
+		for (ResponseMemoryPolicy policy : values()) {
+			items.add(policy.name());
+		}
+		return items;
+	}
+}
@@ -6,16 +6,18 @@ import java.io.Serializable;
 
 import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.protocol.HttpContext;
 
 /**
  * @author Janario Oliveira
+ *         <p>
+ *         Clients are shared between requests, authenticators must keep their state (credentials, cookies) in the
+ *         given context and never in the client.
  */
 public interface Authenticator extends Serializable {
 
 	String getKeyName();
 
-	CloseableHttpClient authenticate(HttpClientBuilder clientBuilder, HttpContext context, HttpRequestBase requestBase,
+	void authenticate(CloseableHttpClient client, HttpContext context, HttpRequestBase requestBase,
 					  PrintStream logger) throws IOException, InterruptedException;
 }
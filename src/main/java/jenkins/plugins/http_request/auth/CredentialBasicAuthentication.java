@@ -13,7 +13,6 @@ import org.apache.http.impl.auth.BasicScheme;
 import org.apache.http.impl.client.BasicAuthCache;
 import org.apache.http.impl.client.BasicCredentialsProvider;
 import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.protocol.HttpContext;
 
 import com.cloudbees.plugins.credentials.common.StandardUsernamePasswordCredentials;
@@ -36,24 +35,22 @@ public class CredentialBasicAuthentication implements Authenticator {
 	}
 
 	@Override
-	public CloseableHttpClient authenticate(HttpClientBuilder clientBuilder, HttpContext context, HttpRequestBase requestBase, PrintStream logger)
+	public void authenticate(CloseableHttpClient client, HttpContext context, HttpRequestBase requestBase, PrintStream logger)
 			throws IOException, InterruptedException {
-		return auth(clientBuilder, context, requestBase,
+		auth(context, requestBase,
 				credential.getUsername(), credential.getPassword().getPlainText());
 	}
 
-	static CloseableHttpClient auth(HttpClientBuilder clientBuilder, HttpContext context, HttpRequestBase requestBase,
-									 String username, String password) {
+	static void auth(HttpContext context, HttpRequestBase requestBase,
+					 String username, String password) {
 		CredentialsProvider provider = new BasicCredentialsProvider();
 		provider.setCredentials(
 				new AuthScope(requestBase.getURI().getHost(), requestBase.getURI().getPort()),
 				new org.apache.http.auth.UsernamePasswordCredentials(username, password));
-		clientBuilder.setDefaultCredentialsProvider(provider);
+		context.setAttribute(HttpClientContext.CREDS_PROVIDER, provider);
 
 		AuthCache authCache = new BasicAuthCache();
 		authCache.put(URIUtils.extractHost(requestBase.getURI()), new BasicScheme());
 		context.setAttribute(HttpClientContext.AUTH_CACHE, authCache);
-
-		return clientBuilder.build();
 	}
 }
@@ -9,8 +9,8 @@ import java.util.List;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.protocol.HttpContext;
+import org.apache.http.util.EntityUtils;
 import org.kohsuke.stapler.DataBoundConstructor;
 import org.kohsuke.stapler.QueryParameter;
 
@@ -48,21 +48,21 @@ public class FormAuthentication extends AbstractDescribableImpl<FormAuthenticati
     }
 
 	@Override
-	public CloseableHttpClient authenticate(HttpClientBuilder clientBuilder, HttpContext context,
-								   HttpRequestBase requestBase, PrintStream logger) throws IOException, InterruptedException {
-		CloseableHttpClient client = clientBuilder.build();
+	public void authenticate(CloseableHttpClient client, HttpContext context,
+							 HttpRequestBase requestBase, PrintStream logger) throws IOException, InterruptedException {
 		final HttpClientUtil clientUtil = new HttpClientUtil();
 		for (RequestAction requestAction : actions) {
 			final HttpRequestBase method = clientUtil.createRequestBase(requestAction);
 
 			final HttpResponse execute = clientUtil.execute(client, context, method, logger);
+			//release the pooled connection, only the cookies kept in the context matter
+			EntityUtils.consumeQuietly(execute.getEntity());
 			//from 400(client error) to 599(server error)
 			if ((execute.getStatusLine().getStatusCode() >= 400
 					&& execute.getStatusLine().getStatusCode() <= 599)) {
 				throw new IllegalStateException("Error doing authentication");
 			}
 		}
-		return client;
 	}
 
     @Extension
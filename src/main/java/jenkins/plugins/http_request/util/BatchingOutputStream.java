@@ -0,0 +1,126 @@
+package jenkins.plugins.http_request.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+
+/**
+ * Buffers the console log written on a node before it is sent to the master, every write and every flush of a
+ * remote stream being a remoting call. What is written is sent once the buffer is full, at most after the delay, or
+ * when the stream is flushed at the end of the request, whether it failed or not.
+ */
+public final class BatchingOutputStream extends OutputStream {
+
+	private static final Logger LOGGER = Logger.getLogger(BatchingOutputStream.class.getName());
+	private static ScheduledExecutorService scheduler;
+
+	private final OutputStream out;
+	private final byte[] buffer;
+	private final long delay;
+	private int count;
+	private ScheduledFuture<?> scheduled;
+	private long writes;
+	private long calls;
+
+	/**
+	 * @param size  bytes buffered at most
+	 * @param delay milliseconds a write waits at most before being sent
+	 */
+	public BatchingOutputStream(OutputStream out, int size, long delay) {
+		this.out = out;
+		this.buffer = new byte[size];
+		this.delay = delay;
+	}
+
+	@Override
+	public synchronized void write(int b) throws IOException {
+		write(new byte[]{(byte) b}, 0, 1);
+	}
+
+	@Override
+	public synchronized void write(byte[] b, int off, int len) throws IOException {
+		writes++;
+		if (count + len > buffer.length) {
+			sendBuffer();
+		}
+		if (len >= buffer.length) {
+			out.write(b, off, len);
+			calls++;
+			return;
+		}
+		System.arraycopy(b, off, buffer, count, len);
+		count += len;
+		if (scheduled == null) {
+			scheduled = getScheduler().schedule(new Runnable() {
+				@Override
+				public void run() {
+					flushLater();
+				}
+			}, delay, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	@Override
+	public synchronized void flush() throws IOException {
+		sendBuffer();
+		out.flush();
+		calls++;
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		flush();
+		out.close();
+	}
+
+	/**
+	 * @return writes received, each one a remoting call without this buffer
+	 */
+	public synchronized long getWrites() {
+		return writes;
+	}
+
+	/**
+	 * @return writes and flushes sent to the stream
+	 */
+	public synchronized long getCalls() {
+		return calls;
+	}
+
+	private synchronized void flushLater() {
+		scheduled = null;
+		try {
+			flush();
+		} catch (IOException e) {
+			LOGGER.log(Level.FINE, "Unable to send the console log", e);
+		}
+	}
+
+	private void sendBuffer() throws IOException {
+		if (scheduled != null) {
+			scheduled.cancel(false);
+			scheduled = null;
+		}
+		if (count > 0) {
+			out.write(buffer, 0, count);
+			calls++;
+			count = 0;
+		}
+	}
+
+	private static synchronized ScheduledExecutorService getScheduler() {
+		if (scheduler == null) {
+			scheduler = Executors.newSingleThreadScheduledExecutor(
+					new NamingThreadFactory(new DaemonThreadFactory(), "BatchingOutputStream"));
+		}
+		return scheduler;
+	}
+}
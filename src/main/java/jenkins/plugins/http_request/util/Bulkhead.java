@@ -0,0 +1,149 @@
+package jenkins.plugins.http_request.util;
+
+import java.io.PrintStream;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import hudson.AbortException;
+
+/**
+ * Limits the requests running at the same time to the targets of a {@link HostConcurrencyLimit}.
+ * <p>
+ * Requests over the limit wait in turn for a bounded time, so a slow target only holds the executors of the
+ * requests sent to it.
+ */
+public final class Bulkhead {
+
+	private final String name;
+	private final int maxConcurrentRequests;
+	private final int maxWait;
+	private final Semaphore permits;
+
+	private final AtomicInteger queued = new AtomicInteger();
+	private final AtomicLong admitted = new AtomicLong();
+	private final AtomicLong rejected = new AtomicLong();
+	private final AtomicLong waited = new AtomicLong();
+	private final AtomicLong totalWaitMillis = new AtomicLong();
+	private final AtomicLong maxWaitMillis = new AtomicLong();
+
+	Bulkhead(String name, int maxConcurrentRequests, int maxWait) {
+		this.name = name;
+		this.maxConcurrentRequests = maxConcurrentRequests;
+		this.maxWait = maxWait;
+		this.permits = new Semaphore(maxConcurrentRequests, true);
+	}
+
+	/**
+	 * Waits for the turn of the request.
+	 *
+	 * @throws AbortException when the turn didn't come within the max wait
+	 */
+	public Permit acquire(PrintStream logger) throws InterruptedException, AbortException {
+		//unlike tryAcquire(), a timed acquire doesn't barge ahead of the requests already waiting
+		if (permits.tryAcquire(0, TimeUnit.SECONDS)) {
+			admitted.incrementAndGet();
+			return new Permit();
+		}
+
+		int depth = queued.incrementAndGet();
+		logger.println("Waiting for one of the " + maxConcurrentRequests + " concurrent requests to " + name +
+				", " + depth + " request(s) queued");
+		long start = System.nanoTime();
+		boolean acquired;
+		try {
+			acquired = permits.tryAcquire(maxWait, TimeUnit.SECONDS);
+		} finally {
+			queued.decrementAndGet();
+		}
+		long waitMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		if (!acquired) {
+			rejected.incrementAndGet();
+			throw new AbortException("Fail: no concurrent request to " + name + " available after waiting " + waitMillis + " ms");
+		}
+
+		admitted.incrementAndGet();
+		waited.incrementAndGet();
+		totalWaitMillis.addAndGet(waitMillis);
+		long max = maxWaitMillis.get();
+		while (waitMillis > max && !maxWaitMillis.compareAndSet(max, waitMillis)) {
+			max = maxWaitMillis.get();
+		}
+		logger.println("Waited " + waitMillis + " ms for a concurrent request to " + name);
+		return new Permit();
+	}
+
+	/**
+	 * @return the permit of the request, null when it would have to wait
+	 */
+	public Permit tryAcquire() {
+		try {
+			if (!permits.tryAcquire(0, TimeUnit.SECONDS)) {
+				return null;
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		}
+		admitted.incrementAndGet();
+		return new Permit();
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getMaxConcurrentRequests() {
+		return maxConcurrentRequests;
+	}
+
+	public int getMaxWait() {
+		return maxWait;
+	}
+
+	public int getInFlight() {
+		return maxConcurrentRequests - permits.availablePermits();
+	}
+
+	public int getQueued() {
+		return queued.get();
+	}
+
+	public long getAdmitted() {
+		return admitted.get();
+	}
+
+	public long getRejected() {
+		return rejected.get();
+	}
+
+	/**
+	 * @return average milliseconds waited by the requests that had to wait
+	 */
+	public long getAverageWaitMillis() {
+		long count = waited.get();
+		return count > 0 ? totalWaitMillis.get() / count : 0;
+	}
+
+	public long getMaxWaitMillis() {
+		return maxWaitMillis.get();
+	}
+
+	/**
+	 * The turn of one request, released once when the request is done.
+	 */
+	public final class Permit {
+		private final AtomicBoolean released = new AtomicBoolean();
+
+		private Permit() {
+		}
+
+		public void release() {
+			if (released.compareAndSet(false, true)) {
+				permits.release();
+			}
+		}
+	}
+}
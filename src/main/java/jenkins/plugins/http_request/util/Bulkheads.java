@@ -0,0 +1,50 @@
+package jenkins.plugins.http_request.util;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Bulkheads of the concurrency limits in the global configuration, kept on the master so they count the
+ * requests of every build whatever node runs them.
+ */
+public final class Bulkheads {
+
+	private static final Map<String, Bulkhead> BULKHEADS = new LinkedHashMap<>();
+
+	private Bulkheads() {
+	}
+
+	/**
+	 * @return the bulkhead of the first limit matching the url, null when the url is not limited
+	 */
+	public static synchronized Bulkhead forUrl(String url, List<HostConcurrencyLimit> limits) {
+		Set<String> configured = new HashSet<>();
+		Bulkhead match = null;
+		for (HostConcurrencyLimit limit : limits) {
+			String name = limit.getTarget().trim();
+			int maxConcurrentRequests = Math.max(1, limit.getMaxConcurrentRequests());
+			int maxWait = Math.max(0, limit.getMaxWait());
+			configured.add(name);
+			Bulkhead bulkhead = BULKHEADS.get(name);
+			if (bulkhead == null || bulkhead.getMaxConcurrentRequests() != maxConcurrentRequests
+					|| bulkhead.getMaxWait() != maxWait) {
+				//requests running keep the permits of the previous bulkhead
+				bulkhead = new Bulkhead(name, maxConcurrentRequests, maxWait);
+				BULKHEADS.put(name, bulkhead);
+			}
+			if (match == null && limit.matches(url)) {
+				match = bulkhead;
+			}
+		}
+		BULKHEADS.keySet().retainAll(configured);
+		return match;
+	}
+
+	public static synchronized List<Bulkhead> all() {
+		return new ArrayList<>(BULKHEADS.values());
+	}
+}
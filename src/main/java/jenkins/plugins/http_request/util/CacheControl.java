@@ -0,0 +1,65 @@
+package jenkins.plugins.http_request.util;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.http.Header;
+import org.apache.http.HeaderElement;
+import org.apache.http.HttpMessage;
+
+/**
+ * Directives of the Cache-Control headers of a request or a response, see RFC 7234 section 5.2.
+ */
+public final class CacheControl {
+
+	private final Map<String, String> directives = new HashMap<>();
+
+	private CacheControl() {
+	}
+
+	/**
+	 * A Pragma: no-cache header counts as a no-cache directive when the message has no Cache-Control header.
+	 */
+	public static CacheControl of(HttpMessage message) {
+		CacheControl cacheControl = new CacheControl();
+		Header[] headers = message.getHeaders("Cache-Control");
+		for (Header header : headers) {
+			for (HeaderElement element : header.getElements()) {
+				cacheControl.directives.put(element.getName().toLowerCase(Locale.ENGLISH), element.getValue());
+			}
+		}
+		if (headers.length == 0) {
+			for (Header header : message.getHeaders("Pragma")) {
+				if ("no-cache".equalsIgnoreCase(header.getValue().trim())) {
+					cacheControl.directives.put("no-cache", null);
+				}
+			}
+		}
+		return cacheControl;
+	}
+
+	public boolean has(String directive) {
+		return directives.containsKey(directive);
+	}
+
+	/**
+	 * @return the seconds of a directive like max-age, -1 without it or when it is not a number
+	 */
+	public long getSeconds(String directive) {
+		String value = directives.get(directive);
+		if (value == null) {
+			return -1;
+		}
+		try {
+			return Math.max(0, Long.parseLong(value.trim()));
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return directives.toString();
+	}
+}
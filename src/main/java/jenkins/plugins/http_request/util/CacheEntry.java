@@ -0,0 +1,359 @@
+package jenkins.plugins.http_request.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.ParseException;
+import org.apache.http.StatusLine;
+import org.apache.http.client.utils.DateUtils;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.message.BasicHeader;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.message.BasicLineParser;
+import org.apache.http.message.BasicStatusLine;
+import org.apache.http.message.HeaderGroup;
+
+/**
+ * Status line, headers and freshness of a cached response, following RFC 7234 for a cache shared by every build.
+ * The content is kept by the cache.
+ */
+final class CacheEntry {
+
+	private static final String FORMAT = "http-request-cache-entry 2";
+
+	/**
+	 * Status codes which can be cached without explicit freshness, RFC 7231 section 6.1.
+	 */
+	private static final Set<Integer> CACHEABLE_BY_DEFAULT = new HashSet<>(Arrays.asList(
+			200, 203, 204, 300, 301, 404, 405, 410, 414, 501));
+
+	private final String key;
+	private final StatusLine statusLine;
+	private final HeaderGroup headers = new HeaderGroup();
+	/**
+	 * Hash of each request header named by Vary, the values can be secrets such as an API key.
+	 */
+	private final HashMap<String, String> vary;
+	private long requestTime;
+	private long responseTime;
+	private long size;
+
+	CacheEntry(String key, HttpRequest request, HttpResponse response, long requestTime, long responseTime) {
+		this.key = key;
+		StatusLine line = response.getStatusLine();
+		this.statusLine = new BasicStatusLine(line.getProtocolVersion(), line.getStatusCode(), line.getReasonPhrase());
+		for (Header header : response.getAllHeaders()) {
+			headers.addHeader(new BasicHeader(header.getName(), header.getValue()));
+		}
+		this.vary = varyValues(request, varyNames(response));
+		this.requestTime = requestTime;
+		this.responseTime = responseTime;
+	}
+
+	private CacheEntry(String key, StatusLine statusLine, HashMap<String, String> vary) {
+		this.key = key;
+		this.statusLine = statusLine;
+		this.vary = vary;
+	}
+
+	/**
+	 * Responses to a GET which are not private to the user and have a freshness or a validator, RFC 7234 section 3.
+	 */
+	static boolean isStorable(HttpRequest request, HttpResponse response) {
+		if (!"GET".equals(request.getRequestLine().getMethod())) {
+			return false;
+		}
+		CacheControl requestControl = CacheControl.of(request);
+		CacheControl responseControl = CacheControl.of(response);
+		if (requestControl.has("no-store") || responseControl.has("no-store") || responseControl.has("private")) {
+			return false;
+		}
+		if (varyNames(response).contains("*")) {
+			return false;
+		}
+		if (request.containsHeader("Authorization") && !responseControl.has("public") &&
+				!responseControl.has("s-maxage") && !responseControl.has("must-revalidate")) {
+			return false;
+		}
+		if (!CACHEABLE_BY_DEFAULT.contains(response.getStatusLine().getStatusCode())) {
+			return false;
+		}
+		return responseControl.getSeconds("s-maxage") >= 0 || responseControl.getSeconds("max-age") >= 0 ||
+				response.containsHeader("Expires") || response.containsHeader("ETag") ||
+				response.containsHeader("Last-Modified");
+	}
+
+	String getKey() {
+		return key;
+	}
+
+	long getSize() {
+		return size;
+	}
+
+	void setSize(long size) {
+		this.size = size;
+	}
+
+	/**
+	 * @return true when the request asks for the same variant of the response
+	 */
+	boolean matches(HttpRequest request) {
+		return vary.equals(varyValues(request, vary.keySet()));
+	}
+
+	boolean isFresh(long now, HttpRequest request) {
+		CacheControl requestControl = CacheControl.of(request);
+		if (requestControl.has("no-cache") || CacheControl.of(message()).has("no-cache")) {
+			return false;
+		}
+		long age = getCurrentAge(now);
+		long maxAge = requestControl.getSeconds("max-age");
+		if (maxAge >= 0 && age > maxAge * 1000) {
+			return false;
+		}
+		return getFreshnessLifetime() > age;
+	}
+
+	boolean canRevalidate() {
+		return headers.containsHeader("ETag") || headers.containsHeader("Last-Modified");
+	}
+
+	/**
+	 * Makes the request conditional, the server answers 304 Not Modified when the cached response is still valid.
+	 */
+	void addValidators(HttpRequest request) {
+		Header etag = headers.getFirstHeader("ETag");
+		if (etag != null) {
+			request.setHeader("If-None-Match", etag.getValue());
+		}
+		Header lastModified = headers.getFirstHeader("Last-Modified");
+		if (lastModified != null) {
+			request.setHeader("If-Modified-Since", lastModified.getValue());
+		}
+	}
+
+	static void removeValidators(HttpRequest request) {
+		request.removeHeaders("If-None-Match");
+		request.removeHeaders("If-Modified-Since");
+	}
+
+	/**
+	 * Takes the headers of a 304 Not Modified response, RFC 7234 section 4.3.4.
+	 */
+	void update(HttpResponse notModified, long requestTime, long responseTime) {
+		for (Header header : notModified.getAllHeaders()) {
+			String name = header.getName();
+			if (!"Content-Length".equalsIgnoreCase(name) && !"Transfer-Encoding".equalsIgnoreCase(name)) {
+				for (Header old : headers.getHeaders(name)) {
+					headers.removeHeader(old);
+				}
+				headers.addHeader(new BasicHeader(name, header.getValue()));
+			}
+		}
+		this.requestTime = requestTime;
+		this.responseTime = responseTime;
+	}
+
+	/**
+	 * @param entity the cached content
+	 * @return the cached response with its Age header
+	 */
+	HttpResponse toResponse(long now, HttpEntity entity) {
+		HttpResponse response = message();
+		response.setHeader("Age", Long.toString(getCurrentAge(now) / 1000));
+		if (entity instanceof AbstractHttpEntity) {
+			((AbstractHttpEntity) entity).setContentType(response.getFirstHeader("Content-Type"));
+			((AbstractHttpEntity) entity).setContentEncoding(response.getFirstHeader("Content-Encoding"));
+		}
+		response.setEntity(entity);
+		return response;
+	}
+
+	/**
+	 * RFC 7234 section 4.2.1, in milliseconds.
+	 */
+	private long getFreshnessLifetime() {
+		CacheControl cacheControl = CacheControl.of(message());
+		long seconds = cacheControl.getSeconds("s-maxage");
+		if (seconds < 0) {
+			seconds = cacheControl.getSeconds("max-age");
+		}
+		if (seconds >= 0) {
+			return seconds * 1000;
+		}
+		long date = getDate();
+		Header expires = headers.getFirstHeader("Expires");
+		if (expires != null) {
+			Date expiresDate = DateUtils.parseDate(expires.getValue());
+			return expiresDate != null ? Math.max(0, expiresDate.getTime() - date) : 0;
+		}
+		//heuristic freshness of RFC 7234 section 4.2.2, a tenth of the time since the last change
+		Header lastModified = headers.getFirstHeader("Last-Modified");
+		if (lastModified != null) {
+			Date lastModifiedDate = DateUtils.parseDate(lastModified.getValue());
+			if (lastModifiedDate != null) {
+				return Math.max(0, date - lastModifiedDate.getTime()) / 10;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * RFC 7234 section 4.2.3, in milliseconds.
+	 */
+	private long getCurrentAge(long now) {
+		long apparentAge = Math.max(0, responseTime - getDate());
+		long ageValue = 0;
+		Header age = headers.getFirstHeader("Age");
+		if (age != null) {
+			try {
+				ageValue = Math.max(0, Long.parseLong(age.getValue().trim())) * 1000;
+			} catch (NumberFormatException ignored) {
+				// no age
+			}
+		}
+		long correctedInitialAge = Math.max(apparentAge, ageValue + responseTime - requestTime);
+		return correctedInitialAge + Math.max(0, now - responseTime);
+	}
+
+	private long getDate() {
+		Header date = headers.getFirstHeader("Date");
+		Date parsed = date != null ? DateUtils.parseDate(date.getValue()) : null;
+		return parsed != null ? parsed.getTime() : responseTime;
+	}
+
+	private HttpResponse message() {
+		BasicHttpResponse response = new BasicHttpResponse(statusLine);
+		response.setHeaders(headers.getAllHeaders());
+		return response;
+	}
+
+	private static Set<String> varyNames(HttpResponse response) {
+		Set<String> names = new HashSet<>();
+		for (Header header : response.getHeaders("Vary")) {
+			for (String name : header.getValue().split(",")) {
+				if (!name.trim().isEmpty()) {
+					names.add(name.trim().toLowerCase(Locale.ENGLISH));
+				}
+			}
+		}
+		return names;
+	}
+
+	private static HashMap<String, String> varyValues(HttpRequest request, Set<String> names) {
+		HashMap<String, String> values = new HashMap<>();
+		for (String name : names) {
+			StringBuilder value = new StringBuilder();
+			for (Header header : request.getHeaders(name)) {
+				value.append(value.length() > 0 ? ", " : "").append(header.getValue());
+			}
+			values.put(name, hash(name + ": " + value));
+		}
+		return values;
+	}
+
+	private static String hash(String value) {
+		try {
+			return ContentOperations.hex(MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8)));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Writes the entry as lines of text: the format, the key, the status line, the times and size, then the
+	 * headers and the hashes of the vary values, each preceded by their number.
+	 */
+	void writeTo(Writer out) throws IOException {
+		line(out, FORMAT);
+		line(out, key);
+		line(out, statusLine.toString());
+		line(out, requestTime + " " + responseTime + " " + size);
+		Header[] all = headers.getAllHeaders();
+		line(out, Integer.toString(all.length));
+		for (Header header : all) {
+			line(out, header.getName() + ": " + header.getValue());
+		}
+		line(out, Integer.toString(vary.size()));
+		for (Map.Entry<String, String> value : vary.entrySet()) {
+			line(out, value.getKey() + ": " + value.getValue());
+		}
+	}
+
+	/**
+	 * @throws IOException when the text is not an entry written by {@link #writeTo(Writer)}
+	 */
+	static CacheEntry readFrom(BufferedReader in) throws IOException {
+		if (!FORMAT.equals(in.readLine())) {
+			throw new IOException("Not a cached response");
+		}
+		try {
+			String key = readLine(in);
+			StatusLine statusLine = BasicLineParser.parseStatusLine(readLine(in), null);
+			String[] times = readLine(in).split(" ");
+			if (times.length != 3) {
+				throw new IOException("Malformed times of a cached response");
+			}
+			CacheEntry entry = new CacheEntry(key, statusLine, new HashMap<String, String>());
+			entry.requestTime = Long.parseLong(times[0]);
+			entry.responseTime = Long.parseLong(times[1]);
+			entry.size = Long.parseLong(times[2]);
+			for (int i = Integer.parseInt(readLine(in)); i > 0; i--) {
+				String[] header = nameValue(readLine(in));
+				entry.headers.addHeader(new BasicHeader(header[0], header[1]));
+			}
+			for (int i = Integer.parseInt(readLine(in)); i > 0; i--) {
+				String[] value = nameValue(readLine(in));
+				entry.vary.put(value[0], value[1]);
+			}
+			return entry;
+		} catch (NumberFormatException | ParseException e) {
+			throw new IOException("Malformed cached response", e);
+		}
+	}
+
+	/**
+	 * A header value can't hold a line break, one is replaced to keep the entry readable.
+	 */
+	private static void line(Writer out, String line) throws IOException {
+		out.write(line.replace('\r', ' ').replace('\n', ' '));
+		out.write('\n');
+	}
+
+	private static String readLine(BufferedReader in) throws IOException {
+		String line = in.readLine();
+		if (line == null) {
+			throw new IOException("Truncated cached response");
+		}
+		return line;
+	}
+
+	private static String[] nameValue(String line) throws IOException {
+		int colon = line.indexOf(": ");
+		if (colon < 0) {
+			throw new IOException("Malformed header of a cached response " + line);
+		}
+		return new String[]{line.substring(0, colon), line.substring(colon + 2)};
+	}
+
+	@Override
+	public String toString() {
+		return key + " " + statusLine + " size=" + size;
+	}
+}
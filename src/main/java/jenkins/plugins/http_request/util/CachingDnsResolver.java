@@ -0,0 +1,171 @@
+package jenkins.plugins.http_request.util;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.http.conn.DnsResolver;
+
+import com.google.common.base.Ticker;
+import com.google.common.net.InetAddresses;
+
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+
+/**
+ * Resolves host names for the connection pools of one node.
+ * <p>
+ * Hosts with addresses in the settings are never resolved. Other hosts are resolved by the delegate and the
+ * result, an unknown host too, is cached for its ttl. A host used when a quarter of its ttl is left is resolved
+ * again in background, so hosts called often never wait for the resolver.
+ */
+final class CachingDnsResolver implements DnsResolver {
+
+	private static final Logger LOGGER = Logger.getLogger(CachingDnsResolver.class.getName());
+
+	private final DnsResolver delegate;
+	private final Ticker ticker;
+	private final ConcurrentMap<String, Entry> cache = new ConcurrentHashMap<>();
+	private volatile DnsSettings settings = new DnsSettings(0, 0, false, Collections.<HostAddressOverride>emptyList());
+	private Executor prefetcher;
+
+	CachingDnsResolver(DnsResolver delegate) {
+		this(delegate, Ticker.systemTicker(), null);
+	}
+
+	/**
+	 * @param ticker     time of the ttls
+	 * @param prefetcher runs the background resolutions, null for a thread of its own
+	 */
+	CachingDnsResolver(DnsResolver delegate, Ticker ticker, Executor prefetcher) {
+		this.delegate = delegate;
+		this.ticker = ticker;
+		this.prefetcher = prefetcher;
+	}
+
+	void setSettings(DnsSettings settings) {
+		if (!this.settings.equals(settings)) {
+			this.settings = settings;
+			cache.clear();
+		}
+	}
+
+	@Override
+	public InetAddress[] resolve(String host) throws UnknownHostException {
+		DnsSettings settings = this.settings;
+		String key = host.toLowerCase(Locale.ENGLISH);
+
+		List<String> override = settings.getOverride(key);
+		if (override != null) {
+			InetAddress[] addresses = new InetAddress[override.size()];
+			for (int i = 0; i < addresses.length; i++) {
+				addresses[i] = InetAddress.getByAddress(host, InetAddresses.forString(override.get(i)).getAddress());
+			}
+			return addresses;
+		}
+
+		if (settings.getPositiveTtl() <= 0 && settings.getNegativeTtl() <= 0) {
+			return delegate.resolve(host);
+		}
+
+		long now = now();
+		Entry entry = cache.get(key);
+		if (entry == null || entry.isExpired(now)) {
+			entry = lookup(host, key, settings);
+		} else if (settings.isPrefetch() && entry.isExpiringSoon(now)) {
+			prefetch(host, key, entry, settings);
+		}
+		return entry.addresses();
+	}
+
+	void evictExpired() {
+		long now = now();
+		for (Iterator<Entry> it = cache.values().iterator(); it.hasNext(); ) {
+			if (it.next().isExpired(now)) {
+				it.remove();
+			}
+		}
+	}
+
+	private Entry lookup(String host, String key, DnsSettings settings) {
+		Entry entry;
+		try {
+			entry = new Entry(host, delegate.resolve(host), now(), settings.getPositiveTtl());
+		} catch (UnknownHostException e) {
+			entry = new Entry(host, null, now(), settings.getNegativeTtl());
+		}
+		if (entry.ttl > 0) {
+			cache.put(key, entry);
+		}
+		return entry;
+	}
+
+	private void prefetch(final String host, final String key, Entry entry, final DnsSettings settings) {
+		if (!entry.prefetching.compareAndSet(false, true)) {
+			return;
+		}
+		getPrefetcher().execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					lookup(host, key, settings);
+				} catch (RuntimeException e) {
+					LOGGER.log(Level.FINE, "Error resolving " + host, e);
+				}
+			}
+		});
+	}
+
+	private long now() {
+		return TimeUnit.NANOSECONDS.toMillis(ticker.read());
+	}
+
+	private synchronized Executor getPrefetcher() {
+		if (prefetcher == null) {
+			prefetcher = Executors.newSingleThreadExecutor(
+					new NamingThreadFactory(new DaemonThreadFactory(), "HttpRequest dns prefetch"));
+		}
+		return prefetcher;
+	}
+
+	private static final class Entry {
+		private final String host;
+		private final InetAddress[] addresses;
+		private final long created;
+		private final long ttl;
+		private final AtomicBoolean prefetching = new AtomicBoolean();
+
+		private Entry(String host, InetAddress[] addresses, long created, int ttlSeconds) {
+			this.host = host;
+			this.addresses = addresses;
+			this.created = created;
+			this.ttl = ttlSeconds * 1000L;
+		}
+
+		private boolean isExpired(long now) {
+			return now - created >= ttl;
+		}
+
+		private boolean isExpiringSoon(long now) {
+			return now - created >= ttl - ttl / 4;
+		}
+
+		private InetAddress[] addresses() throws UnknownHostException {
+			if (addresses == null) {
+				throw new UnknownHostException(host);
+			}
+			return addresses.clone();
+		}
+	}
+}
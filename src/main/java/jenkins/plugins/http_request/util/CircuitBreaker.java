@@ -0,0 +1,167 @@
+package jenkins.plugins.http_request.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Circuit breaker of one target host.
+ * <p>
+ * While closed every request goes through. It opens after too many consecutive failures or a too high error rate
+ * in the last requests, requests then fail at once without reaching the host. Once the open duration is over it is
+ * half open: a single trial request goes through, it closes the breaker when it succeeds and opens it again when
+ * it fails.
+ */
+public final class CircuitBreaker {
+
+	public enum State {
+		CLOSED,
+		OPEN,
+		HALF_OPEN
+	}
+
+	private final String host;
+
+	private int failureThreshold;
+	private int errorRateThreshold;
+	private int openDuration;
+
+	private State state = State.CLOSED;
+	private int consecutiveFailures;
+	private boolean[] window;
+	private int windowIndex;
+	private int windowCount;
+	private int windowFailures;
+	private long openedAt;
+	private boolean trialInFlight;
+	private long shortCircuited;
+
+	CircuitBreaker(String host) {
+		this.host = host;
+	}
+
+	synchronized void configure(int failureThreshold, int errorRateThreshold, int windowSize, int openDuration) {
+		this.failureThreshold = failureThreshold;
+		this.errorRateThreshold = errorRateThreshold;
+		this.openDuration = openDuration;
+		if (window == null || window.length != windowSize) {
+			window = new boolean[windowSize];
+			windowIndex = 0;
+			windowCount = 0;
+			windowFailures = 0;
+		}
+	}
+
+	/**
+	 * @return true when the request may be sent, false when it must fail at once
+	 */
+	public synchronized boolean allowRequest() {
+		if (state == State.OPEN && System.currentTimeMillis() - openedAt >= TimeUnit.SECONDS.toMillis(openDuration)) {
+			state = State.HALF_OPEN;
+			trialInFlight = false;
+		}
+		if (state == State.CLOSED) {
+			return true;
+		}
+		if (state == State.HALF_OPEN && !trialInFlight) {
+			trialInFlight = true;
+			return true;
+		}
+		shortCircuited++;
+		return false;
+	}
+
+	public synchronized void onSuccess() {
+		if (state == State.HALF_OPEN) {
+			close();
+			return;
+		}
+		consecutiveFailures = 0;
+		record(false);
+	}
+
+	public synchronized void onFailure() {
+		if (state == State.HALF_OPEN) {
+			open();
+			return;
+		}
+		consecutiveFailures++;
+		record(true);
+		if (state == State.CLOSED && (failureThreshold > 0 && consecutiveFailures >= failureThreshold
+				|| errorRateThreshold > 0 && windowCount == window.length && getErrorRate() >= errorRateThreshold)) {
+			open();
+		}
+	}
+
+	/**
+	 * The request ended without telling whether the host works, like an aborted build.
+	 */
+	public synchronized void onIgnored() {
+		if (state == State.HALF_OPEN) {
+			trialInFlight = false;
+		}
+	}
+
+	public synchronized void reset() {
+		close();
+	}
+
+	private void record(boolean failure) {
+		if (windowCount == window.length && window[windowIndex]) {
+			windowFailures--;
+		}
+		window[windowIndex] = failure;
+		if (failure) {
+			windowFailures++;
+		}
+		windowIndex = (windowIndex + 1) % window.length;
+		windowCount = Math.min(windowCount + 1, window.length);
+	}
+
+	private void open() {
+		state = State.OPEN;
+		openedAt = System.currentTimeMillis();
+		trialInFlight = false;
+	}
+
+	private void close() {
+		state = State.CLOSED;
+		consecutiveFailures = 0;
+		windowIndex = 0;
+		windowCount = 0;
+		windowFailures = 0;
+		trialInFlight = false;
+	}
+
+	public String getHost() {
+		return host;
+	}
+
+	public synchronized State getState() {
+		return state;
+	}
+
+	public synchronized int getConsecutiveFailures() {
+		return consecutiveFailures;
+	}
+
+	/**
+	 * @return percentage of failed requests among the last ones
+	 */
+	public synchronized int getErrorRate() {
+		return windowCount > 0 ? windowFailures * 100 / windowCount : 0;
+	}
+
+	public synchronized long getShortCircuited() {
+		return shortCircuited;
+	}
+
+	/**
+	 * @return seconds before a trial request is let through, 0 when not open
+	 */
+	public synchronized long getRetryAfter() {
+		if (state != State.OPEN) {
+			return 0;
+		}
+		long elapsed = System.currentTimeMillis() - openedAt;
+		return Math.max(0, TimeUnit.MILLISECONDS.toSeconds(TimeUnit.SECONDS.toMillis(openDuration) - elapsed + 999));
+	}
+}
@@ -0,0 +1,57 @@
+package jenkins.plugins.http_request.util;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Circuit breakers of the hosts called, kept on the master so they follow the requests of every build whatever
+ * node runs them.
+ */
+public final class CircuitBreakers {
+
+	private static final Map<String, CircuitBreaker> CIRCUIT_BREAKERS = new TreeMap<>();
+
+	private CircuitBreakers() {
+	}
+
+	/**
+	 * @param failureThreshold   consecutive failures opening the breaker, 0 to ignore them
+	 * @param errorRateThreshold percentage of failed requests in the window opening the breaker, 0 to ignore it
+	 * @param windowSize         number of last requests the error rate is computed on
+	 * @param openDuration       seconds the breaker stays open before a trial request
+	 * @return the breaker of the host of the url, null when breakers are disabled
+	 */
+	public static synchronized CircuitBreaker forUrl(String url, int failureThreshold, int errorRateThreshold,
+													 int windowSize, int openDuration) {
+		if (failureThreshold <= 0 && errorRateThreshold <= 0) {
+			CIRCUIT_BREAKERS.clear();
+			return null;
+		}
+		String host;
+		try {
+			host = new URL(url).getHost().toLowerCase(Locale.ENGLISH);
+		} catch (MalformedURLException e) {
+			return null;
+		}
+		CircuitBreaker circuitBreaker = CIRCUIT_BREAKERS.get(host);
+		if (circuitBreaker == null) {
+			circuitBreaker = new CircuitBreaker(host);
+			CIRCUIT_BREAKERS.put(host, circuitBreaker);
+		}
+		circuitBreaker.configure(failureThreshold, errorRateThreshold, windowSize, openDuration);
+		return circuitBreaker;
+	}
+
+	public static synchronized CircuitBreaker get(String host) {
+		return CIRCUIT_BREAKERS.get(host);
+	}
+
+	public static synchronized List<CircuitBreaker> all() {
+		return new ArrayList<>(CIRCUIT_BREAKERS.values());
+	}
+}
@@ -0,0 +1,127 @@
+package jenkins.plugins.http_request.util;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Connection pool limits taken from the global configuration on the master and shipped with
+ * each request to the node that executes it.
+ */
+public final class ConnectionPoolSettings implements Serializable {
+
+	private static final long serialVersionUID = 2876104349213557031L;
+
+	private final int maxConnections;
+	private final int maxConnectionsPerRoute;
+	private final int connectionRequestTimeout;
+	private final int idleConnectionTimeout;
+	private final int keepAliveTimeout;
+	private final int connectAttemptDelay;
+	private final HashMap<String, Integer> maxConnectionsPerHost;
+	private final DnsSettings dnsSettings;
+
+	/**
+	 * @param maxConnections         total connections kept by the node pool
+	 * @param maxConnectionsPerRoute connections kept per target host
+	 * @param connectionRequestTimeout seconds a request without timeout waits at most for a connection of the pool
+	 * @param idleConnectionTimeout  seconds before an idle connection is evicted, 0 disables eviction
+	 * @param keepAliveTimeout       max seconds a connection is reused, 0 means as long as the server allows
+	 * @param connectAttemptDelay    milliseconds before the next address of a host is tried in parallel,
+	 *                               0 tries them one after the other
+	 * @param hostConnectionLimits   connections kept to the given hosts instead of maxConnectionsPerRoute
+	 * @param dnsSettings            how the hosts of new connections are resolved
+	 */
+	public ConnectionPoolSettings(int maxConnections, int maxConnectionsPerRoute, int connectionRequestTimeout,
+								  int idleConnectionTimeout, int keepAliveTimeout, int connectAttemptDelay,
+								  List<HostConnectionLimit> hostConnectionLimits, DnsSettings dnsSettings) {
+		this.maxConnections = maxConnections;
+		this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+		this.connectionRequestTimeout = connectionRequestTimeout;
+		this.idleConnectionTimeout = idleConnectionTimeout;
+		this.keepAliveTimeout = keepAliveTimeout;
+		this.connectAttemptDelay = connectAttemptDelay;
+		this.maxConnectionsPerHost = new HashMap<>();
+		for (HostConnectionLimit limit : hostConnectionLimits) {
+			maxConnectionsPerHost.put(limit.getHost().trim().toLowerCase(Locale.ENGLISH), limit.getMaxConnections());
+		}
+		this.dnsSettings = dnsSettings;
+	}
+
+	public int getMaxConnections() {
+		return maxConnections;
+	}
+
+	public int getMaxConnectionsPerRoute() {
+		return maxConnectionsPerRoute;
+	}
+
+	public int getConnectionRequestTimeout() {
+		return connectionRequestTimeout;
+	}
+
+	public int getIdleConnectionTimeout() {
+		return idleConnectionTimeout;
+	}
+
+	public int getKeepAliveTimeout() {
+		return keepAliveTimeout;
+	}
+
+	public int getConnectAttemptDelay() {
+		return connectAttemptDelay;
+	}
+
+	/**
+	 * @return the connections kept to this host, null when it uses maxConnectionsPerRoute
+	 */
+	public Integer getMaxConnectionsPerHost(String host) {
+		return host != null ? maxConnectionsPerHost.get(host.toLowerCase(Locale.ENGLISH)) : null;
+	}
+
+	public DnsSettings getDnsSettings() {
+		return dnsSettings;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (!(o instanceof ConnectionPoolSettings)) {
+			return false;
+		}
+		ConnectionPoolSettings that = (ConnectionPoolSettings) o;
+		return maxConnections == that.maxConnections
+				&& maxConnectionsPerRoute == that.maxConnectionsPerRoute
+				&& connectionRequestTimeout == that.connectionRequestTimeout
+				&& idleConnectionTimeout == that.idleConnectionTimeout
+				&& keepAliveTimeout == that.keepAliveTimeout
+				&& connectAttemptDelay == that.connectAttemptDelay
+				&& maxConnectionsPerHost.equals(that.maxConnectionsPerHost)
+				&& dnsSettings.equals(that.dnsSettings);
+	}
+
+	@Override
+	public int hashCode() {
+		int result = maxConnections;
+		result = 31 * result + maxConnectionsPerRoute;
+		result = 31 * result + connectionRequestTimeout;
+		result = 31 * result + idleConnectionTimeout;
+		result = 31 * result + keepAliveTimeout;
+		result = 31 * result + connectAttemptDelay;
+		result = 31 * result + maxConnectionsPerHost.hashCode();
+		result = 31 * result + dnsSettings.hashCode();
+		return result;
+	}
+
+	@Override
+	public String toString() {
+		return "maxConnections=" + maxConnections + ", maxConnectionsPerRoute=" + maxConnectionsPerRoute +
+				", connectionRequestTimeout=" + connectionRequestTimeout +
+				", idleConnectionTimeout=" + idleConnectionTimeout + ", keepAliveTimeout=" + keepAliveTimeout +
+				", connectAttemptDelay=" + connectAttemptDelay +
+				", maxConnectionsPerHost=" + maxConnectionsPerHost + ", dns=[" + dnsSettings + "]";
+	}
+}
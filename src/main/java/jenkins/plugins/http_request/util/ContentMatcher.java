@@ -0,0 +1,59 @@
+package jenkins.plugins.http_request.util;
+
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+
+/**
+ * Looks for a text in a content written in chunks of bytes, as it is read. Only the text is kept in memory, a match
+ * across two chunks is found as well (Knuth-Morris-Pratt over the bytes of the text in the charset of the content).
+ */
+public final class ContentMatcher extends OutputStream {
+
+	private final byte[] pattern;
+	private final int[] fallback;
+	private int matched;
+	private boolean found;
+
+	public ContentMatcher(String text, Charset charset) {
+		this.pattern = text.getBytes(charset);
+		this.fallback = new int[pattern.length];
+		for (int i = 1, k = 0; i < pattern.length; i++) {
+			while (k > 0 && pattern[i] != pattern[k]) {
+				k = fallback[k - 1];
+			}
+			if (pattern[i] == pattern[k]) {
+				k++;
+			}
+			fallback[i] = k;
+		}
+		this.found = pattern.length == 0;
+	}
+
+	public boolean isFound() {
+		return found;
+	}
+
+	@Override
+	public void write(int b) {
+		if (found) {
+			return;
+		}
+		byte value = (byte) b;
+		while (matched > 0 && value != pattern[matched]) {
+			matched = fallback[matched - 1];
+		}
+		if (value == pattern[matched]) {
+			matched++;
+		}
+		if (matched == pattern.length) {
+			found = true;
+		}
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) {
+		for (int i = off; i < off + len && !found; i++) {
+			write(b[i]);
+		}
+	}
+}
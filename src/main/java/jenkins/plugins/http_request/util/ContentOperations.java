@@ -0,0 +1,157 @@
+package jenkins.plugins.http_request.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+import net.sf.json.JSONException;
+import net.sf.json.JSONNull;
+import net.sf.json.JSONObject;
+
+import com.google.common.io.ByteStreams;
+
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+
+/**
+ * Reads a part of a response body, wherever it is: the callables run on the node which keeps the body in a file,
+ * only their result is sent back.
+ */
+public final class ContentOperations {
+
+	private ContentOperations() {
+	}
+
+	/**
+	 * @return the hexadecimal digest of the content
+	 */
+	public static String hash(InputStream in, String algorithm) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance(algorithm);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IOException("Unknown hash algorithm " + algorithm, e);
+		}
+		byte[] buffer = new byte[8192];
+		int read;
+		while ((read = in.read(buffer)) != -1) {
+			digest.update(buffer, 0, read);
+		}
+		return hex(digest.digest());
+	}
+
+	static String hex(byte[] digest) {
+		StringBuilder hex = new StringBuilder();
+		for (byte b : digest) {
+			hex.append(String.format("%02x", b));
+		}
+		return hex.toString();
+	}
+
+	/**
+	 * @return at most length bytes from the offset, fewer at the end of the content
+	 */
+	public static byte[] slice(InputStream in, long offset, int length) throws IOException {
+		for (long left = offset; left > 0; ) {
+			long skipped = in.skip(left);
+			if (skipped <= 0) {
+				if (in.read() == -1) {
+					return new byte[0];
+				}
+				skipped = 1;
+			}
+			left -= skipped;
+		}
+		byte[] bytes = new byte[Math.max(0, length)];
+		int read = 0;
+		while (read < bytes.length) {
+			int count = in.read(bytes, read, bytes.length - read);
+			if (count == -1) {
+				return Arrays.copyOf(bytes, read);
+			}
+			read += count;
+		}
+		return bytes;
+	}
+
+	/**
+	 * @return the value of the field at the dot separated path of a JSON object, null when it is missing
+	 */
+	public static String jsonField(String content, String path) throws IOException {
+		Object value;
+		try {
+			value = field(JSONObject.fromObject(content), path);
+		} catch (JSONException e) {
+			throw new IOException("The content is not a JSON object, its field '" + path + "' cannot be read", e);
+		}
+		return value == null || JSONNull.getInstance().equals(value) ? null : value.toString();
+	}
+
+	/**
+	 * @return the field at the dot separated path, null when one of the fields is missing
+	 */
+	static Object field(Object json, String path) {
+		Object value = json;
+		for (String field : path.split("\\.")) {
+			value = value instanceof JSONObject ? ((JSONObject) value).opt(field) : null;
+		}
+		return value;
+	}
+
+	public static final class Hash extends MasterToSlaveFileCallable<String> {
+		private static final long serialVersionUID = 1L;
+		private final String algorithm;
+
+		public Hash(String algorithm) {
+			this.algorithm = algorithm;
+		}
+
+		@Override
+		public String invoke(File f, VirtualChannel channel) throws IOException {
+			try (InputStream in = new FileInputStream(f)) {
+				return hash(in, algorithm);
+			}
+		}
+	}
+
+	public static final class Slice extends MasterToSlaveFileCallable<byte[]> {
+		private static final long serialVersionUID = 1L;
+		private final long offset;
+		private final int length;
+
+		public Slice(long offset, int length) {
+			this.offset = offset;
+			this.length = length;
+		}
+
+		@Override
+		public byte[] invoke(File f, VirtualChannel channel) throws IOException {
+			try (InputStream in = new FileInputStream(f)) {
+				return slice(in, offset, (int) Math.min(length, Math.max(0, f.length() - offset)));
+			}
+		}
+	}
+
+	public static final class JsonField extends MasterToSlaveFileCallable<String> {
+		private static final long serialVersionUID = 1L;
+		private final String charset;
+		private final String path;
+
+		public JsonField(String charset, String path) {
+			this.charset = charset;
+			this.path = path;
+		}
+
+		@Override
+		public String invoke(File f, VirtualChannel channel) throws IOException {
+			try (InputStream in = new FileInputStream(f)) {
+				return jsonField(new String(ByteStreams.toByteArray(in), Charset.forName(charset)), path);
+			}
+		}
+	}
+}
@@ -0,0 +1,376 @@
+package jenkins.plugins.http_request.util;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.entity.InputStreamEntity;
+import org.apache.http.util.EntityUtils;
+
+import com.google.common.io.ByteStreams;
+
+/**
+ * Node local cache of responses kept on disk, it survives restarts.
+ * <p>
+ * Fresh responses are served without sending the request, stale ones are revalidated with If-None-Match and
+ * If-Modified-Since, see {@link CacheEntry}. The least recently used responses are evicted once the content held
+ * goes over the max size. Successful requests with other methods than GET and HEAD invalidate the responses of
+ * their url. The counters are published over JMX as jenkins.plugins.http_request:type=ResponseCache.
+ * <p>
+ * Each response is kept in two files named after the hash of its key: the {@link CacheEntry} as text and the
+ * content. The key is made of the method, the url and a hash of the headers and authenticator of the request, so
+ * that header values, secrets included, are not written to disk.
+ */
+public final class DiskResponseCache {
+
+	private static final Logger LOGGER = Logger.getLogger(DiskResponseCache.class.getName());
+	private static final String ENTRY = ".entry";
+	private static final String CONTENT = ".content";
+
+	private static final Map<File, DiskResponseCache> CACHES = new HashMap<>();
+	private static ResponseCacheStatistics statistics;
+
+	private final File directory;
+	private final LinkedHashMap<String, CacheEntry> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private long maxSize;
+	private long size;
+	private boolean loaded;
+
+	private DiskResponseCache(File directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * @param maxSize bytes of content held at most
+	 */
+	public static synchronized DiskResponseCache get(File directory, long maxSize) {
+		if (statistics == null) {
+			statistics = new ResponseCacheStatistics("ResponseCache");
+		}
+		DiskResponseCache cache = CACHES.get(directory);
+		if (cache == null) {
+			cache = new DiskResponseCache(directory);
+			CACHES.put(directory, cache);
+		}
+		cache.resize(maxSize);
+		return cache;
+	}
+
+	/**
+	 * @return the counters of the disk caches of this JVM, null before the first use
+	 */
+	public static synchronized ResponseCacheStatisticsMXBean getStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * @param authenticator responses are only shared between requests with the same authenticator
+	 * @param upstream      sends the request, maybe made conditional
+	 */
+	public HttpResponse execute(HttpRequestBase request, String authenticator, RequestCoalescer.Upstream upstream,
+								PrintStream logger) throws IOException, InterruptedException {
+		String method = request.getMethod();
+		if (!"GET".equals(method)) {
+			HttpResponse response = upstream.execute();
+			if (!"HEAD".equals(method) && response.getStatusLine().getStatusCode() < 400) {
+				invalidate(request.getURI());
+			}
+			return response;
+		}
+
+		String key = method + " " + request.getURI() + " " + hash(RequestCoalescer.key(request, authenticator));
+		CacheEntry entry = lookup(key, request);
+		long requestTime = System.currentTimeMillis();
+		if (entry != null && entry.isFresh(requestTime, request)) {
+			HttpResponse cached = open(entry, requestTime);
+			if (cached != null) {
+				statistics.hit();
+				logger.println("Response served from the cache, age " + cached.getFirstHeader("Age").getValue() + "s");
+				return cached;
+			}
+			entry = null;
+		}
+
+		boolean revalidating = entry != null && entry.canRevalidate();
+		HttpResponse response;
+		if (revalidating) {
+			entry.addValidators(request);
+			try {
+				response = upstream.execute();
+			} finally {
+				CacheEntry.removeValidators(request);
+			}
+		} else {
+			response = upstream.execute();
+		}
+		long responseTime = System.currentTimeMillis();
+
+		if (!revalidating) {
+			statistics.miss();
+		} else if (response.getStatusLine().getStatusCode() == 304) {
+			statistics.revalidation(false);
+			release(response);
+			entry.update(response, requestTime, responseTime);
+			HttpResponse cached = open(entry, responseTime);
+			if (cached != null) {
+				write(entry);
+				logger.println("Cached response revalidated, not modified");
+				return cached;
+			}
+			//the content is gone, the request is sent as is
+			response = upstream.execute();
+		} else {
+			statistics.revalidation(true);
+		}
+
+		if (!CacheEntry.isStorable(request, response)) {
+			return response;
+		}
+		return store(new CacheEntry(key, request, response, requestTime, responseTime), response);
+	}
+
+	private synchronized void resize(long maxSize) {
+		this.maxSize = maxSize;
+		evict();
+	}
+
+	private synchronized CacheEntry lookup(String key, HttpRequestBase request) {
+		load();
+		CacheEntry entry = entries.get(key);
+		if (entry == null || !entry.matches(request)) {
+			return null;
+		}
+		//the last modification of the entry keeps the order of use for the next start
+		if (!file(entry, ENTRY).setLastModified(System.currentTimeMillis())) {
+			LOGGER.log(Level.FINE, "Unable to touch {0}", entry);
+		}
+		return entry;
+	}
+
+	private HttpResponse store(CacheEntry entry, HttpResponse response) throws IOException {
+		HttpEntity entity = response.getEntity();
+		if (entity != null && entity.getContentLength() > maxSize) {
+			return response;
+		}
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Unable to create the response cache " + directory);
+		}
+
+		File temp = File.createTempFile("response", ".tmp", directory);
+		long length = 0;
+		try {
+			if (entity != null) {
+				try (InputStream in = entity.getContent(); OutputStream out = new FileOutputStream(temp)) {
+					length = ByteStreams.copy(in, out);
+				}
+			}
+		} catch (IOException e) {
+			delete(temp);
+			throw e;
+		} finally {
+			release(response);
+		}
+		entry.setSize(length);
+
+		if (length > maxSize) {
+			//too large to be kept, served once from the temporary file
+			return entry.toResponse(System.currentTimeMillis(), new InputStreamEntity(deleteOnClose(temp), length));
+		}
+		synchronized (this) {
+			remove(entry.getKey());
+			File content = file(entry, CONTENT);
+			//a cache write problem doesn't fail the request, such as a content still open on Windows
+			if (!temp.renameTo(content)) {
+				LOGGER.log(Level.FINE, "Unable to store the response in {0}", content);
+				return entry.toResponse(System.currentTimeMillis(), new InputStreamEntity(deleteOnClose(temp), length));
+			}
+			try {
+				write(entry);
+			} catch (IOException e) {
+				LOGGER.log(Level.FINE, "Unable to store the response " + entry, e);
+				return entry.toResponse(System.currentTimeMillis(), new InputStreamEntity(deleteOnClose(content), length));
+			}
+			entries.put(entry.getKey(), entry);
+			size += length;
+			evict();
+		}
+		HttpResponse cached = open(entry, System.currentTimeMillis());
+		if (cached == null) {
+			throw new IOException("Response evicted from the cache while stored " + entry);
+		}
+		return cached;
+	}
+
+	/**
+	 * @return null when the content is gone
+	 */
+	private HttpResponse open(CacheEntry entry, long now) {
+		try {
+			InputStream in = new FileInputStream(file(entry, CONTENT));
+			return entry.toResponse(now, new InputStreamEntity(in, entry.getSize()));
+		} catch (IOException e) {
+			LOGGER.log(Level.FINE, "Content of " + entry + " is gone", e);
+			synchronized (this) {
+				remove(entry.getKey());
+			}
+			return null;
+		}
+	}
+
+	private synchronized void invalidate(URI uri) {
+		load();
+		String url = " " + uri + " ";
+		for (CacheEntry entry : new ArrayList<>(entries.values())) {
+			if (entry.getKey().contains(url)) {
+				remove(entry.getKey());
+			}
+		}
+	}
+
+	private void remove(String key) {
+		CacheEntry entry = entries.remove(key);
+		if (entry != null) {
+			size -= entry.getSize();
+			delete(file(entry, ENTRY));
+			delete(file(entry, CONTENT));
+			statistics.resize(entries.size(), size);
+		}
+	}
+
+	private void evict() {
+		Iterator<CacheEntry> eldest = entries.values().iterator();
+		while (size > maxSize && eldest.hasNext()) {
+			CacheEntry entry = eldest.next();
+			eldest.remove();
+			size -= entry.getSize();
+			delete(file(entry, ENTRY));
+			delete(file(entry, CONTENT));
+			statistics.eviction();
+		}
+		statistics.resize(entries.size(), size);
+	}
+
+	/**
+	 * Reads the entries kept by a previous run, from the least recently used.
+	 */
+	private void load() {
+		if (loaded) {
+			return;
+		}
+		loaded = true;
+		File[] files = directory.listFiles();
+		if (files == null) {
+			return;
+		}
+		Arrays.sort(files, new Comparator<File>() {
+			@Override
+			public int compare(File a, File b) {
+				return Long.compare(a.lastModified(), b.lastModified());
+			}
+		});
+		for (File file : files) {
+			if (file.getName().endsWith(".tmp")) {
+				delete(file);
+			} else if (file.getName().endsWith(ENTRY)) {
+				try (BufferedReader in = new BufferedReader(
+						new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+					CacheEntry entry = CacheEntry.readFrom(in);
+					if (file(entry, CONTENT).isFile()) {
+						entries.put(entry.getKey(), entry);
+						size += entry.getSize();
+						continue;
+					}
+				} catch (IOException e) {
+					LOGGER.log(Level.FINE, "Unable to read the cached response " + file, e);
+				}
+				delete(file);
+			}
+		}
+		evict();
+	}
+
+	private void write(CacheEntry entry) throws IOException {
+		File temp = File.createTempFile("entry", ".tmp", directory);
+		try (Writer out = new OutputStreamWriter(new FileOutputStream(temp), StandardCharsets.UTF_8)) {
+			entry.writeTo(out);
+		}
+		File file = file(entry, ENTRY);
+		delete(file);
+		if (!temp.renameTo(file)) {
+			delete(temp);
+			throw new IOException("Unable to store the response in " + file);
+		}
+	}
+
+	private File file(CacheEntry entry, String extension) {
+		return new File(directory, hash(entry.getKey()) + extension);
+	}
+
+	private static String hash(String key) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-1").digest(key.getBytes(StandardCharsets.UTF_8));
+			StringBuilder hex = new StringBuilder();
+			for (byte b : digest) {
+				hex.append(String.format("%02x", b));
+			}
+			return hex.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static InputStream deleteOnClose(final File file) throws IOException {
+		return new FilterInputStream(new FileInputStream(file)) {
+			@Override
+			public void close() throws IOException {
+				try {
+					super.close();
+				} finally {
+					delete(file);
+				}
+			}
+		};
+	}
+
+	/**
+	 * Gives the connection back to the pool.
+	 */
+	private static void release(HttpResponse response) throws IOException {
+		EntityUtils.consume(response.getEntity());
+		if (response instanceof Closeable) {
+			((Closeable) response).close();
+		}
+	}
+
+	private static void delete(File file) {
+		if (file.exists() && !file.delete()) {
+			LOGGER.log(Level.FINE, "Unable to delete {0}", file);
+		}
+	}
+}
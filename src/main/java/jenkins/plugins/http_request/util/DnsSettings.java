@@ -0,0 +1,86 @@
+package jenkins.plugins.http_request.util;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Name resolution settings taken from the global configuration on the master and shipped with
+ * each request to the node that executes it.
+ */
+public final class DnsSettings implements Serializable {
+
+	private static final long serialVersionUID = -3518937745716283145L;
+
+	private final int positiveTtl;
+	private final int negativeTtl;
+	private final boolean prefetch;
+	private final HashMap<String, ArrayList<String>> overrides;
+
+	/**
+	 * @param positiveTtl seconds a resolved host is cached, 0 disables the cache
+	 * @param negativeTtl seconds an unknown host is cached, 0 disables the cache of failures
+	 * @param prefetch    whether hosts in use are resolved again in background before they expire
+	 * @param overrides   addresses used for the given hosts instead of resolving them
+	 */
+	public DnsSettings(int positiveTtl, int negativeTtl, boolean prefetch, List<HostAddressOverride> overrides) {
+		this.positiveTtl = positiveTtl;
+		this.negativeTtl = negativeTtl;
+		this.prefetch = prefetch;
+		this.overrides = new HashMap<>();
+		for (HostAddressOverride override : overrides) {
+			this.overrides.put(override.getHost().trim().toLowerCase(Locale.ENGLISH), override.resolveAddresses());
+		}
+	}
+
+	public int getPositiveTtl() {
+		return positiveTtl;
+	}
+
+	public int getNegativeTtl() {
+		return negativeTtl;
+	}
+
+	public boolean isPrefetch() {
+		return prefetch;
+	}
+
+	/**
+	 * @return the ip addresses configured for this host, null when it must be resolved
+	 */
+	public List<String> getOverride(String host) {
+		return overrides.get(host.toLowerCase(Locale.ENGLISH));
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (!(o instanceof DnsSettings)) {
+			return false;
+		}
+		DnsSettings that = (DnsSettings) o;
+		return positiveTtl == that.positiveTtl
+				&& negativeTtl == that.negativeTtl
+				&& prefetch == that.prefetch
+				&& overrides.equals(that.overrides);
+	}
+
+	@Override
+	public int hashCode() {
+		int result = positiveTtl;
+		result = 31 * result + negativeTtl;
+		result = 31 * result + (prefetch ? 1 : 0);
+		result = 31 * result + overrides.hashCode();
+		return result;
+	}
+
+	@Override
+	public String toString() {
+		return "positiveTtl=" + positiveTtl + ", negativeTtl=" + negativeTtl +
+				", prefetch=" + prefetch + ", overrides=" + overrides;
+	}
+}
@@ -0,0 +1,246 @@
+package jenkins.plugins.http_request.util;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpHost;
+import org.apache.http.config.Lookup;
+import org.apache.http.config.SocketConfig;
+import org.apache.http.conn.DnsResolver;
+import org.apache.http.conn.ManagedHttpClientConnection;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.impl.conn.DefaultHttpClientConnectionOperator;
+import org.apache.http.impl.conn.DefaultSchemePortResolver;
+import org.apache.http.protocol.HttpContext;
+
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+
+/**
+ * Connects to a host with several addresses the way RFC 8305 (happy eyeballs) does.
+ * <p>
+ * Addresses are tried in the order of the resolver with address families interleaved. A new attempt starts
+ * when the previous one failed or did not connect within the attempt delay, the first connected socket is kept
+ * and the others are closed, the ones still connecting included. A blackholed address then costs the attempt delay
+ * instead of the connect timeout.
+ * Without attempt delay addresses are tried one after the other.
+ */
+final class HappyEyeballsConnectionOperator extends DefaultHttpClientConnectionOperator {
+
+	private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(
+			new NamingThreadFactory(new DaemonThreadFactory(), "HttpRequest connect"));
+
+	private final Lookup<ConnectionSocketFactory> socketFactoryRegistry;
+	private final DnsResolver dnsResolver;
+	private volatile int attemptDelay;
+
+	HappyEyeballsConnectionOperator(Lookup<ConnectionSocketFactory> socketFactoryRegistry, DnsResolver dnsResolver) {
+		super(socketFactoryRegistry, DefaultSchemePortResolver.INSTANCE, dnsResolver);
+		this.socketFactoryRegistry = socketFactoryRegistry;
+		this.dnsResolver = dnsResolver;
+	}
+
+	/**
+	 * @param attemptDelay milliseconds before the next address is tried, 0 tries addresses one after the other
+	 */
+	void setAttemptDelay(int attemptDelay) {
+		this.attemptDelay = attemptDelay;
+	}
+
+	@Override
+	public void connect(ManagedHttpClientConnection conn, HttpHost host, InetSocketAddress localAddress,
+						int connectTimeout, SocketConfig socketConfig, HttpContext context) throws IOException {
+		int delay = attemptDelay;
+		ConnectionSocketFactory sf = socketFactoryRegistry.lookup(host.getSchemeName());
+		if (delay <= 0 || sf == null || host.getAddress() != null) {
+			super.connect(conn, host, localAddress, connectTimeout, socketConfig, context);
+			return;
+		}
+		InetAddress[] addresses = dnsResolver.resolve(host.getHostName());
+		if (addresses.length < 2) {
+			super.connect(conn, host, localAddress, connectTimeout, socketConfig, context);
+			return;
+		}
+
+		int port = DefaultSchemePortResolver.INSTANCE.resolve(host);
+		Race race = new Race(sf, host, port, localAddress, connectTimeout, socketConfig, context);
+		conn.bind(race.run(interleave(addresses), delay));
+	}
+
+	/**
+	 * @return the addresses in resolver order, alternating between the address families
+	 */
+	static List<InetAddress> interleave(InetAddress[] addresses) {
+		LinkedList<InetAddress> first = new LinkedList<>();
+		LinkedList<InetAddress> second = new LinkedList<>();
+		boolean firstIsV6 = addresses[0] instanceof Inet6Address;
+		for (InetAddress address : addresses) {
+			if ((address instanceof Inet6Address) == firstIsV6) {
+				first.add(address);
+			} else {
+				second.add(address);
+			}
+		}
+		List<InetAddress> ordered = new ArrayList<>(addresses.length);
+		while (!first.isEmpty() || !second.isEmpty()) {
+			if (!first.isEmpty()) {
+				ordered.add(first.removeFirst());
+			}
+			if (!second.isEmpty()) {
+				ordered.add(second.removeFirst());
+			}
+		}
+		return ordered;
+	}
+
+	private static final class Race {
+		private final ConnectionSocketFactory sf;
+		private final HttpHost host;
+		private final int port;
+		private final InetSocketAddress localAddress;
+		private final int connectTimeout;
+		private final SocketConfig socketConfig;
+		private final HttpContext context;
+
+		//sockets of the attempts, connected or still connecting
+		private final List<Socket> sockets = new ArrayList<>();
+		private boolean finished;
+
+		private Race(ConnectionSocketFactory sf, HttpHost host, int port, InetSocketAddress localAddress,
+					 int connectTimeout, SocketConfig socketConfig, HttpContext context) {
+			this.sf = sf;
+			this.host = host;
+			this.port = port;
+			this.localAddress = localAddress;
+			this.connectTimeout = connectTimeout;
+			this.socketConfig = socketConfig;
+			this.context = context;
+		}
+
+		private Socket run(List<InetAddress> addresses, int delay) throws IOException {
+			CompletionService<Socket> attempts = new ExecutorCompletionService<>(EXECUTOR);
+			List<Future<Socket>> futures = new ArrayList<>();
+			Socket winner = null;
+			IOException failure = null;
+			int next = 0;
+			int pending = 0;
+			try {
+				while (true) {
+					if (next < addresses.size()) {
+						futures.add(attempts.submit(attempt(addresses.get(next++))));
+						pending++;
+					}
+					Future<Socket> done = next < addresses.size() ?
+							attempts.poll(delay, TimeUnit.MILLISECONDS) : attempts.take();
+					if (done == null) {
+						//no answer within the delay, start the next attempt
+						continue;
+					}
+					pending--;
+					try {
+						winner = done.get();
+						return winner;
+					} catch (ExecutionException e) {
+						failure = e.getCause() instanceof IOException ?
+								(IOException) e.getCause() : new IOException(e.getCause());
+						if (pending == 0 && next == addresses.size()) {
+							throw failure;
+						}
+					}
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted connecting to " + host);
+			} finally {
+				for (Future<Socket> future : futures) {
+					future.cancel(false);
+				}
+				synchronized (this) {
+					finished = true;
+					//closing a socket still connecting ends its attempt
+					for (Socket socket : sockets) {
+						if (socket != winner) {
+							closeQuietly(socket);
+						}
+					}
+				}
+			}
+		}
+
+		private Callable<Socket> attempt(final InetAddress address) {
+			return new Callable<Socket>() {
+				@Override
+				public Socket call() throws IOException {
+					Socket sock = sf.createSocket(context);
+					if (!register(sock)) {
+						throw new InterruptedIOException("Connected to " + host + " with another address");
+					}
+					try {
+						configure(sock);
+						sock = sf.connectSocket(connectTimeout, sock, host, new InetSocketAddress(address, port),
+								localAddress, context);
+					} catch (IOException | RuntimeException e) {
+						closeQuietly(sock);
+						throw e;
+					}
+					//the connected socket may be a layered one
+					if (!register(sock)) {
+						throw new InterruptedIOException("Connected to " + host + " with another address");
+					}
+					return sock;
+				}
+			};
+		}
+
+		/**
+		 * @return false, with the socket closed, when the race is already over
+		 */
+		private synchronized boolean register(Socket sock) {
+			if (finished) {
+				closeQuietly(sock);
+				return false;
+			}
+			sockets.add(sock);
+			return true;
+		}
+
+		private void configure(Socket sock) throws IOException {
+			sock.setSoTimeout(socketConfig.getSoTimeout());
+			sock.setReuseAddress(socketConfig.isSoReuseAddress());
+			sock.setTcpNoDelay(socketConfig.isTcpNoDelay());
+			sock.setKeepAlive(socketConfig.isSoKeepAlive());
+			if (socketConfig.getRcvBufSize() > 0) {
+				sock.setReceiveBufferSize(socketConfig.getRcvBufSize());
+			}
+			if (socketConfig.getSndBufSize() > 0) {
+				sock.setSendBufferSize(socketConfig.getSndBufSize());
+			}
+			if (socketConfig.getSoLinger() >= 0) {
+				sock.setSoLinger(true, socketConfig.getSoLinger());
+			}
+		}
+
+		private static void closeQuietly(Socket socket) {
+			try {
+				socket.close();
+			} catch (IOException ignored) {
+				// nothing to release
+			}
+		}
+	}
+}
@@ -0,0 +1,78 @@
+package jenkins.plugins.http_request.util;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * When duplicates of a slow request are sent and where to, shipped with each request to the node that executes it.
+ */
+public final class HedgePolicy implements Serializable {
+
+	private static final long serialVersionUID = 5120943871266530485L;
+
+	public static final HedgePolicy NONE = new HedgePolicy(0, false, 0, null);
+
+	private final long delay;
+	private final boolean observedDelay;
+	private final int maxHedges;
+	private final ArrayList<String> urls;
+
+	/**
+	 * @param delay         milliseconds waited for a response before a duplicate is sent
+	 * @param observedDelay waits the 95th percentile of the response times of the host instead, once known
+	 * @param maxHedges     duplicates sent at most
+	 * @param urls          comma or space separated mirrors the duplicates are sent to in turn,
+	 *                      the duplicates are sent to the same url without mirrors
+	 */
+	public HedgePolicy(long delay, boolean observedDelay, int maxHedges, String urls) {
+		this.delay = Math.max(0, delay);
+		this.observedDelay = observedDelay;
+		this.maxHedges = delay > 0 || observedDelay ? Math.max(0, maxHedges) : 0;
+		this.urls = new ArrayList<>();
+		if (urls != null) {
+			for (String url : urls.split("[\\s,]+")) {
+				if (!url.isEmpty()) {
+					this.urls.add(url);
+				}
+			}
+		}
+	}
+
+	public boolean isEnabled() {
+		return maxHedges > 0;
+	}
+
+	public int getMaxHedges() {
+		return maxHedges;
+	}
+
+	public boolean isObservedDelay() {
+		return observedDelay;
+	}
+
+	/**
+	 * @return milliseconds waited before a duplicate is sent to the host, 0 when none should be sent
+	 */
+	public long getDelay(String host) {
+		if (observedDelay) {
+			long p95 = LatencyTracker.forHost(host).getPercentile(95);
+			if (p95 >= 0) {
+				return Math.max(1, p95);
+			}
+		}
+		return delay;
+	}
+
+	/**
+	 * @return the url of the duplicate, starting at 1
+	 */
+	public String getUrl(int hedge, String url) {
+		return urls.isEmpty() ? url : urls.get((hedge - 1) % urls.size());
+	}
+
+	@Override
+	public String toString() {
+		return "delay=" + delay + ", observedDelay=" + observedDelay + ", maxHedges=" + maxHedges + ", urls=" + urls;
+	}
+}
@@ -0,0 +1,71 @@
+package jenkins.plugins.http_request.util;
+
+import java.util.ArrayList;
+
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.QueryParameter;
+
+import com.google.common.net.InetAddresses;
+
+import hudson.Extension;
+import hudson.model.AbstractDescribableImpl;
+import hudson.model.Descriptor;
+import hudson.util.FormValidation;
+
+/**
+ * Ip addresses used for a host instead of resolving it, like the --resolve option of curl.
+ */
+public class HostAddressOverride extends AbstractDescribableImpl<HostAddressOverride> {
+
+	private final String host;
+	private final String addresses;
+
+	@DataBoundConstructor
+	public HostAddressOverride(String host, String addresses) {
+		this.host = host;
+		this.addresses = addresses;
+	}
+
+	public String getHost() {
+		return host;
+	}
+
+	public String getAddresses() {
+		return addresses;
+	}
+
+	ArrayList<String> resolveAddresses() {
+		ArrayList<String> list = new ArrayList<>();
+		for (String address : addresses.split(",")) {
+			if (!address.trim().isEmpty()) {
+				list.add(address.trim());
+			}
+		}
+		return list;
+	}
+
+	@Extension
+	public static class HostAddressOverrideDescriptor extends Descriptor<HostAddressOverride> {
+
+		@Override
+		public String getDisplayName() {
+			return "Host Address Override";
+		}
+
+		public FormValidation doCheckHost(@QueryParameter String value) {
+			return FormValidation.validateRequired(value);
+		}
+
+		public FormValidation doCheckAddresses(@QueryParameter String value) {
+			if (value == null || value.trim().isEmpty()) {
+				return FormValidation.error("At least one ip address is required");
+			}
+			for (String address : value.split(",")) {
+				if (!address.trim().isEmpty() && !InetAddresses.isInetAddress(address.trim())) {
+					return FormValidation.error("Not an ip address: " + address.trim());
+				}
+			}
+			return FormValidation.ok();
+		}
+	}
+}
@@ -0,0 +1,87 @@
+package jenkins.plugins.http_request.util;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.QueryParameter;
+
+import hudson.Extension;
+import hudson.model.AbstractDescribableImpl;
+import hudson.model.Descriptor;
+import hudson.util.FormValidation;
+
+/**
+ * Max number of requests running at the same time to a host or to urls starting with a prefix.
+ */
+public class HostConcurrencyLimit extends AbstractDescribableImpl<HostConcurrencyLimit> {
+
+	private final String target;
+	private final int maxConcurrentRequests;
+	private final int maxWait;
+
+	@DataBoundConstructor
+	public HostConcurrencyLimit(String target, int maxConcurrentRequests, int maxWait) {
+		this.target = target;
+		this.maxConcurrentRequests = maxConcurrentRequests;
+		this.maxWait = maxWait;
+	}
+
+	/**
+	 * @return a host name, or an url prefix when it contains a scheme
+	 */
+	public String getTarget() {
+		return target;
+	}
+
+	public int getMaxConcurrentRequests() {
+		return maxConcurrentRequests;
+	}
+
+	/**
+	 * @return seconds a request waits for its turn before failing
+	 */
+	public int getMaxWait() {
+		return maxWait;
+	}
+
+	public boolean matches(String url) {
+		return matches(target, url);
+	}
+
+	/**
+	 * @param target a host name, or an url prefix when it contains a scheme
+	 */
+	static boolean matches(String target, String url) {
+		target = target.trim();
+		if (target.contains("://")) {
+			return url.regionMatches(true, 0, target, 0, target.length());
+		}
+		try {
+			return target.equalsIgnoreCase(new URL(url).getHost());
+		} catch (MalformedURLException e) {
+			return false;
+		}
+	}
+
+	@Extension
+	public static class HostConcurrencyLimitDescriptor extends Descriptor<HostConcurrencyLimit> {
+
+		@Override
+		public String getDisplayName() {
+			return "Host Concurrency Limit";
+		}
+
+		public FormValidation doCheckTarget(@QueryParameter String value) {
+			return FormValidation.validateRequired(value);
+		}
+
+		public FormValidation doCheckMaxConcurrentRequests(@QueryParameter String value) {
+			return FormValidation.validatePositiveInteger(value);
+		}
+
+		public FormValidation doCheckMaxWait(@QueryParameter String value) {
+			return FormValidation.validateNonNegativeInteger(value);
+		}
+	}
+}
@@ -0,0 +1,49 @@
+package jenkins.plugins.http_request.util;
+
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.QueryParameter;
+
+import hudson.Extension;
+import hudson.model.AbstractDescribableImpl;
+import hudson.model.Descriptor;
+import hudson.util.FormValidation;
+
+/**
+ * Number of pooled connections kept to a host heavily used by builds, overriding the default per host limit.
+ */
+public class HostConnectionLimit extends AbstractDescribableImpl<HostConnectionLimit> {
+
+	private final String host;
+	private final int maxConnections;
+
+	@DataBoundConstructor
+	public HostConnectionLimit(String host, int maxConnections) {
+		this.host = host;
+		this.maxConnections = maxConnections;
+	}
+
+	public String getHost() {
+		return host;
+	}
+
+	public int getMaxConnections() {
+		return maxConnections;
+	}
+
+	@Extension
+	public static class HostConnectionLimitDescriptor extends Descriptor<HostConnectionLimit> {
+
+		@Override
+		public String getDisplayName() {
+			return "Host Connection Limit";
+		}
+
+		public FormValidation doCheckHost(@QueryParameter String value) {
+			return FormValidation.validateRequired(value);
+		}
+
+		public FormValidation doCheckMaxConnections(@QueryParameter String value) {
+			return FormValidation.validatePositiveInteger(value);
+		}
+	}
+}
@@ -0,0 +1,95 @@
+package jenkins.plugins.http_request.util;
+
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.QueryParameter;
+
+import hudson.Extension;
+import hudson.model.AbstractDescribableImpl;
+import hudson.model.Descriptor;
+import hudson.util.FormValidation;
+
+/**
+ * Max rate of requests sent to a host or to urls starting with a prefix.
+ */
+public class HostRateLimit extends AbstractDescribableImpl<HostRateLimit> {
+
+	private final String target;
+	private final int requests;
+	private final int period;
+	private final int burst;
+	private final int maxWait;
+
+	@DataBoundConstructor
+	public HostRateLimit(String target, int requests, int period, int burst, int maxWait) {
+		this.target = target;
+		this.requests = requests;
+		this.period = period;
+		this.burst = burst;
+		this.maxWait = maxWait;
+	}
+
+	/**
+	 * @return a host name, or an url prefix when it contains a scheme
+	 */
+	public String getTarget() {
+		return target;
+	}
+
+	public int getRequests() {
+		return requests;
+	}
+
+	/**
+	 * @return seconds in which {@link #getRequests()} requests may be sent
+	 */
+	public int getPeriod() {
+		return period;
+	}
+
+	/**
+	 * @return requests that may be sent at once after an idle time, 0 sends them evenly
+	 */
+	public int getBurst() {
+		return burst;
+	}
+
+	/**
+	 * @return seconds a request waits for its turn before failing
+	 */
+	public int getMaxWait() {
+		return maxWait;
+	}
+
+	public boolean matches(String url) {
+		return HostConcurrencyLimit.matches(target, url);
+	}
+
+	@Extension
+	public static class HostRateLimitDescriptor extends Descriptor<HostRateLimit> {
+
+		@Override
+		public String getDisplayName() {
+			return "Host Rate Limit";
+		}
+
+		public FormValidation doCheckTarget(@QueryParameter String value) {
+			return FormValidation.validateRequired(value);
+		}
+
+		public FormValidation doCheckRequests(@QueryParameter String value) {
+			return FormValidation.validatePositiveInteger(value);
+		}
+
+		public FormValidation doCheckPeriod(@QueryParameter String value) {
+			return FormValidation.validatePositiveInteger(value);
+		}
+
+		public FormValidation doCheckBurst(@QueryParameter String value) {
+			return FormValidation.validateNonNegativeInteger(value);
+		}
+
+		public FormValidation doCheckMaxWait(@QueryParameter String value) {
+			return FormValidation.validateNonNegativeInteger(value);
+		}
+	}
+}
@@ -0,0 +1,449 @@
+package jenkins.plugins.http_request.util;
+
+import java.io.IOException;
+import java.net.ProxySelector;
+import java.security.KeyManagementException;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManager;
+
+import org.apache.http.HttpException;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.routing.HttpRoutePlanner;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.NoopHostnameVerifier;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.client.BasicCookieStore;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.DefaultProxyRoutePlanner;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.conn.SystemDefaultDnsResolver;
+import org.apache.http.impl.conn.SystemDefaultRoutePlanner;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
+import org.apache.http.impl.nio.conn.ManagedNHttpClientConnectionFactory;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.conn.NoopIOSessionStrategy;
+import org.apache.http.nio.conn.SchemeIOSessionStrategy;
+import org.apache.http.nio.conn.ssl.SSLIOSessionStrategy;
+import org.apache.http.nio.reactor.IOSession;
+import org.apache.http.pool.ConnPoolControl;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.ssl.SSLContexts;
+
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+
+import jenkins.plugins.http_request.HttpTransport;
+
+/**
+ * Node local registry of http clients.
+ * <p>
+ * Clients are kept for the life of the JVM executing the request (master or agent) and are keyed by their proxy,
+ * ssl configuration and timeout, at most {@link #MAX_CLIENTS} of them. The pool settings are the latest ones given,
+ * they only change when the global configuration is saved. All clients with the same ssl configuration share one
+ * {@link PoolingHttpClientConnectionManager}, so repeated requests to a host reuse open connections
+ * instead of doing the TCP and TLS handshakes again. A request waits for a free connection of the pool at most its
+ * timeout, or the connection request timeout of the settings without timeout.
+ * <p>
+ * Clients are shared between builds, anything bound to a single request (cookies, credentials) must be
+ * kept in the context created by {@link #newContext()}.
+ * <p>
+ * Non blocking clients are kept per ssl configuration only, a handful of I/O threads serve every request in
+ * flight. Their timeout and proxy are set per request with {@link #requestConfig(HttpHost, int, int)}.
+ * <p>
+ * Clients of the {@link HttpTransport#URL_CONNECTION} transport hold no connections, the JVM keeps them alive.
+ * <p>
+ * Every client with the same ssl configuration uses the same {@link SSLContext}, a new connection to a host
+ * resumes the TLS session of a previous one instead of doing a full handshake. See {@link TlsSessionStatistics}.
+ * <p>
+ * Hosts of new pooled connections are resolved by one {@link CachingDnsResolver} per node. Blocking clients
+ * connect to hosts with several addresses with a {@link HappyEyeballsConnectionOperator}.
+ */
+public final class HttpClientRegistry {
+
+	private static final Logger LOGGER = Logger.getLogger(HttpClientRegistry.class.getName());
+	private static final int EVICTION_INTERVAL_SECONDS = 5;
+	/**
+	 * Clients hold nothing but their configuration, the pools are shared: when there are more, the old ones are
+	 * dropped and collected once their requests are done.
+	 */
+	private static final int MAX_CLIENTS = 64;
+
+	private static final CachingDnsResolver DNS_RESOLVER = new CachingDnsResolver(SystemDefaultDnsResolver.INSTANCE);
+	private static final ConcurrentMap<Boolean, TlsConfig> TLS_CONFIGS = new ConcurrentHashMap<>();
+	private static final ConcurrentMap<Boolean, PoolingHttpClientConnectionManager> CONNECTION_MANAGERS = new ConcurrentHashMap<>();
+	private static final ConcurrentMap<Boolean, HappyEyeballsConnectionOperator> CONNECTION_OPERATORS = new ConcurrentHashMap<>();
+	private static final ConcurrentMap<ClientKey, CloseableHttpClient> CLIENTS = new ConcurrentHashMap<>();
+	private static final ConcurrentMap<ClientKey, CloseableHttpClient> URL_CONNECTION_CLIENTS = new ConcurrentHashMap<>();
+	private static final ConcurrentMap<Boolean, PoolingNHttpClientConnectionManager> ASYNC_CONNECTION_MANAGERS = new ConcurrentHashMap<>();
+	private static final ConcurrentMap<Boolean, CloseableHttpAsyncClient> ASYNC_CLIENTS = new ConcurrentHashMap<>();
+	private static volatile int idleConnectionTimeout;
+	private static volatile ConnectionPoolSettings latestSettings;
+	private static ScheduledExecutorService evictor;
+
+	private HttpClientRegistry() {
+	}
+
+	public static CloseableHttpClient getClient(HttpTransport transport, HttpHost proxy, boolean ignoreSslErrors,
+												int timeout, ConnectionPoolSettings settings)
+			throws NoSuchAlgorithmException, KeyManagementException {
+		if (transport != HttpTransport.URL_CONNECTION) {
+			return getClient(proxy, ignoreSslErrors, timeout, settings);
+		}
+
+		ClientKey key = new ClientKey(proxy, ignoreSslErrors, timeout);
+		CloseableHttpClient client = URL_CONNECTION_CLIENTS.get(key);
+		if (client == null) {
+			TlsConfig tls = tlsConfig(ignoreSslErrors);
+			client = new UrlConnectionHttpClient(proxy, requestConfig(null, timeout, settings.getConnectionRequestTimeout()),
+					tls.socketFactory, ignoreSslErrors ? NoopHostnameVerifier.INSTANCE : null);
+			bound(URL_CONNECTION_CLIENTS);
+			CloseableHttpClient existing = URL_CONNECTION_CLIENTS.putIfAbsent(key, client);
+			if (existing != null) {
+				client = existing;
+			}
+		}
+		return client;
+	}
+
+	public static CloseableHttpClient getClient(HttpHost proxy, boolean ignoreSslErrors, int timeout,
+												ConnectionPoolSettings settings)
+			throws NoSuchAlgorithmException, KeyManagementException {
+		ClientKey key = new ClientKey(proxy, ignoreSslErrors, timeout);
+		//applies the settings to the shared pool, even when the client is already there
+		PoolingHttpClientConnectionManager cm = connectionManager(ignoreSslErrors, settings);
+		CloseableHttpClient client = CLIENTS.get(key);
+		if (client != null) {
+			return client;
+		}
+
+		synchronized (CLIENTS) {
+			client = CLIENTS.get(key);
+			if (client == null) {
+				client = createClient(key, cm, settings);
+				bound(CLIENTS);
+				CLIENTS.put(key, client);
+			}
+			return client;
+		}
+	}
+
+	public static CloseableHttpAsyncClient getAsyncClient(boolean ignoreSslErrors, ConnectionPoolSettings settings)
+			throws IOException, NoSuchAlgorithmException, KeyManagementException {
+		synchronized (ASYNC_CLIENTS) {
+			CloseableHttpAsyncClient client = ASYNC_CLIENTS.get(ignoreSslErrors);
+			PoolingNHttpClientConnectionManager cm = ASYNC_CONNECTION_MANAGERS.get(ignoreSslErrors);
+			if (client == null || !client.isRunning()) {
+				DefaultConnectingIOReactor ioReactor = new DefaultConnectingIOReactor(IOReactorConfig.DEFAULT,
+						new NamingThreadFactory(new DaemonThreadFactory(), "HttpRequest I/O dispatcher"));
+				cm = new PoolingNHttpClientConnectionManager(ioReactor, ManagedNHttpClientConnectionFactory.INSTANCE,
+						sessionStrategyRegistry(ignoreSslErrors), DNS_RESOLVER);
+				client = HttpAsyncClientBuilder.create().useSystemProperties()
+						.setConnectionManager(cm)
+						.setRoutePlanner(new HostLimitRoutePlanner(new SystemDefaultRoutePlanner(ProxySelector.getDefault()), cm))
+						.setKeepAliveStrategy(new MaxKeepAliveStrategy())
+						.setThreadFactory(new NamingThreadFactory(new DaemonThreadFactory(), "HttpRequest I/O reactor"))
+						.build();
+				client.start();
+				ASYNC_CONNECTION_MANAGERS.put(ignoreSslErrors, cm);
+				ASYNC_CLIENTS.put(ignoreSslErrors, client);
+			}
+			cm.setMaxTotal(settings.getMaxConnections());
+			cm.setDefaultMaxPerRoute(settings.getMaxConnectionsPerRoute());
+			idleConnectionTimeout = settings.getIdleConnectionTimeout();
+			DNS_RESOLVER.setSettings(settings.getDnsSettings());
+			latestSettings = settings;
+			startEvictor();
+			return client;
+		}
+	}
+
+	/**
+	 * @param connectionRequestTimeout seconds a request without timeout waits at most for a connection of the pool
+	 * @return the request configuration of clients shared by every proxy and timeout
+	 */
+	public static RequestConfig requestConfig(HttpHost proxy, int timeout, int connectionRequestTimeout) {
+		RequestConfig.Builder config = RequestConfig.custom().setProxy(proxy)
+				.setConnectionRequestTimeout(Math.max(1, connectionRequestTimeout) * 1000);
+		if (timeout > 0) {
+			int t = timeout * 1000;
+			config.setSocketTimeout(t)
+					.setConnectTimeout(t)
+					.setConnectionRequestTimeout(t);
+		}
+		return config.build();
+	}
+
+	/**
+	 * @return a context holding its own cookie store, as clients are shared cookies must not leak between requests
+	 */
+	public static HttpClientContext newContext() {
+		HttpClientContext context = HttpClientContext.create();
+		context.setCookieStore(new BasicCookieStore());
+		return context;
+	}
+
+	private static CloseableHttpClient createClient(ClientKey key, PoolingHttpClientConnectionManager cm,
+													ConnectionPoolSettings settings) {
+		HttpRoutePlanner routePlanner = key.proxy != null ?
+				new DefaultProxyRoutePlanner(key.proxy) : new SystemDefaultRoutePlanner(ProxySelector.getDefault());
+		return HttpClientBuilder.create().useSystemProperties()
+				.setConnectionManager(cm)
+				.setConnectionManagerShared(true)
+				.setRoutePlanner(new HostLimitRoutePlanner(routePlanner, cm))
+				.setKeepAliveStrategy(new MaxKeepAliveStrategy())
+				//never waits forever for a connection of the pool, even without timeout
+				.setDefaultRequestConfig(requestConfig(null, key.timeout, settings.getConnectionRequestTimeout()))
+				.build();
+	}
+
+	private static void bound(ConcurrentMap<ClientKey, CloseableHttpClient> clients) {
+		if (clients.size() >= MAX_CLIENTS) {
+			LOGGER.log(Level.FINE, "Dropping {0} http clients", clients.size());
+			clients.clear();
+		}
+	}
+
+	private static PoolingHttpClientConnectionManager connectionManager(boolean ignoreSslErrors, ConnectionPoolSettings settings)
+			throws NoSuchAlgorithmException, KeyManagementException {
+		synchronized (CONNECTION_MANAGERS) {
+			PoolingHttpClientConnectionManager cm = CONNECTION_MANAGERS.get(ignoreSslErrors);
+			HappyEyeballsConnectionOperator operator = CONNECTION_OPERATORS.get(ignoreSslErrors);
+			if (cm == null) {
+				operator = new HappyEyeballsConnectionOperator(socketFactoryRegistry(ignoreSslErrors), DNS_RESOLVER);
+				cm = new PoolingHttpClientConnectionManager(operator, null, -1, TimeUnit.MILLISECONDS);
+				CONNECTION_OPERATORS.put(ignoreSslErrors, operator);
+				CONNECTION_MANAGERS.put(ignoreSslErrors, cm);
+			}
+			operator.setAttemptDelay(settings.getConnectAttemptDelay());
+			//the latest settings win, they only change when the global configuration is saved
+			cm.setMaxTotal(settings.getMaxConnections());
+			cm.setDefaultMaxPerRoute(settings.getMaxConnectionsPerRoute());
+			idleConnectionTimeout = settings.getIdleConnectionTimeout();
+			DNS_RESOLVER.setSettings(settings.getDnsSettings());
+			latestSettings = settings;
+			startEvictor();
+			return cm;
+		}
+	}
+
+	private static Registry<ConnectionSocketFactory> socketFactoryRegistry(boolean ignoreSslErrors)
+			throws NoSuchAlgorithmException, KeyManagementException {
+		return RegistryBuilder.<ConnectionSocketFactory>create()
+				.register("http", PlainConnectionSocketFactory.getSocketFactory())
+				.register("https", tlsConfig(ignoreSslErrors).connectionSocketFactory)
+				.build();
+	}
+
+	private static Registry<SchemeIOSessionStrategy> sessionStrategyRegistry(boolean ignoreSslErrors)
+			throws NoSuchAlgorithmException, KeyManagementException {
+		return RegistryBuilder.<SchemeIOSessionStrategy>create()
+				.register("http", NoopIOSessionStrategy.INSTANCE)
+				.register("https", tlsConfig(ignoreSslErrors).sessionStrategy)
+				.build();
+	}
+
+	private static TlsConfig tlsConfig(boolean ignoreSslErrors) throws NoSuchAlgorithmException, KeyManagementException {
+		synchronized (TLS_CONFIGS) {
+			TlsConfig tls = TLS_CONFIGS.get(ignoreSslErrors);
+			if (tls == null) {
+				tls = new TlsConfig(ignoreSslErrors);
+				TLS_CONFIGS.put(ignoreSslErrors, tls);
+			}
+			return tls;
+		}
+	}
+
+	private static String[] split(String value) {
+		return value == null || value.trim().isEmpty() ? null : value.split(" *, *");
+	}
+
+	private static synchronized void startEvictor() {
+		if (evictor != null) {
+			return;
+		}
+		evictor = Executors.newSingleThreadScheduledExecutor(
+				new NamingThreadFactory(new DaemonThreadFactory(), "HttpRequest connection evictor"));
+		evictor.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				evictConnections();
+			}
+		}, EVICTION_INTERVAL_SECONDS, EVICTION_INTERVAL_SECONDS, TimeUnit.SECONDS);
+	}
+
+	private static void evictConnections() {
+		try {
+			for (PoolingHttpClientConnectionManager cm : CONNECTION_MANAGERS.values()) {
+				cm.closeExpiredConnections();
+				if (idleConnectionTimeout > 0) {
+					cm.closeIdleConnections(idleConnectionTimeout, TimeUnit.SECONDS);
+				}
+			}
+			for (PoolingNHttpClientConnectionManager cm : ASYNC_CONNECTION_MANAGERS.values()) {
+				cm.closeExpiredConnections();
+				if (idleConnectionTimeout > 0) {
+					cm.closeIdleConnections(idleConnectionTimeout, TimeUnit.SECONDS);
+				}
+			}
+			DNS_RESOLVER.evictExpired();
+		} catch (RuntimeException e) {
+			LOGGER.log(Level.WARNING, "Error evicting idle connections", e);
+		}
+	}
+
+	/**
+	 * Honors the Keep-Alive header sent by the server but never keeps a connection longer than configured.
+	 * It follows the latest settings given.
+	 */
+	private static final class MaxKeepAliveStrategy implements ConnectionKeepAliveStrategy {
+
+		@Override
+		public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+			long duration = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+			long maxKeepAlive = latestSettings.getKeepAliveTimeout() * 1000L;
+			if (maxKeepAlive <= 0) {
+				return duration;
+			}
+			return duration > 0 ? Math.min(duration, maxKeepAlive) : maxKeepAlive;
+		}
+	}
+
+	/**
+	 * Applies the per host connection limits to the pool when a route to the host is planned.
+	 * It follows the latest settings given.
+	 */
+	private static final class HostLimitRoutePlanner implements HttpRoutePlanner {
+		private final HttpRoutePlanner delegate;
+		private final ConnPoolControl<HttpRoute> pool;
+
+		private HostLimitRoutePlanner(HttpRoutePlanner delegate, ConnPoolControl<HttpRoute> pool) {
+			this.delegate = delegate;
+			this.pool = pool;
+		}
+
+		@Override
+		public HttpRoute determineRoute(HttpHost host, HttpRequest request, HttpContext context) throws HttpException {
+			HttpRoute route = delegate.determineRoute(host, request, context);
+			applyHostLimit(pool, route, latestSettings);
+			return route;
+		}
+	}
+
+	/**
+	 * Sets the connections kept to the host of the route, back to the default once its limit is removed.
+	 */
+	static void applyHostLimit(ConnPoolControl<HttpRoute> pool, HttpRoute route, ConnectionPoolSettings settings) {
+		Integer maxConnections = settings.getMaxConnectionsPerHost(route.getTargetHost().getHostName());
+		int max = maxConnections != null ? maxConnections : pool.getDefaultMaxPerRoute();
+		if (pool.getMaxPerRoute(route) != max) {
+			pool.setMaxPerRoute(route, max);
+		}
+	}
+
+	/**
+	 * The ssl context and the socket factories built on it for one ssl configuration.
+	 */
+	private static final class TlsConfig {
+		private final SSLSocketFactory socketFactory;
+		private final SSLConnectionSocketFactory connectionSocketFactory;
+		private final SSLIOSessionStrategy sessionStrategy;
+
+		private TlsConfig(boolean ignoreSslErrors) throws NoSuchAlgorithmException, KeyManagementException {
+			SSLContext sc;
+			HostnameVerifier hostnameVerifier;
+			String[] protocols = null;
+			String[] cipherSuites = null;
+			if (ignoreSslErrors) {
+				sc = SSLContext.getInstance("SSL");
+				sc.init(null, new TrustManager[]{new NoopTrustManager()}, new SecureRandom());
+				hostnameVerifier = NoopHostnameVerifier.INSTANCE;
+			} else {
+				sc = SSLContexts.createSystemDefault();
+				hostnameVerifier = SSLConnectionSocketFactory.getDefaultHostnameVerifier();
+				protocols = split(System.getProperty("https.protocols"));
+				cipherSuites = split(System.getProperty("https.cipherSuites"));
+			}
+
+			TlsSessionStatistics statistics = TlsSessionStatistics.get();
+			socketFactory = new TlsSessionStatistics.RecordingSocketFactory(sc.getSocketFactory(), statistics);
+			connectionSocketFactory = new SSLConnectionSocketFactory(socketFactory, protocols, cipherSuites, hostnameVerifier);
+			sessionStrategy = new RecordingSessionStrategy(sc, protocols, cipherSuites, hostnameVerifier, statistics);
+		}
+	}
+
+	private static final class RecordingSessionStrategy extends SSLIOSessionStrategy {
+		private final TlsSessionStatistics statistics;
+
+		private RecordingSessionStrategy(SSLContext sslContext, String[] protocols, String[] cipherSuites,
+										 HostnameVerifier hostnameVerifier, TlsSessionStatistics statistics) {
+			super(sslContext, protocols, cipherSuites, hostnameVerifier);
+			this.statistics = statistics;
+		}
+
+		@Override
+		protected void verifySession(HttpHost host, IOSession iosession, SSLSession sslsession) throws SSLException {
+			super.verifySession(host, iosession, sslsession);
+			statistics.handshakeCompleted(sslsession);
+		}
+	}
+
+	private static final class ClientKey {
+		private final HttpHost proxy;
+		private final boolean ignoreSslErrors;
+		private final int timeout;
+
+		private ClientKey(HttpHost proxy, boolean ignoreSslErrors, int timeout) {
+			this.proxy = proxy;
+			this.ignoreSslErrors = ignoreSslErrors;
+			this.timeout = timeout;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof ClientKey)) {
+				return false;
+			}
+			ClientKey that = (ClientKey) o;
+			return ignoreSslErrors == that.ignoreSslErrors
+					&& timeout == that.timeout
+					&& Objects.equals(proxy, that.proxy);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(proxy, ignoreSslErrors, timeout);
+		}
+	}
+}
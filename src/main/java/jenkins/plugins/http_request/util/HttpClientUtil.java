@@ -20,6 +20,7 @@ import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpPut;
 import org.apache.http.client.methods.HttpOptions;
 import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
 import org.apache.http.entity.ContentType;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.protocol.HttpContext;
@@ -129,7 +130,16 @@ public class HttpClientUtil {
 								PrintStream logger) throws IOException, InterruptedException {
         logger.println("Sending request to url: " + method.getURI());
         
-        final HttpResponse httpResponse = client.execute(method, context);
+        final HttpResponse httpResponse;
+        try {
+            httpResponse = client.execute(method, context);
+        } catch (ConnectionPoolTimeoutException e) {
+            ConnectionPoolTimeoutException timeout = new ConnectionPoolTimeoutException(
+                    "No pooled connection to " + method.getURI().getHost() + " released in time, all are in use by " +
+                    "other requests, see the connection pool limits of the global configuration");
+            timeout.initCause(e);
+            throw timeout;
+        }
         logger.println("Response Code: " + httpResponse.getStatusLine());
         
         return httpResponse;
@@ -0,0 +1,57 @@
+package jenkins.plugins.http_request.util;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Node local response times of the last requests sent to a host.
+ */
+public final class LatencyTracker {
+
+	private static final int SAMPLES = 100;
+	private static final int MIN_SAMPLES = 20;
+
+	private static final ConcurrentMap<String, LatencyTracker> HOSTS = new ConcurrentHashMap<>();
+
+	private final long[] samples = new long[SAMPLES];
+	private int count;
+	private int next;
+
+	private LatencyTracker() {
+	}
+
+	public static LatencyTracker forHost(String host) {
+		String key = host != null ? host.toLowerCase(Locale.ENGLISH) : "";
+		LatencyTracker tracker = HOSTS.get(key);
+		if (tracker == null) {
+			LatencyTracker created = new LatencyTracker();
+			tracker = HOSTS.putIfAbsent(key, created);
+			if (tracker == null) {
+				tracker = created;
+			}
+		}
+		return tracker;
+	}
+
+	public synchronized void record(long millis) {
+		samples[next] = millis;
+		next = (next + 1) % SAMPLES;
+		count = Math.min(count + 1, SAMPLES);
+	}
+
+	/**
+	 * @param percentile between 1 and 100
+	 * @return milliseconds, -1 until enough requests were recorded
+	 */
+	public synchronized long getPercentile(int percentile) {
+		if (count < MIN_SAMPLES) {
+			return -1;
+		}
+		long[] sorted = Arrays.copyOf(samples, count);
+		Arrays.sort(sorted);
+		int index = (int) Math.ceil(percentile / 100.0 * count) - 1;
+		return sorted[Math.max(0, Math.min(index, count - 1))];
+	}
+}
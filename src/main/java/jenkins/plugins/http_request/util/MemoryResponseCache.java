@@ -0,0 +1,183 @@
+package jenkins.plugins.http_request.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.io.SequenceInputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.InputStreamEntity;
+
+/**
+ * Node local cache of small responses kept in memory, for the endpoints called over and over by the same builds.
+ * <p>
+ * Only responses fresh when received are kept, as long as their Cache-Control max-age or Expires allows it, they
+ * are never revalidated. A response with no-store is never kept. The least recently used responses are evicted
+ * once the weight of the responses held goes over the max size, the weight of a response is the size of its
+ * content and its key. A response is only returned to requests with the same url, headers and authenticator, and
+ * a body is read into memory up to the max entry size, announced or not. The counters are published over JMX as jenkins.plugins.http_request:type=MemoryResponseCache.
+ */
+public final class MemoryResponseCache {
+
+	private static MemoryResponseCache instance;
+
+	private final ResponseCacheStatistics statistics = new ResponseCacheStatistics("MemoryResponseCache");
+	private final LinkedHashMap<String, Cached> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private long maxSize;
+	private long maxEntrySize;
+	private long size;
+
+	private MemoryResponseCache() {
+	}
+
+	/**
+	 * @param maxSize      bytes held at most
+	 * @param maxEntrySize bytes of content of the largest response kept
+	 */
+	public static synchronized MemoryResponseCache get(long maxSize, long maxEntrySize) {
+		if (instance == null) {
+			instance = new MemoryResponseCache();
+		}
+		instance.resize(maxSize, maxEntrySize);
+		return instance;
+	}
+
+	/**
+	 * @return the counters of the memory cache of this JVM, null before the first use
+	 */
+	public static synchronized ResponseCacheStatisticsMXBean getStatistics() {
+		return instance != null ? instance.statistics : null;
+	}
+
+	/**
+	 * @param authenticator responses are only shared between requests with the same authenticator
+	 */
+	public HttpResponse execute(HttpRequestBase request, String authenticator, RequestCoalescer.Upstream upstream,
+								PrintStream logger) throws IOException, InterruptedException {
+		String method = request.getMethod();
+		if (!"GET".equals(method)) {
+			HttpResponse response = upstream.execute();
+			if (!"HEAD".equals(method) && response.getStatusLine().getStatusCode() < 400) {
+				invalidate(" " + request.getURI() + " ");
+			}
+			return response;
+		}
+
+		String key = RequestCoalescer.key(request, authenticator);
+		long requestTime = System.currentTimeMillis();
+		Cached cached = lookup(key);
+		if (cached != null && cached.entry.matches(request) && cached.entry.isFresh(requestTime, request)) {
+			statistics.hit();
+			logger.println("Response served from the memory cache");
+			return cached.entry.toResponse(requestTime, new ByteArrayEntity(cached.content));
+		}
+
+		statistics.miss();
+		HttpResponse response = upstream.execute();
+		long responseTime = System.currentTimeMillis();
+		HttpEntity entity = response.getEntity();
+		if (!CacheEntry.isStorable(request, response) || entity == null || entity.getContentLength() > maxEntrySize) {
+			return response;
+		}
+
+		byte[] content;
+		InputStream in = entity.getContent();
+		boolean handedOver = false;
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] chunk = new byte[8192];
+			int count;
+			while (in != null && (count = in.read(chunk)) != -1) {
+				out.write(chunk, 0, count);
+				if (out.size() > maxEntrySize) {
+					//too large to be kept, the caller reads the rest of the body
+					InputStreamEntity body = new InputStreamEntity(
+							new SequenceInputStream(new ByteArrayInputStream(out.toByteArray()), in), -1);
+					body.setContentType(entity.getContentType());
+					body.setContentEncoding(entity.getContentEncoding());
+					response.setEntity(body);
+					handedOver = true;
+					return response;
+				}
+			}
+			content = out.toByteArray();
+		} finally {
+			if (!handedOver) {
+				if (in != null) {
+					in.close();
+				}
+				if (response instanceof Closeable) {
+					((Closeable) response).close();
+				}
+			}
+		}
+		CacheEntry entry = new CacheEntry(key, request, response, requestTime, responseTime);
+		entry.setSize(content.length);
+		if (entry.isFresh(responseTime, request)) {
+			store(new Cached(entry, content));
+		}
+		return entry.toResponse(responseTime, new ByteArrayEntity(content));
+	}
+
+	private synchronized void resize(long maxSize, long maxEntrySize) {
+		this.maxSize = maxSize;
+		this.maxEntrySize = maxEntrySize;
+		evict();
+	}
+
+	private synchronized Cached lookup(String key) {
+		return entries.get(key);
+	}
+
+	private synchronized void store(Cached cached) {
+		Cached old = entries.put(cached.entry.getKey(), cached);
+		if (old != null) {
+			size -= old.getWeight();
+		}
+		size += cached.getWeight();
+		evict();
+	}
+
+	private synchronized void invalidate(String url) {
+		for (String key : new ArrayList<>(entries.keySet())) {
+			if (key.contains(url)) {
+				size -= entries.remove(key).getWeight();
+			}
+		}
+		statistics.resize(entries.size(), size);
+	}
+
+	private void evict() {
+		Iterator<Map.Entry<String, Cached>> eldest = entries.entrySet().iterator();
+		while (size > maxSize && eldest.hasNext()) {
+			size -= eldest.next().getValue().getWeight();
+			eldest.remove();
+			statistics.eviction();
+		}
+		statistics.resize(entries.size(), size);
+	}
+
+	private static final class Cached {
+		private final CacheEntry entry;
+		private final byte[] content;
+
+		Cached(CacheEntry entry, byte[] content) {
+			this.entry = entry;
+			this.content = content;
+		}
+
+		long getWeight() {
+			return content.length + 2L * entry.getKey().length();
+		}
+	}
+}
@@ -0,0 +1,73 @@
+package jenkins.plugins.http_request.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import com.google.common.io.CountingOutputStream;
+
+/**
+ * Writes the pages of a paginated response one after the other, as they arrive, in UTF-8.
+ * <p>
+ * When the first page is a JSON array the pages are merged into one array, otherwise each page is followed by a new
+ * line, which gives JSON Lines for JSON objects.
+ */
+public final class PageMerger implements Closeable {
+
+	private final CountingOutputStream out;
+	private Boolean array;
+	private boolean empty = true;
+
+	public PageMerger(OutputStream out) {
+		this.out = new CountingOutputStream(out);
+	}
+
+	public void append(String page) throws IOException {
+		String content = page != null ? page : "";
+		String trimmed = content.trim();
+		if (array == null) {
+			array = trimmed.startsWith("[") && trimmed.endsWith("]");
+			if (array) {
+				write("[");
+			}
+		}
+		if (!array) {
+			write(content);
+			write("\n");
+			return;
+		}
+		String elements = trimmed.startsWith("[") && trimmed.endsWith("]") ?
+				trimmed.substring(1, trimmed.length() - 1).trim() : trimmed;
+		if (elements.isEmpty()) {
+			return;
+		}
+		if (!empty) {
+			write(",");
+		}
+		write(elements);
+		empty = false;
+	}
+
+	/**
+	 * @return bytes written so far
+	 */
+	public long getSize() {
+		return out.getCount();
+	}
+
+	private void write(String text) throws IOException {
+		out.write(text.getBytes(StandardCharsets.UTF_8));
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			if (Boolean.TRUE.equals(array)) {
+				write("]");
+			}
+		} finally {
+			out.close();
+		}
+	}
+}
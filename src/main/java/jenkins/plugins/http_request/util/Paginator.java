@@ -0,0 +1,167 @@
+package jenkins.plugins.http_request.util;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.http.NameValuePair;
+import org.apache.http.client.utils.URIBuilder;
+
+import net.sf.json.JSONException;
+import net.sf.json.JSONNull;
+import net.sf.json.JSONObject;
+
+import jenkins.plugins.http_request.Pagination;
+
+/**
+ * Finds the url of the next page of a paginated response, shipped with each request to the node that executes it.
+ * The pages are followed until the last one, or until max pages or max size is reached.
+ */
+public final class Paginator implements Serializable {
+
+	private static final long serialVersionUID = -3189464950310475842L;
+
+	public static final Paginator NONE = new Paginator(Pagination.NONE, null, null, 0, 0);
+
+	private static final Pattern LINK = Pattern.compile("<([^>]*)>([^<]*)");
+	private static final Pattern REL = Pattern.compile("rel\\s*=\\s*(?:\"([^\"]*)\"|([^\\s;,]*))");
+	private static final Pattern EMPTY_ARRAY = Pattern.compile("\\s*\\[\\s*]\\s*");
+
+	private final Pagination pagination;
+	private final String parameter;
+	private final String cursorField;
+	private final int maxPages;
+	private final long maxSize;
+
+	/**
+	 * @param parameter   query parameter set to the cursor or to the page number, "cursor" or "page" when empty
+	 * @param cursorField dot separated path of the cursor in the JSON page, "next" when empty
+	 * @param maxPages    pages requested at most, the first one included
+	 * @param maxSize     bytes of content after which no more page is requested
+	 */
+	public Paginator(Pagination pagination, String parameter, String cursorField, int maxPages, long maxSize) {
+		this.pagination = pagination != null ? pagination : Pagination.NONE;
+		this.parameter = parameter != null && !parameter.trim().isEmpty() ? parameter.trim() :
+				this.pagination == Pagination.CURSOR ? "cursor" : "page";
+		this.cursorField = cursorField != null && !cursorField.trim().isEmpty() ? cursorField.trim() : "next";
+		this.maxPages = Math.max(1, maxPages);
+		this.maxSize = maxSize;
+	}
+
+	public boolean isEnabled() {
+		return pagination != Pagination.NONE;
+	}
+
+	public int getMaxPages() {
+		return maxPages;
+	}
+
+	public long getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * @param firstUrl the url of the first page
+	 * @param pageUrl  the url of the page received
+	 * @param pages    pages received so far
+	 * @return the url of the next page, null after the last one
+	 */
+	public String next(String firstUrl, String pageUrl, Map<String, List<String>> headers, String content, int pages)
+			throws IOException {
+		switch (pagination) {
+			case LINK_HEADER:
+				return linkNext(pageUrl, headers);
+			case CURSOR:
+				return cursorNext(firstUrl, content, pages);
+			case PAGE_NUMBER:
+				return pageNext(firstUrl, content, pages);
+			default:
+				return null;
+		}
+	}
+
+	private static String linkNext(String pageUrl, Map<String, List<String>> headers) {
+		for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+			if (!"Link".equalsIgnoreCase(header.getKey())) {
+				continue;
+			}
+			for (String value : header.getValue()) {
+				Matcher link = LINK.matcher(value);
+				while (link.find()) {
+					Matcher rel = REL.matcher(link.group(2));
+					if (rel.find() && isNext(rel.group(1) != null ? rel.group(1) : rel.group(2))) {
+						return URI.create(pageUrl).resolve(link.group(1).trim()).toString();
+					}
+				}
+			}
+		}
+		return null;
+	}
+
+	private static boolean isNext(String relations) {
+		for (String relation : relations.trim().split("\\s+")) {
+			if ("next".equalsIgnoreCase(relation)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * A cursor which is an absolute url is followed as is.
+	 */
+	private String cursorNext(String firstUrl, String content, int pages) throws IOException {
+		Object value;
+		try {
+			value = JSONObject.fromObject(content);
+		} catch (JSONException e) {
+			throw new IOException("Page " + pages + " is not a JSON object, its cursor '" + cursorField +
+					"' cannot be read", e);
+		}
+		value = ContentOperations.field(value, cursorField);
+		if (value == null || JSONNull.getInstance().equals(value) || Boolean.FALSE.equals(value)) {
+			return null;
+		}
+		String cursor = value.toString();
+		if (cursor.isEmpty()) {
+			return null;
+		}
+		if (cursor.startsWith("http://") || cursor.startsWith("https://")) {
+			return cursor;
+		}
+		return withParameter(firstUrl, cursor);
+	}
+
+	/**
+	 * The page numbers start from the one of the first url, 1 without it.
+	 */
+	private String pageNext(String firstUrl, String content, int pages) throws IOException {
+		if (content == null || content.trim().isEmpty() || EMPTY_ARRAY.matcher(content).matches()) {
+			return null;
+		}
+		long first = 1;
+		try {
+			for (NameValuePair pair : new URIBuilder(firstUrl).getQueryParams()) {
+				if (pair.getName().equals(parameter) && pair.getValue() != null) {
+					first = Long.parseLong(pair.getValue().trim());
+				}
+			}
+		} catch (URISyntaxException | NumberFormatException e) {
+			throw new IOException("Unable to read the page number '" + parameter + "' of " + firstUrl, e);
+		}
+		return withParameter(firstUrl, Long.toString(first + pages));
+	}
+
+	private String withParameter(String url, String value) throws IOException {
+		try {
+			return new URIBuilder(url).setParameter(parameter, value).build().toString();
+		} catch (URISyntaxException e) {
+			throw new IOException("Unable to set the parameter '" + parameter + "' of " + url, e);
+		}
+	}
+}
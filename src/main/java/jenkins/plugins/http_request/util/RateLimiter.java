@@ -0,0 +1,122 @@
+package jenkins.plugins.http_request.util;
+
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+import hudson.AbortException;
+
+/**
+ * Token bucket spacing the requests to the targets of a {@link HostRateLimit}.
+ * <p>
+ * A request takes a token at once and waits until the bucket would have held it, so requests get their turn in
+ * order. The bucket holds up to the burst, it is full after an idle time. A request that would wait longer than the
+ * max wait, or that is interrupted while waiting, gives its token back.
+ */
+public final class RateLimiter {
+
+	private final String name;
+	private final int requests;
+	private final int period;
+	private final int burst;
+	private final int maxWait;
+	private final double nanosPerToken;
+
+	private double tokens;
+	private long refilled = System.nanoTime();
+
+	RateLimiter(String name, int requests, int period, int burst, int maxWait) {
+		this.name = name;
+		this.requests = requests;
+		this.period = period;
+		this.burst = burst;
+		this.maxWait = maxWait;
+		this.nanosPerToken = (double) TimeUnit.SECONDS.toNanos(period) / requests;
+		this.tokens = burst;
+	}
+
+	/**
+	 * Waits for the turn of the request.
+	 *
+	 * @throws AbortException when the turn would come after the max wait
+	 */
+	public void acquire(PrintStream logger) throws InterruptedException, AbortException {
+		long waitNanos = reserve();
+		if (waitNanos <= 0) {
+			return;
+		}
+		long waitMillis = TimeUnit.NANOSECONDS.toMillis(waitNanos);
+		if (waitNanos > TimeUnit.SECONDS.toNanos(maxWait)) {
+			giveBack();
+			throw new AbortException("Fail: rate limit of " + requests + " requests per " + period + "s to " + name +
+					" would wait " + waitMillis + " ms, more than the max wait of " + maxWait + "s");
+		}
+		logger.println("Rate limit of " + requests + " requests per " + period + "s to " + name +
+				", waiting " + waitMillis + " ms");
+		try {
+			TimeUnit.NANOSECONDS.sleep(waitNanos);
+		} catch (InterruptedException e) {
+			giveBack();
+			throw e;
+		}
+	}
+
+	/**
+	 * @return true when a token was available now, false leaves the bucket unchanged
+	 */
+	public synchronized boolean tryAcquire() {
+		refill();
+		if (tokens < 1) {
+			return false;
+		}
+		tokens--;
+		return true;
+	}
+
+	private synchronized long reserve() {
+		refill();
+		tokens--;
+		return tokens >= 0 ? 0 : (long) (-tokens * nanosPerToken);
+	}
+
+	/**
+	 * Returns the token of a request that was not sent, the requests reserved after it keep their turn.
+	 */
+	private synchronized void giveBack() {
+		refill();
+		tokens = Math.min(burst, tokens + 1);
+	}
+
+	private void refill() {
+		long now = System.nanoTime();
+		tokens = Math.min(burst, tokens + (now - refilled) / nanosPerToken);
+		refilled = now;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getRequests() {
+		return requests;
+	}
+
+	public int getPeriod() {
+		return period;
+	}
+
+	public int getBurst() {
+		return burst;
+	}
+
+	public int getMaxWait() {
+		return maxWait;
+	}
+
+	/**
+	 * @return the tokens left, negative when requests are waiting for their turn
+	 */
+	public synchronized double getTokens() {
+		refill();
+		return tokens;
+	}
+}
@@ -0,0 +1,51 @@
+package jenkins.plugins.http_request.util;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Rate limiters of the rate limits in the global configuration, kept on the master so they count the
+ * requests of every build whatever node runs them.
+ */
+public final class RateLimiters {
+
+	private static final Map<String, RateLimiter> RATE_LIMITERS = new LinkedHashMap<>();
+
+	private RateLimiters() {
+	}
+
+	/**
+	 * @return the rate limiter of the first limit matching the url, null when the url is not limited
+	 */
+	public static synchronized RateLimiter forUrl(String url, List<HostRateLimit> limits) {
+		Set<String> configured = new HashSet<>();
+		RateLimiter match = null;
+		for (HostRateLimit limit : limits) {
+			String name = limit.getTarget().trim();
+			int requests = Math.max(1, limit.getRequests());
+			int period = Math.max(1, limit.getPeriod());
+			int burst = Math.max(1, limit.getBurst());
+			int maxWait = Math.max(0, limit.getMaxWait());
+			configured.add(name);
+			RateLimiter rateLimiter = RATE_LIMITERS.get(name);
+			if (rateLimiter == null || rateLimiter.getRequests() != requests || rateLimiter.getPeriod() != period
+					|| rateLimiter.getBurst() != burst || rateLimiter.getMaxWait() != maxWait) {
+				rateLimiter = new RateLimiter(name, requests, period, burst, maxWait);
+				RATE_LIMITERS.put(name, rateLimiter);
+			}
+			if (match == null && limit.matches(url)) {
+				match = rateLimiter;
+			}
+		}
+		RATE_LIMITERS.keySet().retainAll(configured);
+		return match;
+	}
+
+	public static synchronized List<RateLimiter> all() {
+		return new ArrayList<>(RATE_LIMITERS.values());
+	}
+}
@@ -0,0 +1,195 @@
+package jenkins.plugins.http_request.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.PrintStream;
+import java.io.SequenceInputStream;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.StatusLine;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.InputStreamEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.util.EntityUtils;
+
+/**
+ * Node local single flight of identical requests: while a request is in flight, the identical requests wait for its
+ * response instead of being sent. The response is buffered in memory and each waiting request gets its own copy.
+ * A response larger than the max size is only read by the request which sent it, the waiting requests are then
+ * sent on their own.
+ * <p>
+ * Only requests without side effects should be coalesced, the key of a request is made of its method, url, headers
+ * and authenticator.
+ */
+public final class RequestCoalescer {
+
+	private static final ConcurrentMap<String, Flight> IN_FLIGHT = new ConcurrentHashMap<>();
+
+	private RequestCoalescer() {
+	}
+
+	/**
+	 * The request sent when no identical request is in flight.
+	 */
+	public interface Upstream {
+		HttpResponse execute() throws IOException, InterruptedException;
+	}
+
+	public static String key(HttpRequestBase request, String authenticator) {
+		List<String> headers = new ArrayList<>();
+		for (Header header : request.getAllHeaders()) {
+			headers.add(header.getName().toLowerCase(Locale.ENGLISH) + ": " + header.getValue());
+		}
+		Collections.sort(headers);
+		return request.getMethod() + " " + request.getURI() + " " + headers + " " + authenticator;
+	}
+
+	/**
+	 * @param timeout seconds a request waits for the response of the identical request, 0 or less waits for it
+	 * @param maxSize bytes of a shared response at most, 0 shares any response
+	 */
+	public static HttpResponse execute(String key, Upstream upstream, int timeout, long maxSize, PrintStream logger)
+			throws IOException, InterruptedException {
+		while (true) {
+			Flight flight = new Flight();
+			Flight inFlight = IN_FLIGHT.putIfAbsent(key, flight);
+			if (inFlight == null) {
+				return lead(key, flight, upstream, maxSize);
+			}
+
+			logger.println("Sharing the response of an identical request in flight");
+			if (timeout <= 0) {
+				inFlight.latch.await();
+			} else if (!inFlight.latch.await(timeout, TimeUnit.SECONDS)) {
+				throw new SocketTimeoutException("No response of the identical request in flight within " + timeout + "s");
+			}
+			if (inFlight.statusLine != null) {
+				return inFlight.copy();
+			}
+			if (inFlight.tooLarge) {
+				logger.println("The response of the identical request is too large to share, sending the request");
+				return upstream.execute();
+			}
+			if (inFlight.failure instanceof InterruptedException || inFlight.failure instanceof InterruptedIOException) {
+				//only the build of the request in flight was stopped, this one is sent again
+				continue;
+			}
+			if (inFlight.failure instanceof IOException) {
+				throw (IOException) inFlight.failure;
+			}
+			throw new IOException(inFlight.failure);
+		}
+	}
+
+	private static HttpResponse lead(String key, Flight flight, Upstream upstream, long maxSize)
+			throws IOException, InterruptedException {
+		try {
+			HttpResponse response = upstream.execute();
+			HttpResponse unshared = null;
+			try {
+				unshared = flight.buffer(response, maxSize);
+			} finally {
+				if (unshared == null) {
+					EntityUtils.consumeQuietly(response.getEntity());
+					if (response instanceof Closeable) {
+						((Closeable) response).close();
+					}
+				}
+			}
+			if (unshared != null) {
+				flight.tooLarge = true;
+				return unshared;
+			}
+			return flight.copy();
+		} catch (IOException | InterruptedException | RuntimeException e) {
+			flight.failure = e;
+			throw e;
+		} finally {
+			IN_FLIGHT.remove(key, flight);
+			flight.latch.countDown();
+		}
+	}
+
+	private static final class Flight {
+		private final CountDownLatch latch = new CountDownLatch(1);
+		private volatile StatusLine statusLine;
+		private volatile Header[] headers;
+		private volatile byte[] content;
+		private volatile Header contentType;
+		private volatile Header contentEncoding;
+		private volatile Exception failure;
+		private volatile boolean tooLarge;
+
+		/**
+		 * @return the response with the content read so far followed by the rest, when the content is larger than
+		 * the max size, null once the response is buffered
+		 */
+		HttpResponse buffer(HttpResponse response, long maxSize) throws IOException {
+			HttpEntity entity = response.getEntity();
+			if (entity != null) {
+				InputStream in = entity.getContent();
+				if (in != null) {
+					ByteArrayOutputStream out = new ByteArrayOutputStream();
+					byte[] chunk = new byte[8192];
+					int read;
+					while ((read = in.read(chunk)) != -1) {
+						out.write(chunk, 0, read);
+						if (maxSize > 0 && out.size() > maxSize) {
+							return unshared(response, entity,
+									new SequenceInputStream(new ByteArrayInputStream(out.toByteArray()), in));
+						}
+					}
+					content = out.toByteArray();
+				} else {
+					content = new byte[0];
+				}
+				contentType = entity.getContentType();
+				contentEncoding = entity.getContentEncoding();
+			}
+			headers = response.getAllHeaders();
+			statusLine = response.getStatusLine();
+			return null;
+		}
+
+		/**
+		 * Closing the content of the copy closes the content of the response, which releases its connection.
+		 */
+		private static HttpResponse unshared(HttpResponse response, HttpEntity entity, InputStream content) {
+			BasicHttpResponse copy = new BasicHttpResponse(response.getStatusLine());
+			copy.setHeaders(response.getAllHeaders());
+			InputStreamEntity body = new InputStreamEntity(content, entity.getContentLength());
+			body.setContentType(entity.getContentType());
+			body.setContentEncoding(entity.getContentEncoding());
+			copy.setEntity(body);
+			return copy;
+		}
+
+		HttpResponse copy() {
+			BasicHttpResponse copy = new BasicHttpResponse(statusLine);
+			copy.setHeaders(headers);
+			if (content != null) {
+				ByteArrayEntity entity = new ByteArrayEntity(content);
+				entity.setContentType(contentType);
+				entity.setContentEncoding(contentEncoding);
+				copy.setEntity(entity);
+			}
+			return copy;
+		}
+	}
+}
@@ -0,0 +1,208 @@
+package jenkins.plugins.http_request.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.util.EntityUtils;
+
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+
+/**
+ * Sends duplicates of a request which takes too long to answer and keeps the first response which is not a server
+ * error. When none comes back, a server error is returned rather than the failure of another request.
+ * <p>
+ * The other requests are cancelled. Those already answered have their content consumed in the background, so their
+ * connection goes back to the pool and is reused. Those still waiting are aborted, their connection is closed and
+ * its place in the pool is given back.
+ */
+public final class RequestHedger {
+
+	private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(
+			new NamingThreadFactory(new DaemonThreadFactory(), "HttpRequest hedge"));
+
+	private final CloseableHttpClient client;
+	private final HttpContext context;
+	private final PrintStream logger;
+	private int hedges;
+
+	public RequestHedger(CloseableHttpClient client, HttpContext context, PrintStream logger) {
+		this.client = client;
+		this.context = context;
+		this.logger = logger;
+	}
+
+	/**
+	 * @param request    sent first, with the context of this hedger
+	 * @param duplicates sent in turn while no good response came back after the delay, or as soon as every
+	 *                   request sent failed
+	 * @param delay      milliseconds waited for a response before the next duplicate is sent
+	 */
+	public HttpResponse execute(HttpRequestBase request, List<? extends HttpRequestBase> duplicates, long delay)
+			throws IOException, InterruptedException {
+		CompletionService<Attempt> completion = new ExecutorCompletionService<>(EXECUTOR);
+		List<Attempt> attempts = new ArrayList<>();
+		Attempt result = null;
+		try {
+			logger.println("Sending request to url: " + request.getURI());
+			attempts.add(submit(completion, request, context));
+			int pending = 1;
+			while (true) {
+				boolean canHedge = hedges < duplicates.size();
+				Future<Attempt> done;
+				if (pending == 0 && !canHedge) {
+					break;
+				} else if (pending == 0) {
+					done = null;
+				} else if (canHedge) {
+					done = completion.poll(delay, TimeUnit.MILLISECONDS);
+				} else {
+					done = completion.take();
+				}
+
+				if (done == null) {
+					HttpRequestBase duplicate = duplicates.get(hedges++);
+					logger.println("Hedging request to url: " + duplicate.getURI() +
+							(pending == 0 ? " after a failure" : " after " + delay + " ms"));
+					//attributes set by the authentication are read from the parent, the rest is kept apart
+					attempts.add(submit(completion, duplicate, HttpClientContext.adapt(new BasicHttpContext(context))));
+					pending++;
+					continue;
+				}
+
+				pending--;
+				Attempt attempt = get(done);
+				//a server error answered is kept over a failure, a good response over both
+				if (result == null || attempt.isSuccess() || !result.hasResponse() && attempt.hasResponse()) {
+					result = attempt;
+				}
+				if (attempt.isSuccess()) {
+					break;
+				}
+			}
+			HttpResponse response = result.getResponse();
+			logger.println("Response Code: " + response.getStatusLine());
+			return response;
+		} finally {
+			for (Attempt attempt : attempts) {
+				if (attempt != result) {
+					attempt.cancel();
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return duplicates sent by the last execution
+	 */
+	public int getHedges() {
+		return hedges;
+	}
+
+	private Attempt submit(CompletionService<Attempt> completion, HttpRequestBase request, HttpContext context) {
+		Attempt attempt = new Attempt(request, context);
+		completion.submit(attempt);
+		return attempt;
+	}
+
+	private static Attempt get(Future<Attempt> done) throws IOException {
+		try {
+			return done.get();
+		} catch (InterruptedException | ExecutionException e) {
+			throw new IOException(e);
+		}
+	}
+
+	private static void release(final HttpResponse response) {
+		EXECUTOR.submit(new Runnable() {
+			@Override
+			public void run() {
+				EntityUtils.consumeQuietly(response.getEntity());
+				if (response instanceof Closeable) {
+					try {
+						((Closeable) response).close();
+					} catch (IOException ignored) {
+						// the connection is discarded
+					}
+				}
+			}
+		});
+	}
+
+	private final class Attempt implements Callable<Attempt> {
+		private final HttpRequestBase request;
+		private final HttpContext context;
+		private HttpResponse response;
+		private IOException failure;
+		private boolean cancelled;
+
+		Attempt(HttpRequestBase request, HttpContext context) {
+			this.request = request;
+			this.context = context;
+		}
+
+		@Override
+		public Attempt call() {
+			HttpResponse response = null;
+			IOException failure = null;
+			try {
+				response = client.execute(request, context);
+			} catch (IOException e) {
+				failure = e;
+			}
+			synchronized (this) {
+				if (cancelled) {
+					if (response != null) {
+						release(response);
+					}
+				} else {
+					this.response = response;
+					this.failure = failure;
+				}
+			}
+			return this;
+		}
+
+		synchronized boolean hasResponse() {
+			return response != null;
+		}
+
+		synchronized boolean isSuccess() {
+			return response != null && response.getStatusLine().getStatusCode() < 500;
+		}
+
+		synchronized HttpResponse getResponse() throws IOException {
+			if (failure != null) {
+				throw failure;
+			}
+			return response;
+		}
+
+		synchronized void cancel() {
+			cancelled = true;
+			if (response != null) {
+				release(response);
+				response = null;
+			} else if (failure == null) {
+				request.abort();
+			}
+		}
+	}
+}
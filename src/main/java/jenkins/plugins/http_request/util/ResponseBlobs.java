@@ -0,0 +1,65 @@
+package jenkins.plugins.http_request.util;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import com.google.common.io.ByteStreams;
+
+/**
+ * Response contents kept in the directory of a build, so that a response returned to a Pipeline carries a
+ * reference instead of its content in the program state saved at each step.
+ * <p>
+ * Each content is kept once in a file named after its SHA-256, the files are deleted with the build.
+ */
+public final class ResponseBlobs {
+
+	private static final String DIRECTORY = "http-request";
+	private static final String ALGORITHM = "SHA-256";
+
+	private ResponseBlobs() {
+	}
+
+	/**
+	 * @return the SHA-256 of the content, which names its file
+	 */
+	public static String store(File buildDir, InputStream in) throws IOException {
+		File directory = new File(buildDir, DIRECTORY);
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Unable to create " + directory);
+		}
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance(ALGORITHM);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IOException(e);
+		}
+
+		File temp = File.createTempFile("content", ".tmp", directory);
+		try {
+			try (OutputStream out = new DigestOutputStream(new FileOutputStream(temp), digest)) {
+				ByteStreams.copy(in, out);
+			}
+			String hash = ContentOperations.hex(digest.digest());
+			File blob = file(buildDir, hash);
+			//the same content is already kept when the rename fails over an existing file
+			if (!temp.renameTo(blob) && !blob.isFile()) {
+				throw new IOException("Unable to rename " + temp + " to " + blob);
+			}
+			return hash;
+		} finally {
+			if (temp.exists() && !temp.delete()) {
+				temp.deleteOnExit();
+			}
+		}
+	}
+
+	public static File file(File buildDir, String hash) {
+		return new File(new File(buildDir, DIRECTORY), hash);
+	}
+}
@@ -0,0 +1,76 @@
+package jenkins.plugins.http_request.util;
+
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+
+/**
+ * Keeps the head and the tail of a response body written to it, for the console log, within a fixed number of
+ * bytes whatever the size of the body: the first half of the limit holds the first bytes, the second half is a ring
+ * of the last bytes.
+ */
+public final class ResponseBodyLog extends OutputStream {
+
+	private final byte[] head;
+	private final byte[] tail;
+	private int headSize;
+	private long tailWritten;
+
+	/**
+	 * @param limit bytes kept at most
+	 */
+	public ResponseBodyLog(int limit) {
+		int size = Math.max(2, limit);
+		this.head = new byte[size - size / 2];
+		this.tail = new byte[size / 2];
+	}
+
+	@Override
+	public void write(int b) {
+		if (headSize < head.length) {
+			head[headSize++] = (byte) b;
+		} else {
+			tail[(int) (tailWritten++ % tail.length)] = (byte) b;
+		}
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) {
+		int toHead = Math.min(len, head.length - headSize);
+		System.arraycopy(b, off, head, headSize, toHead);
+		headSize += toHead;
+		for (int i = off + toHead; i < off + len; i++) {
+			tail[(int) (tailWritten++ % tail.length)] = b[i];
+		}
+	}
+
+	/**
+	 * @return the body, with the count of bytes skipped between the head and the tail when it was larger than the limit
+	 */
+	public String toString(Charset charset) {
+		StringBuilder text = new StringBuilder(new String(head, 0, headSize, charset));
+		int tailSize = (int) Math.min(tailWritten, tail.length);
+		long skipped = tailWritten - tailSize;
+		if (skipped > 0) {
+			text.append("\n... ").append(skipped).append(" bytes skipped ...\n");
+		}
+		byte[] last = new byte[tailSize];
+		int start = tailWritten > tail.length ? (int) (tailWritten % tail.length) : 0;
+		for (int i = 0; i < tailSize; i++) {
+			last[i] = tail[(start + i) % tail.length];
+		}
+		return text.append(new String(last, charset)).toString();
+	}
+
+	/**
+	 * Same as writing the content and reading it back, for a body already held as a string; the limit counts characters.
+	 */
+	public static String abbreviate(String content, int limit) {
+		if (content == null || limit <= 0 || content.length() <= limit) {
+			return content;
+		}
+		int headSize = limit - limit / 2;
+		int tailSize = limit / 2;
+		return content.substring(0, headSize) + "\n... " + (content.length() - headSize - tailSize) +
+				" characters skipped ...\n" + content.substring(content.length() - tailSize);
+	}
+}
@@ -0,0 +1,94 @@
+package jenkins.plugins.http_request.util;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Counters of a response cache of this JVM, published over JMX as jenkins.plugins.http_request:type=&lt;name&gt;.
+ */
+public final class ResponseCacheStatistics implements ResponseCacheStatisticsMXBean {
+
+	private static final Logger LOGGER = Logger.getLogger(ResponseCacheStatistics.class.getName());
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong revalidations = new AtomicLong();
+	private final AtomicLong notModified = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+	private final AtomicLong size = new AtomicLong();
+	private final AtomicInteger entries = new AtomicInteger();
+
+	ResponseCacheStatistics(String name) {
+		String objectName = "jenkins.plugins.http_request:type=" + name;
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(objectName));
+		} catch (JMException e) {
+			LOGGER.log(Level.WARNING, "Unable to register " + objectName, e);
+		}
+	}
+
+	@Override
+	public long getHits() {
+		return hits.get();
+	}
+
+	@Override
+	public long getMisses() {
+		return misses.get();
+	}
+
+	@Override
+	public long getRevalidations() {
+		return revalidations.get();
+	}
+
+	@Override
+	public long getNotModified() {
+		return notModified.get();
+	}
+
+	@Override
+	public long getEvictions() {
+		return evictions.get();
+	}
+
+	@Override
+	public long getSize() {
+		return size.get();
+	}
+
+	@Override
+	public int getEntries() {
+		return entries.get();
+	}
+
+	void hit() {
+		hits.incrementAndGet();
+	}
+
+	void miss() {
+		misses.incrementAndGet();
+	}
+
+	void revalidation(boolean modified) {
+		revalidations.incrementAndGet();
+		if (!modified) {
+			notModified.incrementAndGet();
+		}
+	}
+
+	void eviction() {
+		evictions.incrementAndGet();
+	}
+
+	void resize(int entries, long size) {
+		this.entries.set(entries);
+		this.size.set(size);
+	}
+}
@@ -0,0 +1,36 @@
+package jenkins.plugins.http_request.util;
+
+/**
+ * Requests answered by a response cache of one node.
+ */
+public interface ResponseCacheStatisticsMXBean {
+
+	/**
+	 * @return requests answered by a fresh response, without being sent
+	 */
+	long getHits();
+
+	/**
+	 * @return requests sent without a response to revalidate
+	 */
+	long getMisses();
+
+	/**
+	 * @return conditional requests sent to revalidate a stale response
+	 */
+	long getRevalidations();
+
+	/**
+	 * @return revalidations answered by 304 Not Modified, the cached content was used
+	 */
+	long getNotModified();
+
+	long getEvictions();
+
+	/**
+	 * @return bytes of content held by the cache
+	 */
+	long getSize();
+
+	int getEntries();
+}
@@ -0,0 +1,216 @@
+package jenkins.plugins.http_request.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import hudson.AbortException;
+import jenkins.plugins.http_request.ResponseMemoryPolicy;
+
+/**
+ * Bytes of response bodies buffered in memory by all the requests running on this JVM, within a max shared by all
+ * of them. A request going over it waits for other requests to give their memory back, spills its body to a temp
+ * file or fails, as its {@link ResponseMemoryPolicy} says. The memory is given back when the request ends.
+ * <p>
+ * A request only waits before it holds memory: requests waiting for more while holding some could wait for each
+ * other until the max wait, so a request which already holds memory spills its body instead.
+ * <p>
+ * The usage is published over JMX as jenkins.plugins.http_request:type=ResponseMemory.
+ */
+public final class ResponseMemoryBudget implements ResponseMemoryBudgetMXBean {
+
+	private static final Logger LOGGER = Logger.getLogger(ResponseMemoryBudget.class.getName());
+	private static ResponseMemoryBudget budget;
+
+	private long maxBytes;
+	private long usedBytes;
+	private long peakBytes;
+	private int waiting;
+	private long waited;
+	private long spilled;
+	private long rejected;
+
+	private ResponseMemoryBudget() {
+		String objectName = "jenkins.plugins.http_request:type=ResponseMemory";
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(objectName));
+		} catch (JMException e) {
+			LOGGER.log(Level.WARNING, "Unable to register " + objectName, e);
+		}
+	}
+
+	/**
+	 * @param maxBytes bytes of response bodies buffered at most by the requests of this JVM
+	 */
+	public static synchronized ResponseMemoryBudget get(long maxBytes) {
+		if (budget == null) {
+			budget = new ResponseMemoryBudget();
+		}
+		budget.resize(maxBytes);
+		return budget;
+	}
+
+	/**
+	 * @return the budget of this JVM, null until a request used one
+	 */
+	public static synchronized ResponseMemoryBudget getBudget() {
+		return budget;
+	}
+
+	/**
+	 * @param maxWait milliseconds a request waits at most for its memory with the WAIT policy
+	 */
+	public Reservation reserve(ResponseMemoryPolicy policy, long maxWait, PrintStream logger) {
+		return new Reservation(policy, maxWait, logger);
+	}
+
+	private synchronized void resize(long maxBytes) {
+		this.maxBytes = maxBytes;
+		notifyAll();
+	}
+
+	/**
+	 * @return false when the body should be spilled to disk instead
+	 */
+	private synchronized boolean acquire(long bytes, ResponseMemoryPolicy policy, long maxWait, PrintStream logger)
+			throws IOException {
+		if (usedBytes + bytes <= maxBytes) {
+			take(bytes);
+			return true;
+		}
+		if (policy == ResponseMemoryPolicy.SPILL) {
+			spilled++;
+			return false;
+		}
+		if (policy == ResponseMemoryPolicy.FAIL || bytes > maxBytes) {
+			rejected++;
+			throw new AbortException("Fail: " + bytes + " bytes of response over the response memory budget, " +
+					usedBytes + " of " + maxBytes + " bytes in use");
+		}
+
+		logger.println("Waiting for " + bytes + " bytes of the response memory budget, " + usedBytes + " of " +
+				maxBytes + " bytes in use");
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWait);
+		waiting++;
+		try {
+			while (usedBytes + bytes > maxBytes) {
+				long left = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+				if (left <= 0) {
+					rejected++;
+					throw new AbortException("Fail: " + bytes + " bytes of the response memory budget not available after waiting " +
+							maxWait + " ms, " + usedBytes + " of " + maxBytes + " bytes in use");
+				}
+				wait(left);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for the response memory budget");
+		} finally {
+			waiting--;
+		}
+		waited++;
+		take(bytes);
+		return true;
+	}
+
+	private void take(long bytes) {
+		usedBytes += bytes;
+		if (usedBytes > peakBytes) {
+			peakBytes = usedBytes;
+		}
+	}
+
+	private synchronized void release(long bytes) {
+		usedBytes -= bytes;
+		notifyAll();
+	}
+
+	@Override
+	public synchronized long getMaxBytes() {
+		return maxBytes;
+	}
+
+	@Override
+	public synchronized long getUsedBytes() {
+		return usedBytes;
+	}
+
+	@Override
+	public synchronized long getPeakBytes() {
+		return peakBytes;
+	}
+
+	@Override
+	public synchronized int getWaiting() {
+		return waiting;
+	}
+
+	@Override
+	public synchronized long getWaited() {
+		return waited;
+	}
+
+	@Override
+	public synchronized long getSpilled() {
+		return spilled;
+	}
+
+	@Override
+	public synchronized long getRejected() {
+		return rejected;
+	}
+
+	/**
+	 * The memory held by one request, given back all at once when the request ends.
+	 */
+	public final class Reservation implements Closeable {
+
+		private final ResponseMemoryPolicy policy;
+		private final long maxWait;
+		private final PrintStream logger;
+		private long bytes;
+
+		private Reservation(ResponseMemoryPolicy policy, long maxWait, PrintStream logger) {
+			this.policy = policy;
+			this.maxWait = maxWait;
+			this.logger = logger;
+		}
+
+		/**
+		 * @return false when the bytes should be spilled to disk instead
+		 * @throws AbortException when the budget is used up and the policy does not spill
+		 */
+		public synchronized boolean grow(long more) throws IOException {
+			ResponseMemoryPolicy growPolicy = policy == ResponseMemoryPolicy.WAIT && bytes > 0 ?
+					ResponseMemoryPolicy.SPILL : policy;
+			if (!acquire(more, growPolicy, maxWait, logger)) {
+				return false;
+			}
+			bytes += more;
+			return true;
+		}
+
+		/**
+		 * Gives back bytes no longer held in memory, such as those of a body spilled to disk.
+		 */
+		public synchronized void shrink(long less) {
+			long released = Math.min(less, bytes);
+			bytes -= released;
+			release(released);
+		}
+
+		@Override
+		public synchronized void close() {
+			release(bytes);
+			bytes = 0;
+		}
+	}
+}
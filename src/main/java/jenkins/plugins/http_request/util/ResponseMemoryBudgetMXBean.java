@@ -0,0 +1,39 @@
+package jenkins.plugins.http_request.util;
+
+/**
+ * Response bodies buffered in memory by the requests running on one node.
+ */
+public interface ResponseMemoryBudgetMXBean {
+
+	/**
+	 * @return bytes of response bodies the requests may buffer at the same time
+	 */
+	long getMaxBytes();
+
+	/**
+	 * @return bytes of response bodies buffered by the requests running
+	 */
+	long getUsedBytes();
+
+	long getPeakBytes();
+
+	/**
+	 * @return requests waiting for other requests to give their memory back
+	 */
+	int getWaiting();
+
+	/**
+	 * @return requests which had to wait for their memory
+	 */
+	long getWaited();
+
+	/**
+	 * @return responses kept in a temp file because the budget was used up
+	 */
+	long getSpilled();
+
+	/**
+	 * @return requests failed because the budget was used up
+	 */
+	long getRejected();
+}
@@ -0,0 +1,97 @@
+package jenkins.plugins.http_request.util;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.google.common.collect.Range;
+
+/**
+ * When and how long to wait before a request is sent again, shipped with each request to the node that executes it.
+ */
+public final class RetryPolicy implements Serializable {
+
+	private static final long serialVersionUID = -3829174569214823107L;
+
+	public static final RetryPolicy NONE = new RetryPolicy(1, 0, 0, new ArrayList<Range<Integer>>(), "");
+
+	private final int maxAttempts;
+	private final long backoff;
+	private final long backoffCap;
+	private final ArrayList<Range<Integer>> responseCodes;
+	private final ArrayList<String> exceptions;
+
+	/**
+	 * @param maxAttempts   attempts sent at most, 1 never retries
+	 * @param backoff       milliseconds waited before the first retry, doubled on each retry
+	 * @param backoffCap    milliseconds waited at most before a retry
+	 * @param responseCodes status codes answered by a transient failure
+	 * @param exceptions    comma separated names of the exceptions thrown by a transient failure,
+	 *                      their subclasses are retried too
+	 */
+	public RetryPolicy(int maxAttempts, long backoff, long backoffCap,
+					   List<Range<Integer>> responseCodes, String exceptions) {
+		this.maxAttempts = Math.max(1, maxAttempts);
+		this.backoff = Math.max(0, backoff);
+		this.backoffCap = Math.max(this.backoff, backoffCap);
+		this.responseCodes = new ArrayList<>(responseCodes);
+		this.exceptions = new ArrayList<>();
+		if (exceptions != null) {
+			for (String name : exceptions.split(",")) {
+				if (!name.trim().isEmpty()) {
+					this.exceptions.add(name.trim());
+				}
+			}
+		}
+	}
+
+	public int getMaxAttempts() {
+		return maxAttempts;
+	}
+
+	public boolean isRetryable(int status) {
+		for (Range<Integer> range : responseCodes) {
+			if (range.contains(status)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Exceptions are matched by their full or simple class name.
+	 */
+	public boolean isRetryable(Throwable e) {
+		for (Class<?> c = e.getClass(); c != null; c = c.getSuperclass()) {
+			if (exceptions.contains(c.getName()) || exceptions.contains(c.getSimpleName())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Full jitter: a random delay between 0 and the exponential backoff of the attempt, so that clients failing
+	 * together do not retry together.
+	 *
+	 * @param attempt the attempt that just failed, starting at 1
+	 * @return milliseconds to wait before the next attempt
+	 */
+	public long backoff(int attempt) {
+		if (backoff == 0) {
+			return 0;
+		}
+		long ceiling = backoffCap;
+		if (attempt - 1 < 62 && backoff <= backoffCap >> (attempt - 1)) {
+			ceiling = backoff << (attempt - 1);
+		}
+		return ThreadLocalRandom.current().nextLong(ceiling + 1);
+	}
+
+	@Override
+	public String toString() {
+		return "maxAttempts=" + maxAttempts + ", backoff=" + backoff + ", backoffCap=" + backoffCap +
+				", responseCodes=" + responseCodes + ", exceptions=" + exceptions;
+	}
+}
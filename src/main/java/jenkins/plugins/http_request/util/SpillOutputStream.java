@@ -0,0 +1,187 @@
+package jenkins.plugins.http_request.util;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps a response body in memory up to a threshold, the body is moved to a temp file of the node once it goes
+ * over it, or right away when its announced length does. The memory buffered is taken from the response memory
+ * budget of the node when there is one, the body is spilled as well when the budget says so.
+ * <p>
+ * The temp files are deleted when their response is closed. A response kept as a string is rarely closed in a
+ * Pipeline, so the files left for longer than the max age of the global configuration are reaped when another body
+ * is spilled. A response still in use past that age can't read its content anymore, the max age must outlast the
+ * builds reading large responses.
+ */
+public final class SpillOutputStream extends OutputStream {
+
+	private static final Logger LOGGER = Logger.getLogger(SpillOutputStream.class.getName());
+	private static volatile long maxAge = TimeUnit.DAYS.toMillis(1);
+	private static final long REAP_INTERVAL = TimeUnit.HOURS.toMillis(1);
+	private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+	private static long lastReap;
+
+	private final long threshold;
+	private final ResponseMemoryBudget.Reservation reservation;
+	private long reserved;
+	private byte[] buffer;
+	private int count;
+	private File file;
+	private OutputStream out;
+
+	/**
+	 * @param threshold bytes kept in memory at most, 0 keeps everything in memory
+	 * @param length    announced length of the body, -1 when unknown
+	 */
+	public SpillOutputStream(long threshold, long length) throws IOException {
+		this(threshold, length, null);
+	}
+
+	/**
+	 * @param reservation memory of the request in the response memory budget, null without budget
+	 */
+	public SpillOutputStream(long threshold, long length, ResponseMemoryBudget.Reservation reservation) throws IOException {
+		this.threshold = threshold;
+		this.reservation = reservation;
+		int capacity = length >= 0 && length <= MAX_ARRAY_SIZE ? (int) length : 8192;
+		if (threshold > 0 && length > threshold || length > MAX_ARRAY_SIZE || !reserve(capacity)) {
+			spill();
+		} else {
+			buffer = new byte[capacity];
+		}
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		write(new byte[]{(byte) b}, 0, 1);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		long size = count + (long) len;
+		if (buffer != null && size > buffer.length) {
+			long capacity = Math.min(MAX_ARRAY_SIZE, Math.max(size, 2L * buffer.length));
+			if (threshold > 0) {
+				capacity = Math.min(capacity, threshold);
+			}
+			if (size > capacity || !reserve(capacity)) {
+				spill();
+			} else {
+				buffer = Arrays.copyOf(buffer, (int) capacity);
+			}
+		}
+		if (buffer != null) {
+			System.arraycopy(b, off, buffer, count, len);
+			count += len;
+			return;
+		}
+		out.write(b, off, len);
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (out != null) {
+			out.close();
+		}
+	}
+
+	/**
+	 * @return the temp file holding the body, null while it is kept in memory
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * @return the body kept in memory, the buffer itself when the announced length was right, null once spilled
+	 */
+	public byte[] toByteArray() {
+		if (buffer == null) {
+			return null;
+		}
+		return count == buffer.length ? buffer : Arrays.copyOf(buffer, count);
+	}
+
+	/**
+	 * Takes the memory of a buffer of that capacity from the budget.
+	 *
+	 * @return false when the budget asks to spill the body
+	 */
+	private boolean reserve(long capacity) throws IOException {
+		if (reservation == null || capacity <= reserved) {
+			return true;
+		}
+		if (!reservation.grow(capacity - reserved)) {
+			return false;
+		}
+		reserved = capacity;
+		return true;
+	}
+
+	/**
+	 * Sets the age of the temp files reaped on this node, the latest request sets it for all.
+	 *
+	 * @param maxAge milliseconds, 0 never reaps the files
+	 */
+	public static void setMaxAge(long maxAge) {
+		SpillOutputStream.maxAge = maxAge;
+	}
+
+	/**
+	 * @return a new temp file for a response body, deleted like the spilled ones
+	 */
+	public static File createFile() throws IOException {
+		File directory = directory();
+		reap(directory);
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Unable to create " + directory);
+		}
+		return File.createTempFile("response", ".tmp", directory);
+	}
+
+	private void spill() throws IOException {
+		file = createFile();
+		out = new FileOutputStream(file);
+		if (buffer != null) {
+			out.write(buffer, 0, count);
+			buffer = null;
+		}
+		if (reservation != null && reserved > 0) {
+			reservation.shrink(reserved);
+			reserved = 0;
+		}
+	}
+
+	private static File directory() {
+		return new File(System.getProperty("java.io.tmpdir"), "http-request-spill");
+	}
+
+	private static void reap(File directory) {
+		long age = maxAge;
+		if (age <= 0) {
+			return;
+		}
+		long now = System.currentTimeMillis();
+		synchronized (SpillOutputStream.class) {
+			if (now - lastReap < REAP_INTERVAL) {
+				return;
+			}
+			lastReap = now;
+		}
+		File[] files = directory.listFiles();
+		if (files == null) {
+			return;
+		}
+		for (File old : files) {
+			if (now - old.lastModified() > age && !old.delete()) {
+				LOGGER.log(Level.FINE, "Unable to delete {0}", old);
+			}
+		}
+	}
+}
@@ -0,0 +1,154 @@
+package jenkins.plugins.http_request.util;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import javax.net.ssl.HandshakeCompletedEvent;
+import javax.net.ssl.HandshakeCompletedListener;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+
+/**
+ * Counts the TLS handshakes of this JVM and how many of them resumed a cached session.
+ * <p>
+ * Each new session is marked with a value bound to it. A resumed session carries the values of the session it
+ * resumes, even under TLS 1.3 where it is a new object with a new id. The counters are published over JMX as
+ * {@value #OBJECT_NAME}.
+ */
+public final class TlsSessionStatistics implements TlsSessionStatisticsMXBean {
+
+	private static final Logger LOGGER = Logger.getLogger(TlsSessionStatistics.class.getName());
+	private static final String OBJECT_NAME = "jenkins.plugins.http_request:type=TlsSessions";
+	private static final String SEEN = TlsSessionStatistics.class.getName() + ".seen";
+	private static final TlsSessionStatistics INSTANCE = new TlsSessionStatistics();
+
+	private final AtomicLong fullHandshakes = new AtomicLong();
+	private final AtomicLong resumedHandshakes = new AtomicLong();
+	private boolean registered;
+
+	TlsSessionStatistics() {
+	}
+
+	public static TlsSessionStatistics get() {
+		INSTANCE.register();
+		return INSTANCE;
+	}
+
+	@Override
+	public long getFullHandshakes() {
+		return fullHandshakes.get();
+	}
+
+	@Override
+	public long getResumedHandshakes() {
+		return resumedHandshakes.get();
+	}
+
+	@Override
+	public double getResumptionRate() {
+		long resumed = resumedHandshakes.get();
+		long total = resumed + fullHandshakes.get();
+		return total > 0 ? (double) resumed / total : 0;
+	}
+
+	void handshakeCompleted(SSLSession session) {
+		boolean resumed;
+		synchronized (session) {
+			resumed = session.getValue(SEEN) != null;
+			if (!resumed) {
+				session.putValue(SEEN, Boolean.TRUE);
+			}
+		}
+		if (resumed) {
+			resumedHandshakes.incrementAndGet();
+		} else {
+			fullHandshakes.incrementAndGet();
+		}
+	}
+
+	private synchronized void register() {
+		if (registered) {
+			return;
+		}
+		registered = true;
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+		} catch (JMException e) {
+			LOGGER.log(Level.WARNING, "Unable to register " + OBJECT_NAME, e);
+		}
+	}
+
+	/**
+	 * Counts the handshakes of the sockets created by the delegate.
+	 */
+	static final class RecordingSocketFactory extends SSLSocketFactory implements HandshakeCompletedListener {
+		private final SSLSocketFactory delegate;
+		private final TlsSessionStatistics statistics;
+
+		RecordingSocketFactory(SSLSocketFactory delegate, TlsSessionStatistics statistics) {
+			this.delegate = delegate;
+			this.statistics = statistics;
+		}
+
+		@Override
+		public void handshakeCompleted(HandshakeCompletedEvent event) {
+			statistics.handshakeCompleted(event.getSession());
+		}
+
+		private Socket record(Socket socket) {
+			if (socket instanceof SSLSocket) {
+				((SSLSocket) socket).addHandshakeCompletedListener(this);
+			}
+			return socket;
+		}
+
+		@Override
+		public String[] getDefaultCipherSuites() {
+			return delegate.getDefaultCipherSuites();
+		}
+
+		@Override
+		public String[] getSupportedCipherSuites() {
+			return delegate.getSupportedCipherSuites();
+		}
+
+		@Override
+		public Socket createSocket() throws IOException {
+			return record(delegate.createSocket());
+		}
+
+		@Override
+		public Socket createSocket(Socket s, String host, int port, boolean autoClose) throws IOException {
+			return record(delegate.createSocket(s, host, port, autoClose));
+		}
+
+		@Override
+		public Socket createSocket(String host, int port) throws IOException {
+			return record(delegate.createSocket(host, port));
+		}
+
+		@Override
+		public Socket createSocket(String host, int port, InetAddress localHost, int localPort) throws IOException {
+			return record(delegate.createSocket(host, port, localHost, localPort));
+		}
+
+		@Override
+		public Socket createSocket(InetAddress host, int port) throws IOException {
+			return record(delegate.createSocket(host, port));
+		}
+
+		@Override
+		public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort)
+				throws IOException {
+			return record(delegate.createSocket(address, port, localAddress, localPort));
+		}
+	}
+}
@@ -0,0 +1,16 @@
+package jenkins.plugins.http_request.util;
+
+/**
+ * TLS handshakes done by the http clients of one node.
+ */
+public interface TlsSessionStatisticsMXBean {
+
+	long getFullHandshakes();
+
+	long getResumedHandshakes();
+
+	/**
+	 * @return the part of the handshakes that resumed a cached session, from 0 to 1
+	 */
+	double getResumptionRate();
+}
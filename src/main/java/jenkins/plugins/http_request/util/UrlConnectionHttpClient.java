@@ -0,0 +1,241 @@
+package jenkins.plugins.http_request.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLSocketFactory;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpException;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpVersion;
+import org.apache.http.auth.AuthScope;
+import org.apache.http.auth.Credentials;
+import org.apache.http.client.ClientProtocolException;
+import org.apache.http.client.CredentialsProvider;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.Configurable;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.client.protocol.RequestAddCookies;
+import org.apache.http.client.protocol.ResponseProcessCookies;
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.entity.BasicHttpEntity;
+import org.apache.http.impl.auth.BasicScheme;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.CookieSpecRegistries;
+import org.apache.http.message.BasicHttpRequest;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.params.BasicHttpParams;
+import org.apache.http.params.HttpParams;
+import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.protocol.HttpContext;
+
+/**
+ * Sends the requests with the {@link HttpURLConnection} of the JDK.
+ * <p>
+ * Cookies of the context and preemptive basic credentials are supported, so the authenticators work the
+ * same way they do with Apache HttpClient. They are only sent on the connection, the request is left as given so
+ * that a retry, a hedged duplicate or a next page does not carry them to another host. The JDK does not allow the
+ * PATCH method nor a body on a DELETE.
+ */
+final class UrlConnectionHttpClient extends CloseableHttpClient {
+
+	private static final RequestAddCookies REQUEST_ADD_COOKIES = new RequestAddCookies();
+	private static final ResponseProcessCookies RESPONSE_PROCESS_COOKIES = new ResponseProcessCookies();
+
+	private final HttpHost proxy;
+	private final RequestConfig defaultConfig;
+	private final SSLSocketFactory sslSocketFactory;
+	private final HostnameVerifier hostnameVerifier;
+
+	/**
+	 * @param sslSocketFactory factory for https connections, null to use the default of the JVM
+	 * @param hostnameVerifier verifier for https connections, null to use the default of the JVM
+	 */
+	UrlConnectionHttpClient(HttpHost proxy, RequestConfig defaultConfig,
+							SSLSocketFactory sslSocketFactory, HostnameVerifier hostnameVerifier) {
+		this.proxy = proxy;
+		this.defaultConfig = defaultConfig;
+		this.sslSocketFactory = sslSocketFactory;
+		this.hostnameVerifier = hostnameVerifier;
+	}
+
+	@Override
+	protected CloseableHttpResponse doExecute(HttpHost target, HttpRequest request, HttpContext context)
+			throws IOException {
+		HttpClientContext clientContext = HttpClientContext.adapt(context != null ? context : new BasicHttpContext());
+		RequestConfig config = request instanceof Configurable && ((Configurable) request).getConfig() != null ?
+				((Configurable) request).getConfig() : defaultConfig;
+		URL url = request instanceof HttpUriRequest ? ((HttpUriRequest) request).getURI().toURL() :
+				new URL(target.toURI() + request.getRequestLine().getUri());
+
+		HttpRequest sent;
+		try {
+			sent = addCookiesAndCredentials(target, request, clientContext);
+		} catch (HttpException e) {
+			throw new ClientProtocolException(e);
+		}
+
+		HttpURLConnection connection = openConnection(url, config.getProxy() != null ? config.getProxy() : proxy);
+		connection.setRequestMethod(request.getRequestLine().getMethod());
+		connection.setInstanceFollowRedirects(config.isRedirectsEnabled());
+		connection.setUseCaches(false);
+		if (config.getConnectTimeout() > 0) {
+			connection.setConnectTimeout(config.getConnectTimeout());
+		}
+		if (config.getSocketTimeout() > 0) {
+			connection.setReadTimeout(config.getSocketTimeout());
+		}
+		if (connection instanceof HttpsURLConnection) {
+			if (sslSocketFactory != null) {
+				((HttpsURLConnection) connection).setSSLSocketFactory(sslSocketFactory);
+			}
+			if (hostnameVerifier != null) {
+				((HttpsURLConnection) connection).setHostnameVerifier(hostnameVerifier);
+			}
+		}
+		for (Header header : sent.getAllHeaders()) {
+			connection.addRequestProperty(header.getName(), header.getValue());
+		}
+
+		HttpEntity entity = request instanceof HttpEntityEnclosingRequest ?
+				((HttpEntityEnclosingRequest) request).getEntity() : null;
+		if (entity != null) {
+			if (entity.getContentType() != null && connection.getRequestProperty(HttpHeaders.CONTENT_TYPE) == null) {
+				connection.setRequestProperty(HttpHeaders.CONTENT_TYPE, entity.getContentType().getValue());
+			}
+			connection.setDoOutput(true);
+			if (entity.getContentLength() >= 0) {
+				connection.setFixedLengthStreamingMode(entity.getContentLength());
+			}
+			try (OutputStream out = connection.getOutputStream()) {
+				entity.writeTo(out);
+			}
+		}
+
+		UrlConnectionResponse response = readResponse(connection);
+		try {
+			RESPONSE_PROCESS_COOKIES.process(response, clientContext);
+		} catch (HttpException e) {
+			response.close();
+			throw new ClientProtocolException(e);
+		}
+		clientContext.setAttribute(HttpClientContext.HTTP_RESPONSE, response);
+		return response;
+	}
+
+	private HttpURLConnection openConnection(URL url, HttpHost proxy) throws IOException {
+		if (proxy == null) {
+			return (HttpURLConnection) url.openConnection();
+		}
+		int port = proxy.getPort() > 0 ? proxy.getPort() : 80;
+		return (HttpURLConnection) url.openConnection(
+				new Proxy(Proxy.Type.HTTP, new InetSocketAddress(proxy.getHostName(), port)));
+	}
+
+	/**
+	 * @return a copy of the request with the cookies and credentials of the context for this target
+	 */
+	private HttpRequest addCookiesAndCredentials(HttpHost target, HttpRequest request, HttpClientContext context)
+			throws HttpException, IOException {
+		HttpRequest sent = new BasicHttpRequest(request.getRequestLine());
+		sent.setHeaders(request.getAllHeaders());
+		context.setAttribute(HttpClientContext.HTTP_TARGET_HOST, target);
+		context.setAttribute(HttpClientContext.HTTP_ROUTE, new HttpRoute(target));
+		context.setAttribute(HttpClientContext.HTTP_REQUEST, sent);
+		if (context.getCookieSpecRegistry() == null) {
+			context.setAttribute(HttpClientContext.COOKIESPEC_REGISTRY, CookieSpecRegistries.createDefault());
+		}
+		REQUEST_ADD_COOKIES.process(sent, context);
+
+		CredentialsProvider credentialsProvider = context.getCredentialsProvider();
+		if (credentialsProvider != null && !sent.containsHeader(HttpHeaders.AUTHORIZATION)) {
+			Credentials credentials = credentialsProvider.getCredentials(new AuthScope(target));
+			if (credentials != null) {
+				sent.addHeader(new BasicScheme(StandardCharsets.UTF_8).authenticate(credentials, sent, context));
+			}
+		}
+		return sent;
+	}
+
+	private UrlConnectionResponse readResponse(HttpURLConnection connection) throws IOException {
+		int status = connection.getResponseCode();
+		UrlConnectionResponse response = new UrlConnectionResponse(status, connection.getResponseMessage());
+		for (Map.Entry<String, List<String>> header : connection.getHeaderFields().entrySet()) {
+			//the status line has no name
+			if (header.getKey() == null) {
+				continue;
+			}
+			for (String value : header.getValue()) {
+				response.addHeader(header.getKey(), value);
+			}
+		}
+
+		InputStream content = status >= 400 ? connection.getErrorStream() : connection.getInputStream();
+		if (content != null) {
+			BasicHttpEntity body = new BasicHttpEntity();
+			body.setContent(content);
+			body.setContentLength(connection.getContentLengthLong());
+			body.setContentType(response.getFirstHeader(HttpHeaders.CONTENT_TYPE));
+			body.setContentEncoding(response.getFirstHeader(HttpHeaders.CONTENT_ENCODING));
+			response.setEntity(body);
+		}
+		return response;
+	}
+
+	@Override
+	public void close() {
+		//connections are kept alive by the JVM, there is nothing to release
+	}
+
+	@Override
+	@Deprecated
+	public HttpParams getParams() {
+		return new BasicHttpParams();
+	}
+
+	/**
+	 * Deprecated since HttpClient 4.3 and never called by the plugin nor by {@link CloseableHttpClient}, the
+	 * clients are only used through execute. There is no manager to give, the JVM keeps the connections.
+	 */
+	@Override
+	@Deprecated
+	public ClientConnectionManager getConnectionManager() {
+		throw new UnsupportedOperationException("Connections are managed by the JVM");
+	}
+
+	/**
+	 * Closing the response closes the body stream, a fully read body lets the JVM reuse the connection.
+	 */
+	private static final class UrlConnectionResponse extends BasicHttpResponse implements CloseableHttpResponse {
+
+		private UrlConnectionResponse(int status, String reason) {
+			super(HttpVersion.HTTP_1_1, status, reason);
+		}
+
+		@Override
+		public void close() throws IOException {
+			HttpEntity entity = getEntity();
+			if (entity != null) {
+				entity.getContent().close();
+			}
+		}
+	}
+}
@@ -2,21 +2,42 @@ package jenkins.plugins.http_request;
 
 import static jenkins.plugins.http_request.Registers.registerAcceptedTypeRequestChecker;
 import static jenkins.plugins.http_request.Registers.registerBasicAuth;
+import static jenkins.plugins.http_request.Registers.registerCacheable;
 import static jenkins.plugins.http_request.Registers.registerContentTypeRequestChecker;
 import static jenkins.plugins.http_request.Registers.registerCustomHeaders;
+import static jenkins.plugins.http_request.Registers.registerFlaky;
 import static jenkins.plugins.http_request.Registers.registerFormAuth;
 import static jenkins.plugins.http_request.Registers.registerFormAuthBad;
 import static jenkins.plugins.http_request.Registers.registerInvalidStatusCode;
+import static jenkins.plugins.http_request.Registers.registerLarge;
+import static jenkins.plugins.http_request.Registers.registerPaged;
+import static jenkins.plugins.http_request.Registers.registerPagedElsewhere;
 import static jenkins.plugins.http_request.Registers.registerReqAction;
 import static jenkins.plugins.http_request.Registers.registerRequestChecker;
+import static jenkins.plugins.http_request.Registers.registerServerError;
+import static jenkins.plugins.http_request.Registers.registerSlowFirst;
 import static jenkins.plugins.http_request.Registers.registerTimeout;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -28,12 +49,21 @@ import org.jenkinsci.plugins.workflow.cps.CpsFlowDefinition;
 import org.jenkinsci.plugins.workflow.job.WorkflowJob;
 import org.jenkinsci.plugins.workflow.job.WorkflowRun;
 import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
 
+import hudson.model.Label;
 import hudson.model.Result;
 
 import jenkins.plugins.http_request.auth.FormAuthentication;
+import jenkins.plugins.http_request.util.CircuitBreaker;
+import jenkins.plugins.http_request.util.CircuitBreakers;
+import jenkins.plugins.http_request.util.ContentOperations;
+import jenkins.plugins.http_request.util.HostAddressOverride;
+import jenkins.plugins.http_request.util.HostConcurrencyLimit;
+import jenkins.plugins.http_request.util.HostRateLimit;
 import jenkins.plugins.http_request.util.HttpRequestNameValuePair;
 import jenkins.plugins.http_request.util.RequestAction;
+import jenkins.plugins.http_request.util.ResponseMemoryBudget;
 
 /**
  * @author Martin d'Anjou
@@ -62,6 +92,73 @@ public class HttpRequestStepTest extends HttpRequestTestBase {
         j.assertLogContains("Response: "+ ALL_IS_WELL,run);
     }
 
+    @Test
+    public void asyncGetTest() throws Exception {
+        // Prepare the server
+        registerRequestChecker(HttpMode.GET);
+
+        // Configure the build
+        WorkflowJob proj = j.jenkins.createProject(WorkflowJob.class, "proj");
+        proj.setDefinition(new CpsFlowDefinition(
+            "def response = httpRequest url: '"+baseURL()+"/doGET', async: true\n" +
+            "println('Status: '+response.status)\n" +
+            "println('Response: '+response.content)\n",
+            true));
+
+        // Execute the build
+        WorkflowRun run = proj.scheduleBuild2(0).get();
+
+        // Check expectations
+        j.assertBuildStatusSuccess(run);
+        j.assertLogContains("Status: 200",run);
+        j.assertLogContains("Response: "+ ALL_IS_WELL,run);
+    }
+
+    @Test
+    public void asyncInvalidStatusCodeFailsTheBuild() throws Exception {
+        // Prepare the server
+        registerInvalidStatusCode();
+
+        // Configure the build
+        WorkflowJob proj = j.jenkins.createProject(WorkflowJob.class, "proj");
+        proj.setDefinition(new CpsFlowDefinition(
+            "def response = httpRequest url: '"+baseURL()+"/invalidStatusCode', async: true,\n" +
+            "    consoleLogResponseBody: true\n",
+            true));
+
+        // Execute the build
+        WorkflowRun run = proj.scheduleBuild2(0).get();
+
+        // Check expectations
+        j.assertBuildStatus(Result.FAILURE, run);
+        j.assertLogContains("Throwing status 400 for test",run);
+        j.assertLogContains("Fail: the returned code 400", run);
+    }
+
+    @Test
+    public void asyncInsideAgentNodeIsSentFromTheAgent() throws Exception {
+        // Prepare the server
+        registerRequestChecker(HttpMode.GET);
+        j.createOnlineSlave(Label.get("remote"));
+
+        // Configure the build
+        WorkflowJob proj = j.jenkins.createProject(WorkflowJob.class, "proj");
+        proj.setDefinition(new CpsFlowDefinition(
+            "node('remote') {\n" +
+            "    def response = httpRequest url: '"+baseURL()+"/doGET', async: true\n" +
+            "    println('Response: '+response.content)\n" +
+            "}\n",
+            true));
+
+        // Execute the build
+        WorkflowRun run = proj.scheduleBuild2(0).get();
+
+        // Check expectations
+        j.assertBuildStatusSuccess(run);
+        j.assertLogContains("Sending the request from the agent, async requests are only sent from the master", run);
+        j.assertLogContains("Response: "+ ALL_IS_WELL,run);
+    }
+
     @Test
     public void quietTest() throws Exception {
         // Prepare the server
@@ -495,6 +592,473 @@ public class HttpRequestStepTest extends HttpRequestTestBase {
         j.assertBuildStatus(Result.SUCCESS, run);
     }
 
+    @Test
+    public void urlConnectionTransportGetTest() throws Exception {
+        // Prepare the server
+        registerRequestChecker(HttpMode.GET);
+
+        // Configure the build
+        WorkflowJob proj = j.jenkins.createProject(WorkflowJob.class, "proj");
+        proj.setDefinition(new CpsFlowDefinition(
+            "def response = httpRequest url: '"+baseURL()+"/doGET', transport: 'URL_CONNECTION'\n" +
+            "println('Status: '+response.status)\n" +
+            "println('Response: '+response.content)\n",
+            true));
+
+        // Execute the build
+        WorkflowRun run = proj.scheduleBuild2(0).get();
+
+        // Check expectations
+        j.assertBuildStatusSuccess(run);
+        j.assertLogContains("Status: 200",run);
+        j.assertLogContains("Response: "+ ALL_IS_WELL,run);
+    }
+
+    @Test
+    public void urlConnectionTransportBasicAuthentication() throws Exception {
+        // Prepare the server
+        registerBasicAuth();
+
+        // Prepare the authentication
+        registerBasicCredential("keyname1", "username1", "password1");
+
+        // Prepare HttpRequest
+        WorkflowJob proj = j.jenkins.createProject(WorkflowJob.class, "proj");
+        proj.setDefinition(new CpsFlowDefinition(
+            "def response = httpRequest url:'"+baseURL()+"/basicAuth',\n" +
+            "    authentication: 'keyname1', transport: 'URL_CONNECTION'\n",
+            true));
+
+        // Execute the build
+        WorkflowRun run = proj.scheduleBuild2(0).get();
+
+        // Check expectations
+        j.assertBuildStatus(Result.SUCCESS, run);
+    }
+
+    @Test
+    public void hostAddressOverrideIsUsedInsteadOfResolving() throws Exception {
+        // Prepare the server
+        registerRequestChecker(HttpMode.GET);
+
+        // Store the configuration
+        HttpRequestGlobalConfig.get().setHostAddressOverrides(Collections.singletonList(
+                new HostAddressOverride("dns-override.invalid", "127.0.0.1")));
+
+        // Configure the build
+        WorkflowJob proj = j.jenkins.createProject(WorkflowJob.class, "proj");
+        proj.setDefinition(new CpsFlowDefinition(
+            "def response = httpRequest '"+baseURL().replace("localhost", "dns-override.invalid")+"/doGET'\n" +
+            "println('Status: '+response.status)\n",
+            true));
+
+        // Execute the build
+        WorkflowRun run = proj.scheduleBuild2(0).get();
+
+        // Check expectations
+        j.assertBuildStatusSuccess(run);
+        j.assertLogContains("Status: 200",run);
+    }
+
+    @Test
+    public void unreachableAddressIsRacedWithTheNextOne() throws Exception {
+        // Prepare the server
+        registerRequestChecker(HttpMode.GET);
+
+        // Prepare an address on the same port that never accepts, connecting to it hangs once its backlog is full
+        int port = new URL(baseURL()).getPort();
+        List<Socket> backlog = new ArrayList<>();
+        try (ServerSocket neverAccepting = new ServerSocket(port, 1, InetAddress.getByName("127.0.0.2"))) {
+            while (true) {
+                Socket socket = new Socket();
+                backlog.add(socket);
+                try {
+                    socket.connect(new InetSocketAddress(neverAccepting.getInetAddress(), port), 500);
+                } catch (SocketTimeoutException e) {
+                    break;
+                }
+            }
+
+            // Store the configuration, the first address never accepts
+            HttpRequestGlobalConfig.get().setConnectAttemptDelay(100);
+            HttpRequestGlobalConfig.get().setHostAddressOverrides(Collections.singletonList(
+                    new HostAddressOverride("happy-eyeballs.invalid", "127.0.0.2, 127.0.0.1")));
+
+            // Configure the build
+            WorkflowJob proj = j.jenkins.createProject(WorkflowJob.class, "proj");
+            proj.setDefinition(new CpsFlowDefinition(
+                "def response = httpRequest url: '"+baseURL().replace("localhost", "happy-eyeballs.invalid")+"/doGET', timeout: 30\n" +
+                "println('Status: '+response.status)\n",
+                true));
+
+            // Execute the build
+            WorkflowRun run = proj.scheduleBuild2(0).get();
+
+            // Check expectations
+            j.assertBuildStatusSuccess(run);
+            j.assertLogContains("Status: 200",run);
+        } finally {
+            for (Socket socket : backlog) {
+                socket.close();
+            }
+        }
+    }
+
+    @Test
+    public void requestOverTheConcurrencyLimitFailsAfterMaxWait() throws Exception {
+        // Prepare the server
+        registerTimeout();
+        registerRequestChecker(HttpMode.GET);
+
+        // Store the configuration
+        HttpRequestGlobalConfig.get().setHostConcurrencyLimits(Collections.singletonList(
+                new HostConcurrencyLimit("localhost", 1, 0)));
+
+        // Configure the build, the second request is sent while the first one waits for the server
+        WorkflowJob proj = j.jenkins.createProject(WorkflowJob.class, "proj");
+        proj.setDefinition(new CpsFlowDefinition(
+            "parallel slow: {\n" +
+            "    httpRequest url: '"+baseURL()+"/timeout', timeout: 3, validResponseCodes: '100:599'\n" +
+            "}, limited: {\n" +
+            "    sleep 1\n" +
+            "    httpRequest '"+baseURL()+"/doGET'\n" +
+            "}\n",
+            true));
+
+        // Execute the build
+        WorkflowRun run = proj.scheduleBuild2(0).get();
+
+        // Check expectations
+        j.assertBuildStatus(Result.FAILURE, run);
+        j.assertLogContains("1 request(s) queued", run);
+        j.assertLogContains("Fail: no concurrent request to localhost available", run);
+    }
+
+    @Test
+    public void requestOverTheRateLimitWaitsForItsTurn() throws Exception {
+        // Prepare the server
+        registerRequestChecker(HttpMode.GET);
+
+        // Store the configuration
+        HttpRequestGlobalConfig.get().setHostRateLimits(Collections.singletonList(
+                new HostRateLimit("localhost", 1, 2, 1, 10)));
+
+        // Configure the build
+        WorkflowJob proj = j.jenkins.createProject(WorkflowJob.class, "proj");
+        proj.setDefinition(new CpsFlowDefinition(
+            "httpRequest '"+baseURL()+"/doGET'\n" +
+            "def response = httpRequest '"+baseURL()+"/doGET'\n" +
+            "println('Status: '+response.status)\n",
+            true));
+
+        // Execute the build
+        WorkflowRun run = proj.scheduleBuild2(0).get();
+
+        // Check expectations
+        j.assertBuildStatusSuccess(run);
+        j.assertLogContains("Rate limit of 1 requests per 2s to localhost, waiting", run);
+        j.assertLogContains("Status: 200", run);
+    }
+
+    @Test
+    public void requestOverTheRateLimitFailsAfterMaxWait() throws Exception {
+        // Prepare the server
+        registerRequestChecker(HttpMode.GET);
+
+        // Store the configuration
+        HttpRequestGlobalConfig.get().setHostRateLimits(Collections.singletonList(
+                new HostRateLimit("localhost", 1, 60, 1, 0)));
+
+        // Configure the build
+        WorkflowJob proj = j.jenkins.createProject(WorkflowJob.class, "proj");
+        proj.setDefinition(new CpsFlowDefinition(
+            "httpRequest '"+baseURL()+"/doGET'\n" +
+            "httpRequest '"+baseURL()+"/doGET'\n",
+            true));
+
+        // Execute the build
+        WorkflowRun run = proj.scheduleBuild2(0).get();
+
+        // Check expectations
+        j.assertBuildStatus(Result.FAILURE, run);
+        j.assertLogContains("Fail: rate limit of 1 requests per 60s to localhost would wait", run);
+    }
+
+    @Test
+    public void openCircuitBreakerAnswersWithoutCallingTheHost() throws Exception {
+        // Prepare the server
+        registerServerError();
+
+        // Store the configuration
+        HttpRequestGlobalConfig.get().setCircuitBreakerFailures(2);
+        HttpRequestGlobalConfig.get().setCircuitBreakerOpenDuration(60);
+
+        // Configure the build
+        WorkflowJob proj = j.jenkins.createProject(WorkflowJob.class, "proj");
+        proj.setDefinition(new CpsFlowDefinition(
+            "for (int i = 0; i < 3; i++) {\n" +
+            "    def response = httpRequest url: '"+baseURL()+"/serverError', validResponseCodes: '100:599'\n" +
+            "    println('Status: '+response.status+' Response: '+response.content)\n" +
+            "}\n",
+            true));
+
+        // Execute the build
+        WorkflowRun run = proj.scheduleBuild2(0).get();
+
+        // Check expectations
+        j.assertBuildStatusSuccess(run);
+        j.assertLogContains("Status: 503 Response: Throwing status 503 for test", run);
+        j.assertLogContains("Treating Circuit breaker open for localhost", run);
+        assertEquals(CircuitBreaker.State.OPEN, CircuitBreakers.get("localhost").getState());
+    }
+
+    @Test
+    public void connectTimeoutOpensTheCircuitBreaker() throws Exception {
+        // Store the configuration
+        HttpRequestGlobalConfig.get().setCircuitBreakerFailures(1);
+        HttpRequestGlobalConfig.get().setCircuitBreakerOpenDuration(60);
+
+        // Configure the build, the address is not routable
+        WorkflowJob proj = j.jenkins.createProject(WorkflowJob.class, "proj");
+        proj.setDefinition(new CpsFlowDefinition(
+            "httpRequest url: 'http://10.255.255.1/', timeout: 1\n",
+            true));
+
+        // Execute the build
+        WorkflowRun run = proj.scheduleBuild2(0).get();
+
+        // Check expectations
+        j.assertBuildStatus(Result.FAILURE, run);
+        assertEquals(CircuitBreaker.State.OPEN, CircuitBreakers.get("10.255.255.1").getState());
+    }
+
+    @Test
+    public void serverErrorIsRetriedUntilItRecovers() throws Exception {
+        // Prepare the server
+        registerFlaky(2);
+
+        // Configure the build
+        WorkflowJob proj = j.jenkins.createProject(WorkflowJob.class, "proj");
+        proj.setDefinition(new CpsFlowDefinition(
+            "def response = httpRequest url: '"+baseURL()+"/flaky', maxAttempts: 3, retryBackoff: 10\n" +
+            "println('Status: '+response.status+' Response: '+response.content)\n",
+            true));
+
+        // Execute the build
+        WorkflowRun run = proj.scheduleBuild2(0).get();
+
+        // Check expectations
+        j.assertBuildStatusSuccess(run);
+        j.assertLogContains("Attempt 1 of 3: status 503", run);
+        j.assertLogContains("Attempt 2 of 3: status 503", run);
+        j.assertLogContains("Attempt 3 of 3: status 200", run);
+        j.assertLogContains("Status: 200 Response: Recovered after 2 failures", run);
+    }
+
+    @Test
+    public void slowRequestIsHedged() throws Exception {
+        // Prepare the server
+        registerSlowFirst(5000);
+
+        // Configure the build
+        WorkflowJob proj = j.jenkins.createProject(WorkflowJob.class, "proj");
+        proj.setDefinition(new CpsFlowDefinition(
+            "def response = httpRequest url: '"+baseURL()+"/slowFirst', hedgeDelay: 100\n" +
+            "println('Response: '+response.content+' Hedges: '+response.hedges)\n",
+            true));
+
+        // Execute the build
+        WorkflowRun run = proj.scheduleBuild2(0).get();
+
+        // Check expectations
+        j.assertBuildStatusSuccess(run);
+        j.assertLogContains("Hedging request to url: "+baseURL()+"/slowFirst after 100 ms", run);
+        j.assertLogContains("Response: Answer 2 Hedges: 1", run);
+    }
+
+    @Test
+    public void identicalRequestsInFlightAreCoalesced() throws Exception {
+        // Prepare the server
+        registerSlowFirst(2000);
+
+        // Configure the build
+        WorkflowJob proj = j.jenkins.createProject(WorkflowJob.class, "proj");
+        proj.setDefinition(new CpsFlowDefinition(
+            "parallel first: {\n" +
+            "    println('First: '+httpRequest(url: '"+baseURL()+"/slowFirst', coalesce: true).content)\n" +
+            "}, second: {\n" +
+            "    sleep time: 500, unit: 'MILLISECONDS'\n" +
+            "    println('Second: '+httpRequest(url: '"+baseURL()+"/slowFirst', coalesce: true).content)\n" +
+            "}\n",
+            true));
+
+        // Execute the build
+        WorkflowRun run = proj.scheduleBuild2(0).get();
+
+        // Check expectations
+        j.assertBuildStatusSuccess(run);
+        j.assertLogContains("Sharing the response of an identical request in flight", run);
+        j.assertLogContains("First: Answer 1", run);
+        j.assertLogContains("Second: Answer 1", run);
+    }
+
+    @Test
+    public void freshResponseIsServedFromTheCache() throws Exception {
+        // Prepare the server
+        registerCacheable("max-age=60");
+
+        // Store the configuration
+        HttpRequestGlobalConfig.get().setResponseCacheSize(10);
+
+        // Configure the build
+        WorkflowJob proj = j.jenkins.createProject(WorkflowJob.class, "proj");
+        proj.setDefinition(new CpsFlowDefinition(
+            "for (int i = 0; i < 2; i++) {\n" +
+            "    println('Response: '+httpRequest(url: '"+baseURL()+"/cacheable').content)\n" +
+            "}\n",
+            true));
+
+        // Execute the build
+        WorkflowRun run = proj.scheduleBuild2(0).get();
+
+        // Check expectations
+        j.assertBuildStatusSuccess(run);
+        j.assertLogContains("Response served from the cache", run);
+        j.assertLogNotContains("Response: Sent by call 2", run);
+    }
+
+    @Test
+    public void staleResponseIsRevalidated() throws Exception {
+        // Prepare the server
+        registerCacheable("no-cache");
+
+        // Store the configuration
+        HttpRequestGlobalConfig.get().setResponseCacheSize(10);
+
+        // Configure the build
+        WorkflowJob proj = j.jenkins.createProject(WorkflowJob.class, "proj");
+        proj.setDefinition(new CpsFlowDefinition(
+            "for (int i = 0; i < 2; i++) {\n" +
+            "    def response = httpRequest url: '"+baseURL()+"/cacheable'\n" +
+            "    println('Status: '+response.status+' Response: '+response.content)\n" +
+            "}\n",
+            true));
+
+        // Execute the build
+        WorkflowRun run = proj.scheduleBuild2(0).get();
+
+        // Check expectations
+        j.assertBuildStatusSuccess(run);
+        j.assertLogContains("Cached response revalidated, not modified", run);
+        j.assertLogNotContains("Response: Sent by call 2", run);
+        j.assertLogContains("Status: 200 Response: Sent by call 1", run);
+    }
+
+    @Test
+    public void smallResponseIsServedFromMemory() throws Exception {
+        // Prepare the server
+        registerCacheable("max-age=60");
+
+        // Configure the build
+        WorkflowJob proj = j.jenkins.createProject(WorkflowJob.class, "proj");
+        proj.setDefinition(new CpsFlowDefinition(
+            "for (int i = 0; i < 50; i++) {\n" +
+            "    println('Response: '+httpRequest(url: '"+baseURL()+"/cacheable', memoryCache: true).content)\n" +
+            "}\n",
+            true));
+
+        // Execute the build
+        WorkflowRun run = proj.scheduleBuild2(0).get();
+
+        // Check expectations
+        j.assertBuildStatusSuccess(run);
+        j.assertLogContains("Response served from the memory cache", run);
+        j.assertLogContains("Response: Sent by call 1", run);
+        j.assertLogNotContains("Response: Sent by call 2", run);
+    }
+
+    @Test
+    public void batchReturnsResponsesInRequestOrder() throws Exception {
+        // Prepare the server
+        registerSlowFirst(1000);
+        registerRequestChecker(HttpMode.GET);
+        registerInvalidStatusCode();
+
+        // Configure the build
+        WorkflowJob proj = j.jenkins.createProject(WorkflowJob.class, "proj");
+        proj.setDefinition(new CpsFlowDefinition(
+            "def responses = httpRequestBatch maxConcurrent: 2, failFast: false, requests: [\n" +
+            "    [url: '"+baseURL()+"/slowFirst'],\n" +
+            "    [url: '"+baseURL()+"/doGET'],\n" +
+            "    [url: '"+baseURL()+"/invalidStatusCode']\n" +
+            "]\n" +
+            "for (int i = 0; i < responses.size(); i++) {\n" +
+            "    println('Response '+i+': '+responses[i].status+' '+responses[i].content)\n" +
+            "}\n",
+            true));
+
+        // Execute the build
+        WorkflowRun run = proj.scheduleBuild2(0).get();
+
+        // Check expectations
+        j.assertBuildStatusSuccess(run);
+        j.assertLogContains("Response 0: 200 Answer 1", run);
+        j.assertLogContains("Response 1: 200 " + ALL_IS_WELL, run);
+        j.assertLogContains("Response 2: 400", run);
+        j.assertLogContains("Request 3 of 3 failed", run);
+        j.assertLogContains("1 of 3 requests failed", run);
+    }
+
+    @Test
+    public void pagesAreFollowedAndMerged() throws Exception {
+        // Prepare the server
+        registerPaged(3);
+
+        // Configure the build
+        WorkflowJob proj = j.jenkins.createProject(WorkflowJob.class, "proj");
+        proj.setDefinition(new CpsFlowDefinition(
+            "def response = httpRequest url: '"+baseURL()+"/paged', pagination: 'LINK_HEADER'\n" +
+            "println('Pages: '+response.pages)\n" +
+            "println('Response: '+response.content)\n",
+            true));
+
+        // Execute the build
+        WorkflowRun run = proj.scheduleBuild2(0).get();
+
+        // Check expectations
+        j.assertBuildStatusSuccess(run);
+        j.assertLogContains("Following next page: " + baseURL() + "/paged?page=3", run);
+        j.assertLogContains("Pages: 3", run);
+        j.assertLogContains("Response: [1,2,3,4,5,6]", run);
+    }
+
+    @Test
+    public void nextPageOnAnotherHostIsNotFollowed() throws Exception {
+        // Prepare the server, the next page is on the same server under another host name
+        String next = baseURL().replace("localhost", "127.0.0.1") + "/paged?page=2";
+        registerPagedElsewhere(next);
+        registerPaged(2);
+
+        // Configure the build
+        WorkflowJob proj = j.jenkins.createProject(WorkflowJob.class, "proj");
+        proj.setDefinition(new CpsFlowDefinition(
+            "def response = httpRequest url: '"+baseURL()+"/pagedElsewhere', pagination: 'LINK_HEADER',\n" +
+            "    customHeaders: [[name: 'Authorization', value: 'Bearer secret', maskValue: true]]\n" +
+            "println('Pages: '+response.pages)\n" +
+            "println('Response: '+response.content)\n",
+            true));
+
+        // Execute the build
+        WorkflowRun run = proj.scheduleBuild2(0).get();
+
+        // Check expectations
+        j.assertBuildStatusSuccess(run);
+        j.assertLogContains("Pagination stopped after 1 pages, the next page " + next + " is not on the scheme, host and port", run);
+        j.assertLogNotContains("Following next page", run);
+        j.assertLogContains("Pages: 1", run);
+        j.assertLogContains("Response: [1,2]", run);
+    }
+
     @Test
     public void canDoFormAuthentication() throws Exception {
         // Prepare the server
@@ -633,4 +1197,223 @@ public class HttpRequestStepTest extends HttpRequestTestBase {
         j.assertBuildStatusSuccess(run);
         j.assertLogContains("Response: " + body, run);
     }
+
+    @Test
+    public void connectionIsReusedBetweenRequests() throws Exception {
+        //configure server
+        final Set<Integer> clientPorts = Collections.synchronizedSet(new HashSet<Integer>());
+        registerHandler("/keepAlive", HttpMode.GET, new SimpleHandler() {
+            @Override
+            void doHandle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException {
+                clientPorts.add(request.getRemotePort());
+                okAllIsWell(response);
+            }
+        });
+
+        // Configure the build
+        WorkflowJob proj = j.jenkins.createProject(WorkflowJob.class, "keepAlive");
+        proj.setDefinition(new CpsFlowDefinition(
+                "httpRequest '" + baseURL() + "/keepAlive'\n" +
+                "httpRequest '" + baseURL() + "/keepAlive'\n" +
+                "httpRequest '" + baseURL() + "/keepAlive'\n",
+                true));
+
+        // Execute the build
+        WorkflowRun run = proj.scheduleBuild2(0).get();
+
+        // Check expectations
+        j.assertBuildStatusSuccess(run);
+        assertEquals(1, clientPorts.size());
+    }
+
+    @Test
+    public void logIsSentInOrderFromAgent() throws Exception {
+        // Prepare the server
+        registerCustomHeaders();
+        j.createOnlineSlave(Label.get("remote"));
+
+        // Configure the build
+        WorkflowJob proj = j.jenkins.createProject(WorkflowJob.class, "proj");
+        proj.setDefinition(new CpsFlowDefinition(
+            "node('remote') {\n" +
+            "    httpRequest url:'"+baseURL()+"/customHeaders',\n" +
+            "        customHeaders: [[name: 'customHeader', value: 'value1'],[name: 'customHeader', value: 'value2']]\n" +
+            "}\n",
+            true));
+
+        // Execute the build
+        WorkflowRun run = proj.scheduleBuild2(0).get();
+
+        // Check expectations
+        j.assertBuildStatusSuccess(run);
+        j.assertLogContains("HttpMethod: GET\nURL: " + baseURL() + "/customHeaders\n" +
+                "customHeader: value1\ncustomHeader: value2\n", run);
+        j.assertLogContains("Response Code: HTTP/1.1 200 OK", run);
+    }
+
+    @Test
+    public void contentBytesAreTheBodyAsReceived() throws Exception {
+        // Prepare the server
+        final byte[] body = "Gr\u00fc\u00dfe".getBytes(StandardCharsets.UTF_8);
+        registerHandler("/bytes", HttpMode.GET, new SimpleHandler() {
+            @Override
+            void doHandle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException {
+                response.setContentType("text/plain; charset=UTF-8");
+                response.setContentLength(body.length);
+                response.getOutputStream().write(body);
+            }
+        });
+
+        // Configure the build
+        WorkflowJob proj = j.jenkins.createProject(WorkflowJob.class, "proj");
+        proj.setDefinition(new CpsFlowDefinition(
+            "def response = httpRequest '"+baseURL()+"/bytes'\n" +
+            "println('Bytes: '+response.contentBytes.length)\n" +
+            "println('Content: '+response.content)\n",
+            true));
+
+        // Execute the build
+        WorkflowRun run = proj.scheduleBuild2(0).get();
+
+        // Check expectations
+        j.assertBuildStatusSuccess(run);
+        j.assertLogContains("Bytes: " + body.length, run);
+        j.assertLogContains("Content: Gr\u00fc\u00dfe", run);
+    }
+
+    @Test
+    public void largeResponseIsSpilledToDisk() throws Exception {
+        // Prepare the server
+        int size = 2 * 1024 * 1024;
+        registerLarge(size);
+        HttpRequestGlobalConfig.get().setSpillThreshold(1);
+
+        // Configure the build
+        WorkflowJob proj = j.jenkins.createProject(WorkflowJob.class, "proj");
+        proj.setDefinition(new CpsFlowDefinition(
+            "def response = httpRequest '"+baseURL()+"/large'\n" +
+            "println('Length: '+response.content.length())\n" +
+            "response.close()\n",
+            true));
+
+        // Execute the build
+        WorkflowRun run = proj.scheduleBuild2(0).get();
+
+        // Check expectations
+        j.assertBuildStatusSuccess(run);
+        j.assertLogContains("Length: " + size, run);
+        String prefix = "Response body kept on disk: ";
+        String log = JenkinsRule.getLog(run);
+        int start = log.indexOf(prefix);
+        assertTrue(start >= 0);
+        String path = log.substring(start + prefix.length(), log.indexOf('\n', start)).trim();
+        assertFalse(new File(path).exists());
+    }
+
+    @Test
+    public void largeBodyLoggedOnFailureIsAbbreviated() throws Exception {
+        // Prepare the server
+        registerLarge(1024 * 1024);
+
+        // Configure the build, without max size the body of a refused response is still bounded
+        WorkflowJob proj = j.jenkins.createProject(WorkflowJob.class, "proj");
+        proj.setDefinition(new CpsFlowDefinition(
+            "httpRequest url: '"+baseURL()+"/large', consoleLogResponseBodyOnFailure: true,\n" +
+            "    validResponseContent: 'missing'\n",
+            true));
+
+        // Execute the build
+        WorkflowRun run = proj.scheduleBuild2(0).get();
+
+        // Check expectations
+        j.assertBuildStatus(Result.FAILURE, run);
+        j.assertLogContains("characters skipped", run);
+        assertTrue(JenkinsRule.getLog(run).length() < 512 * 1024);
+    }
+
+    @Test
+    public void responseOverMemoryBudgetFailsWithFailPolicy() throws Exception {
+        // Prepare the server
+        registerLarge(2 * 1024 * 1024);
+        HttpRequestGlobalConfig.get().setResponseMemoryBudget(1);
+        HttpRequestGlobalConfig.get().setResponseMemoryPolicy(ResponseMemoryPolicy.FAIL);
+
+        // Configure the build
+        WorkflowJob proj = j.jenkins.createProject(WorkflowJob.class, "proj");
+        proj.setDefinition(new CpsFlowDefinition(
+            "httpRequest '"+baseURL()+"/large'\n",
+            true));
+
+        // Execute the build
+        WorkflowRun run = proj.scheduleBuild2(0).get();
+
+        // Check expectations
+        j.assertBuildStatus(Result.FAILURE, run);
+        j.assertLogContains("over the response memory budget", run);
+        assertEquals(0, ResponseMemoryBudget.getBudget().getUsedBytes());
+        assertTrue(ResponseMemoryBudget.getBudget().getRejected() > 0);
+    }
+
+    @Test
+    public void contentKeptOnNodeIsReadWhereItIs() throws Exception {
+        // Prepare the server
+        final String body = "{\"meta\":{\"total\":42},\"items\":[]}";
+        registerHandler("/export", HttpMode.GET, new SimpleHandler() {
+            @Override
+            void doHandle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException {
+                body(response, HttpServletResponse.SC_OK, ContentType.APPLICATION_JSON, body);
+            }
+        });
+
+        // Configure the build
+        WorkflowJob proj = j.jenkins.createProject(WorkflowJob.class, "proj");
+        proj.setDefinition(new CpsFlowDefinition(
+            "def response = httpRequest url:'"+baseURL()+"/export', responseHandle: 'KEEP_ON_NODE'\n" +
+            "println('Total: '+response.getJsonField('meta.total'))\n" +
+            "println('Slice: '+response.getContentSlice(2, 4))\n" +
+            "println('Hash: '+response.getContentHash('SHA-256'))\n" +
+            "response.close()\n",
+            true));
+
+        // Execute the build
+        WorkflowRun run = proj.scheduleBuild2(0).get();
+
+        // Check expectations
+        j.assertBuildStatusSuccess(run);
+        j.assertLogContains("Response body kept on disk: ", run);
+        j.assertLogContains("Total: 42", run);
+        j.assertLogContains("Slice: meta", run);
+        j.assertLogContains("Hash: " + ContentOperations.hash(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), "SHA-256"), run);
+    }
+
+    @Test
+    public void largeContentIsKeptInTheBuild() throws Exception {
+        // Prepare the server
+        int size = 256 * 1024;
+        registerLarge(size);
+        HttpRequestGlobalConfig.get().setResponseBlobThreshold(64);
+
+        // Configure the build
+        WorkflowJob proj = j.jenkins.createProject(WorkflowJob.class, "proj");
+        proj.setDefinition(new CpsFlowDefinition(
+            "def response = httpRequest '"+baseURL()+"/large'\n" +
+            "println('Length: '+response.content.length())\n" +
+            "println('Hash: '+response.getContentHash('SHA-256'))\n",
+            true));
+
+        // Execute the build
+        WorkflowRun run = proj.scheduleBuild2(0).get();
+
+        // Check expectations
+        j.assertBuildStatusSuccess(run);
+        j.assertLogContains("Length: " + size, run);
+        File[] blobs = new File(run.getRootDir(), "http-request").listFiles();
+        assertNotNull(blobs);
+        assertEquals(1, blobs.length);
+        assertEquals(size, blobs[0].length());
+        j.assertLogContains("Hash: " + blobs[0].getName(), run);
+        try (FileInputStream in = new FileInputStream(blobs[0])) {
+            assertEquals(blobs[0].getName(), ContentOperations.hash(in, "SHA-256"));
+        }
+    }
 }
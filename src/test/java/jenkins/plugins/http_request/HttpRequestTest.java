@@ -596,6 +596,72 @@ public class HttpRequestTest extends HttpRequestTestBase {
 		assertTrue(m.find());
 	}
 
+	@Test
+	public void contentIsCheckedWhileSavedToOutputFile() throws Exception {
+		// Prepare the server
+		registerRequestChecker(HttpMode.GET);
+
+		// Prepare HttpRequest
+		HttpRequest httpRequest = new HttpRequest(baseURL() + "/doGET");
+		httpRequest.setOutputFile("file.txt");
+		httpRequest.setValidResponseContent("is well");
+
+		// Run build
+		FreeStyleProject project = this.j.createFreeStyleProject();
+		project.getBuildersList().add(httpRequest);
+		FreeStyleBuild build = project.scheduleBuild2(0).get();
+
+		// Check expectations
+		this.j.assertBuildStatusSuccess(build);
+		this.j.assertLogNotContains(ALL_IS_WELL, build);
+		Assert.assertEquals(ALL_IS_WELL, build.getWorkspace().child("file.txt").readToString());
+	}
+
+	@Test
+	public void missingContentDeletesOutputFile() throws Exception {
+		// Prepare the server
+		registerRequestChecker(HttpMode.GET);
+
+		// Prepare HttpRequest
+		HttpRequest httpRequest = new HttpRequest(baseURL() + "/doGET");
+		httpRequest.setOutputFile("file.txt");
+		httpRequest.setValidResponseContent("bad content");
+
+		// Run build
+		FreeStyleProject project = this.j.createFreeStyleProject();
+		project.getBuildersList().add(httpRequest);
+		FreeStyleBuild build = project.scheduleBuild2(0).get();
+
+		// Check expectations
+		this.j.assertBuildStatus(Result.FAILURE, build);
+		this.j.assertLogContains("Fail: Response doesn't contain expected content 'bad content'", build);
+		Assert.assertFalse(build.getWorkspace().child("file.txt").exists());
+	}
+
+	@Test
+	public void responseBodyIsLoggedOnFailureOnly() throws Exception {
+		// Prepare the server
+		registerRequestChecker(HttpMode.GET);
+		registerInvalidStatusCode();
+
+		// Prepare HttpRequest
+		HttpRequest success = new HttpRequest(baseURL() + "/doGET");
+		success.setConsoleLogResponseBodyOnFailure(true);
+		HttpRequest failure = new HttpRequest(baseURL() + "/invalidStatusCode");
+		failure.setConsoleLogResponseBodyOnFailure(true);
+
+		// Run build
+		FreeStyleProject project = this.j.createFreeStyleProject();
+		project.getBuildersList().add(success);
+		project.getBuildersList().add(failure);
+		FreeStyleBuild build = project.scheduleBuild2(0).get();
+
+		// Check expectations
+		this.j.assertBuildStatus(Result.FAILURE, build);
+		this.j.assertLogNotContains(ALL_IS_WELL, build);
+		this.j.assertLogContains("Throwing status 400 for test", build);
+	}
+
 	@Test
 	public void timeoutFailsTheBuild() throws Exception {
 		// Prepare the server
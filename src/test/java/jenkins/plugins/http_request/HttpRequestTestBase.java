@@ -131,6 +131,8 @@ public class HttpRequestTestBase {
 		private ServerRunning() throws Exception {
 			server = new Server();
 			ServerConnector connector = new ServerConnector(server);
+			//only the loopback address, other loopback addresses stay free to bind on the same port
+			connector.setHost("127.0.0.1");
 			server.setConnectors(new Connector[]{connector});
 
 			ContextHandler context = new ContextHandler();
@@ -6,9 +6,11 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Enumeration;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
@@ -215,6 +217,110 @@ public class Registers {
 		});
 	}
 
+	static void registerServerError() {
+		// Return a server error
+		registerHandler("/serverError", HttpMode.GET, new SimpleHandler() {
+			@Override
+			void doHandle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException {
+				body(response, HttpServletResponse.SC_SERVICE_UNAVAILABLE, ContentType.TEXT_PLAIN, "Throwing status 503 for test");
+			}
+		});
+	}
+
+	static void registerFlaky(final int failures) {
+		// Return a server error for the first requests only
+		final AtomicInteger count = new AtomicInteger();
+		registerHandler("/flaky", HttpMode.GET, new SimpleHandler() {
+			@Override
+			void doHandle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException {
+				if (count.incrementAndGet() <= failures) {
+					body(response, HttpServletResponse.SC_SERVICE_UNAVAILABLE, ContentType.TEXT_PLAIN, "Throwing status 503 for test");
+				} else {
+					body(response, HttpServletResponse.SC_OK, ContentType.TEXT_PLAIN, "Recovered after " + failures + " failures");
+				}
+			}
+		});
+	}
+
+	static void registerSlowFirst(final long millis) {
+		// Answer the first request only after a delay
+		final AtomicInteger count = new AtomicInteger();
+		registerHandler("/slowFirst", HttpMode.GET, new SimpleHandler() {
+			@Override
+			void doHandle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException {
+				int call = count.incrementAndGet();
+				if (call == 1) {
+					try {
+						Thread.sleep(millis);
+					} catch (InterruptedException e) {
+						throw new ServletException(e);
+					}
+				}
+				body(response, HttpServletResponse.SC_OK, ContentType.TEXT_PLAIN, "Answer " + call);
+			}
+		});
+	}
+
+	static void registerCacheable(final String cacheControl) {
+		// Answer with validators, and not modified when they match
+		final AtomicInteger count = new AtomicInteger();
+		registerHandler("/cacheable", HttpMode.GET, new SimpleHandler() {
+			@Override
+			void doHandle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException {
+				int call = count.incrementAndGet();
+				response.setHeader("Cache-Control", cacheControl);
+				response.setHeader("ETag", "\"v1\"");
+				if ("\"v1\"".equals(request.getHeader("If-None-Match"))) {
+					response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+					return;
+				}
+				body(response, HttpServletResponse.SC_OK, ContentType.TEXT_PLAIN, "Sent by call " + call);
+			}
+		});
+	}
+
+	static void registerPaged(final int pages) {
+		// Answer a JSON array per page, with a link to the next page
+		registerHandler("/paged", HttpMode.GET, new SimpleHandler() {
+			@Override
+			void doHandle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException {
+				String param = request.getParameter("page");
+				int page = param != null ? Integer.parseInt(param) : 1;
+				if (page < pages) {
+					response.setHeader("Link", "</paged?page=" + (page + 1) + ">; rel=\"next\", </paged?page=" + pages + ">; rel=\"last\"");
+				}
+				body(response, HttpServletResponse.SC_OK, ContentType.APPLICATION_JSON, "[" + (2 * page - 1) + "," + 2 * page + "]");
+			}
+		});
+	}
+
+	static void registerPagedElsewhere(final String next) {
+		// Answer one page, with a link to a next page on another host
+		registerHandler("/pagedElsewhere", HttpMode.GET, new SimpleHandler() {
+			@Override
+			void doHandle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException {
+				response.setHeader("Link", "<" + next + ">; rel=\"next\"");
+				body(response, HttpServletResponse.SC_OK, ContentType.APPLICATION_JSON, "[1,2]");
+			}
+		});
+	}
+
+	static void registerLarge(final int size) {
+		// Answer a text body of the given size, with its length
+		registerHandler("/large", HttpMode.GET, new SimpleHandler() {
+			@Override
+			void doHandle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException {
+				response.setContentType("text/plain");
+				response.setContentLength(size);
+				byte[] chunk = new byte[8192];
+				Arrays.fill(chunk, (byte) 'a');
+				for (int written = 0; written < size; written += chunk.length) {
+					response.getOutputStream().write(chunk, 0, Math.min(chunk.length, size - written));
+				}
+			}
+		});
+	}
+
 	static void registerCustomHeadersResolved() {
 		// Check if the parameters in custom headers have been resolved
 		registerHandler("/customHeadersResolved", HttpMode.POST, new SimpleHandler() {
@@ -0,0 +1,78 @@
+package jenkins.plugins.http_request.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.message.BasicHttpResponse;
+import org.junit.Test;
+
+public class CacheEntryTest {
+
+	@Test
+	public void entryIsReadAsWritten() throws Exception {
+		HttpGet request = new HttpGet("https://api.example.com/items");
+		request.setHeader("Accept", "application/json");
+		HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+		response.setHeader("Cache-Control", "max-age=60");
+		response.setHeader("ETag", "\"v1\"");
+		response.setHeader("Vary", "Accept");
+		CacheEntry entry = new CacheEntry("GET https://api.example.com/items 0a1b", request, response, 1000, 2000);
+		entry.setSize(42);
+
+		StringWriter text = new StringWriter();
+		entry.writeTo(text);
+		CacheEntry read = CacheEntry.readFrom(new BufferedReader(new StringReader(text.toString())));
+
+		assertEquals(entry.toString(), read.toString());
+		assertEquals(42, read.getSize());
+		assertTrue(read.canRevalidate());
+		assertTrue(read.matches(request));
+		HttpGet other = new HttpGet("https://api.example.com/items");
+		other.setHeader("Accept", "text/xml");
+		assertFalse(read.matches(other));
+		HttpResponse cached = read.toResponse(2000, null);
+		assertEquals("max-age=60", cached.getFirstHeader("Cache-Control").getValue());
+		assertEquals("\"v1\"", cached.getFirstHeader("ETag").getValue());
+	}
+
+	@Test
+	public void varyValueIsNotWritten() throws Exception {
+		HttpGet request = new HttpGet("https://api.example.com/items");
+		request.setHeader("X-Api-Key", "secret-key");
+		HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+		response.setHeader("Cache-Control", "public, max-age=60");
+		response.setHeader("Vary", "X-Api-Key");
+		CacheEntry entry = new CacheEntry("GET https://api.example.com/items 0a1b", request, response, 1000, 2000);
+
+		StringWriter text = new StringWriter();
+		entry.writeTo(text);
+		CacheEntry read = CacheEntry.readFrom(new BufferedReader(new StringReader(text.toString())));
+
+		assertFalse(text.toString().contains("secret-key"));
+		assertTrue(read.matches(request));
+		HttpGet other = new HttpGet("https://api.example.com/items");
+		other.setHeader("X-Api-Key", "other-key");
+		assertFalse(read.matches(other));
+	}
+
+	@Test
+	public void otherTextIsNotAnEntry() {
+		try {
+			//the start of an entry serialized by an earlier version
+			CacheEntry.readFrom(new BufferedReader(new StringReader("\u00ac\u00ed\u0000\u0005sr")));
+			fail("read an entry");
+		} catch (IOException expected) {
+			// the file is deleted by the cache
+		}
+	}
+}
@@ -0,0 +1,130 @@
+package jenkins.plugins.http_request.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.conn.DnsResolver;
+import org.junit.Test;
+
+import com.google.common.base.Ticker;
+
+public class CachingDnsResolverTest {
+
+	private final StubResolver stub = new StubResolver();
+	private final ManualTicker ticker = new ManualTicker();
+	private final List<Runnable> prefetches = new ArrayList<>();
+	private final CachingDnsResolver resolver = new CachingDnsResolver(stub, ticker, new Executor() {
+		@Override
+		public void execute(Runnable command) {
+			prefetches.add(command);
+		}
+	});
+
+	@Test
+	public void resolvedHostIsCachedForThePositiveTtl() throws Exception {
+		resolver.setSettings(settings(60, 0, false));
+		stub.addresses = address(10, 0, 0, 1);
+
+		assertArrayEquals(address(10, 0, 0, 1), resolver.resolve("api.example.com"));
+		stub.addresses = address(10, 0, 0, 2);
+		ticker.advance(59);
+		assertArrayEquals(address(10, 0, 0, 1), resolver.resolve("API.example.com"));
+		assertEquals(1, stub.lookups);
+
+		ticker.advance(1);
+		assertArrayEquals(address(10, 0, 0, 2), resolver.resolve("api.example.com"));
+		assertEquals(2, stub.lookups);
+	}
+
+	@Test
+	public void unknownHostIsCachedForTheNegativeTtl() throws Exception {
+		resolver.setSettings(settings(60, 5, false));
+
+		assertUnknown("missing.example.com");
+		stub.addresses = address(10, 0, 0, 3);
+		ticker.advance(4);
+		assertUnknown("missing.example.com");
+		assertEquals(1, stub.lookups);
+
+		ticker.advance(1);
+		assertArrayEquals(address(10, 0, 0, 3), resolver.resolve("missing.example.com"));
+		assertEquals(2, stub.lookups);
+	}
+
+	@Test
+	public void hostExpiringSoonIsResolvedAgainInBackground() throws Exception {
+		resolver.setSettings(settings(60, 0, true));
+		stub.addresses = address(10, 0, 0, 1);
+		resolver.resolve("api.example.com");
+
+		stub.addresses = address(10, 0, 0, 2);
+		ticker.advance(44);
+		resolver.resolve("api.example.com");
+		assertEquals(0, prefetches.size());
+
+		//the last quarter of the ttl, the cached addresses are answered while the host is resolved again
+		ticker.advance(1);
+		assertArrayEquals(address(10, 0, 0, 1), resolver.resolve("api.example.com"));
+		resolver.resolve("api.example.com");
+		assertEquals(1, prefetches.size());
+		prefetches.get(0).run();
+
+		assertEquals(2, stub.lookups);
+		ticker.advance(30);
+		assertArrayEquals(address(10, 0, 0, 2), resolver.resolve("api.example.com"));
+		assertEquals(2, stub.lookups);
+	}
+
+	private void assertUnknown(String host) {
+		try {
+			resolver.resolve(host);
+			fail("resolved " + host);
+		} catch (UnknownHostException expected) {
+			// cached or not, the host is unknown
+		}
+	}
+
+	private static DnsSettings settings(int positiveTtl, int negativeTtl, boolean prefetch) {
+		return new DnsSettings(positiveTtl, negativeTtl, prefetch, Collections.<HostAddressOverride>emptyList());
+	}
+
+	private static InetAddress[] address(int a, int b, int c, int d) throws UnknownHostException {
+		return new InetAddress[]{InetAddress.getByAddress(new byte[]{(byte) a, (byte) b, (byte) c, (byte) d})};
+	}
+
+	private static final class StubResolver implements DnsResolver {
+		private InetAddress[] addresses;
+		private int lookups;
+
+		@Override
+		public InetAddress[] resolve(String host) throws UnknownHostException {
+			lookups++;
+			if (addresses == null) {
+				throw new UnknownHostException(host);
+			}
+			return addresses;
+		}
+	}
+
+	private static final class ManualTicker extends Ticker {
+		private long nanos = TimeUnit.HOURS.toNanos(1);
+
+		private void advance(int seconds) {
+			nanos += TimeUnit.SECONDS.toNanos(seconds);
+		}
+
+		@Override
+		public long read() {
+			return nanos;
+		}
+	}
+}
@@ -0,0 +1,60 @@
+package jenkins.plugins.http_request.util;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+public class ContentMatcherTest {
+
+	@Test
+	public void textSplitAcrossWritesIsFound() {
+		ContentMatcher matcher = new ContentMatcher("\"status\":\"UP\"", StandardCharsets.UTF_8);
+		write(matcher, "{\"sta");
+		assertFalse(matcher.isFound());
+		write(matcher, "tus\":");
+		write(matcher, "\"U");
+		assertFalse(matcher.isFound());
+		write(matcher, "P\"}");
+		assertTrue(matcher.isFound());
+	}
+
+	@Test
+	public void partialMatchFallsBackToItsLongestPrefix() {
+		//the fourth "a" breaks the match of "aaa", the last three "a" still start one
+		ContentMatcher matcher = new ContentMatcher("aaab", StandardCharsets.UTF_8);
+		write(matcher, "xaa");
+		write(matcher, "a");
+		write(matcher, "a");
+		assertFalse(matcher.isFound());
+		write(matcher, "b");
+		assertTrue(matcher.isFound());
+	}
+
+	@Test
+	public void partialMatchBrokenAcrossWritesIsNotFound() {
+		ContentMatcher matcher = new ContentMatcher("abcabd", StandardCharsets.UTF_8);
+		write(matcher, "abcab");
+		write(matcher, "cabc");
+		assertFalse(matcher.isFound());
+		write(matcher, "abd");
+		assertTrue(matcher.isFound());
+	}
+
+	@Test
+	public void multiByteCharacterSplitAcrossWritesIsFound() {
+		ContentMatcher matcher = new ContentMatcher("\u00e9", StandardCharsets.UTF_8);
+		byte[] bytes = "caf\u00e9".getBytes(StandardCharsets.UTF_8);
+		matcher.write(bytes, 0, bytes.length - 1);
+		assertFalse(matcher.isFound());
+		matcher.write(bytes, bytes.length - 1, 1);
+		assertTrue(matcher.isFound());
+	}
+
+	private static void write(ContentMatcher matcher, String text) {
+		byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+		matcher.write(bytes, 0, bytes.length);
+	}
+}
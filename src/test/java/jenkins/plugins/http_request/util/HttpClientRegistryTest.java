@@ -0,0 +1,37 @@
+package jenkins.plugins.http_request.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.http.HttpHost;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.junit.Test;
+
+public class HttpClientRegistryTest {
+
+	@Test
+	public void hostLimitIsAppliedThenRemoved() {
+		PoolingHttpClientConnectionManager pool = new PoolingHttpClientConnectionManager();
+		pool.setDefaultMaxPerRoute(50);
+		HttpRoute route = new HttpRoute(new HttpHost("api.example.com", 443, "https"));
+		HttpRoute other = new HttpRoute(new HttpHost("other.example.com", 443, "https"));
+
+		HttpClientRegistry.applyHostLimit(pool, route,
+				settings(Collections.singletonList(new HostConnectionLimit("API.example.com", 4))));
+		HttpClientRegistry.applyHostLimit(pool, other,
+				settings(Collections.singletonList(new HostConnectionLimit("api.example.com", 4))));
+		assertEquals(4, pool.getMaxPerRoute(route));
+		assertEquals(50, pool.getMaxPerRoute(other));
+
+		HttpClientRegistry.applyHostLimit(pool, route, settings(Collections.<HostConnectionLimit>emptyList()));
+		assertEquals(50, pool.getMaxPerRoute(route));
+	}
+
+	private static ConnectionPoolSettings settings(List<HostConnectionLimit> limits) {
+		return new ConnectionPoolSettings(200, 50, 60, 60, 0, 0, limits,
+				new DnsSettings(0, 0, false, Collections.<HostAddressOverride>emptyList()));
+	}
+}
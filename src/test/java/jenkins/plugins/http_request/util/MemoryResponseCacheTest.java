@@ -0,0 +1,71 @@
+package jenkins.plugins.http_request.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.entity.InputStreamEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.util.EntityUtils;
+import org.junit.Test;
+
+public class MemoryResponseCacheTest {
+
+	private final MemoryResponseCache cache = MemoryResponseCache.get(1024, 16);
+	private final PrintStream logger = new PrintStream(new ByteArrayOutputStream());
+
+	@Test
+	public void responseIsOnlyReturnedToRequestsWithTheSameHeaders() throws Exception {
+		CountingUpstream upstream = new CountingUpstream("cached");
+		assertEquals("cached", send(get("https://api.example.com/headers", "token-a"), upstream));
+		assertEquals("cached", send(get("https://api.example.com/headers", "token-a"), upstream));
+		assertEquals(1, upstream.sent);
+
+		send(get("https://api.example.com/headers", "token-b"), upstream);
+		assertEquals(2, upstream.sent);
+	}
+
+	@Test
+	public void chunkedBodyOverTheMaxEntrySizeIsReadByTheCaller() throws Exception {
+		CountingUpstream upstream = new CountingUpstream("a chunked body larger than sixteen bytes");
+		assertEquals("a chunked body larger than sixteen bytes",
+				send(get("https://api.example.com/large", "token-a"), upstream));
+		send(get("https://api.example.com/large", "token-a"), upstream);
+		assertEquals(2, upstream.sent);
+	}
+
+	private String send(HttpGet request, RequestCoalescer.Upstream upstream) throws Exception {
+		return EntityUtils.toString(cache.execute(request, null, upstream, logger).getEntity());
+	}
+
+	private static HttpGet get(String url, String token) {
+		HttpGet request = new HttpGet(url);
+		request.setHeader("Authorization", "Bearer " + token);
+		return request;
+	}
+
+	private static final class CountingUpstream implements RequestCoalescer.Upstream {
+		private final String content;
+		private int sent;
+
+		private CountingUpstream(String content) {
+			this.content = content;
+		}
+
+		@Override
+		public HttpResponse execute() throws IOException {
+			sent++;
+			BasicHttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+			response.setHeader("Cache-Control", "public, max-age=60");
+			response.setEntity(new InputStreamEntity(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8))));
+			return response;
+		}
+	}
+}
@@ -0,0 +1,110 @@
+package jenkins.plugins.http_request.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.entity.InputStreamEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.util.EntityUtils;
+import org.junit.After;
+import org.junit.Test;
+
+public class RequestCoalescerTest {
+
+	private final ExecutorService executor = Executors.newCachedThreadPool();
+	private final PrintStream logger = new PrintStream(new ByteArrayOutputStream());
+
+	@After
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void smallResponseIsShared() throws Exception {
+		SlowUpstream upstream = new SlowUpstream("shared");
+		Future<String> leader = send("small", upstream, 0);
+		upstream.started.await();
+		Future<String> waiter = send("small", upstream, 0);
+		Thread.sleep(100);
+		upstream.release.countDown();
+
+		assertEquals("shared", leader.get(5, TimeUnit.SECONDS));
+		assertEquals("shared", waiter.get(5, TimeUnit.SECONDS));
+		assertEquals(1, upstream.sent.get());
+	}
+
+	@Test
+	public void responseOverTheMaxSizeIsNotShared() throws Exception {
+		SlowUpstream upstream = new SlowUpstream("larger than ten bytes");
+		Future<String> leader = send("large", upstream, 10);
+		upstream.started.await();
+		Future<String> waiter = send("large", upstream, 10);
+		Thread.sleep(100);
+		upstream.release.countDown();
+
+		assertEquals("larger than ten bytes", leader.get(5, TimeUnit.SECONDS));
+		assertEquals("larger than ten bytes", waiter.get(5, TimeUnit.SECONDS));
+		assertEquals(2, upstream.sent.get());
+	}
+
+	@Test
+	public void waitIsBoundedByTheTimeout() throws Exception {
+		SlowUpstream upstream = new SlowUpstream("late");
+		Future<String> leader = send("slow", upstream, 0);
+		upstream.started.await();
+		try {
+			RequestCoalescer.execute("slow", upstream, 1, 0, logger);
+			fail("waited for the response in flight");
+		} catch (SocketTimeoutException expected) {
+			// the request in flight is still waiting for the server
+		}
+		upstream.release.countDown();
+		assertEquals("late", leader.get(5, TimeUnit.SECONDS));
+	}
+
+	private Future<String> send(final String key, final RequestCoalescer.Upstream upstream, final long maxSize) {
+		return executor.submit(new Callable<String>() {
+			@Override
+			public String call() throws Exception {
+				return EntityUtils.toString(RequestCoalescer.execute(key, upstream, 0, maxSize, logger).getEntity());
+			}
+		});
+	}
+
+	private static final class SlowUpstream implements RequestCoalescer.Upstream {
+		private final String content;
+		private final CountDownLatch started = new CountDownLatch(1);
+		private final CountDownLatch release = new CountDownLatch(1);
+		private final AtomicInteger sent = new AtomicInteger();
+
+		private SlowUpstream(String content) {
+			this.content = content;
+		}
+
+		@Override
+		public HttpResponse execute() throws IOException, InterruptedException {
+			sent.incrementAndGet();
+			started.countDown();
+			release.await();
+			BasicHttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+			//a chunked body, its length is only known once read
+			response.setEntity(new InputStreamEntity(new ByteArrayInputStream(content.getBytes("UTF-8"))));
+			return response;
+		}
+	}
+}
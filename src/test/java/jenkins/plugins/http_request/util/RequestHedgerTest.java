@@ -0,0 +1,80 @@
+package jenkins.plugins.http_request.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.ConnectException;
+import java.util.Collections;
+
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.params.BasicHttpParams;
+import org.apache.http.params.HttpParams;
+import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.protocol.HttpContext;
+import org.junit.Test;
+
+public class RequestHedgerTest {
+
+	@Test
+	public void serverErrorIsKeptOverAFailure() throws Exception {
+		RequestHedger hedger = new RequestHedger(new MirrorClient(), new BasicHttpContext(),
+				new PrintStream(new ByteArrayOutputStream()));
+
+		HttpResponse response = hedger.execute(new HttpGet("https://unreachable.example.com/"),
+				Collections.singletonList(new HttpGet("https://mirror.example.com/")), 1000);
+
+		assertEquals(503, response.getStatusLine().getStatusCode());
+		assertEquals(1, hedger.getHedges());
+	}
+
+	/**
+	 * Fails to connect to the first host, the mirror answers a server error.
+	 */
+	@SuppressWarnings("deprecation")
+	private static final class MirrorClient extends CloseableHttpClient {
+
+		@Override
+		protected CloseableHttpResponse doExecute(HttpHost target, HttpRequest request, HttpContext context)
+				throws IOException {
+			if (!"mirror.example.com".equals(target.getHostName())) {
+				throw new ConnectException("Connection refused");
+			}
+			return new Response();
+		}
+
+		@Override
+		public void close() {
+		}
+
+		@Override
+		public HttpParams getParams() {
+			return new BasicHttpParams();
+		}
+
+		@Override
+		public ClientConnectionManager getConnectionManager() {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	private static final class Response extends BasicHttpResponse implements CloseableHttpResponse {
+
+		Response() {
+			super(HttpVersion.HTTP_1_1, 503, "Service Unavailable");
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+}
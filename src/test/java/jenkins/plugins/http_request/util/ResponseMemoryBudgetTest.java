@@ -0,0 +1,50 @@
+package jenkins.plugins.http_request.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+import org.junit.Test;
+
+import hudson.AbortException;
+import jenkins.plugins.http_request.ResponseMemoryPolicy;
+
+public class ResponseMemoryBudgetTest {
+
+	private final ResponseMemoryBudget budget = ResponseMemoryBudget.get(100);
+	private final PrintStream logger = new PrintStream(new ByteArrayOutputStream());
+
+	@Test
+	public void requestHoldingMemorySpillsInsteadOfWaiting() throws Exception {
+		try (ResponseMemoryBudget.Reservation first = budget.reserve(ResponseMemoryPolicy.WAIT, 60000, logger);
+			 ResponseMemoryBudget.Reservation second = budget.reserve(ResponseMemoryPolicy.WAIT, 60000, logger)) {
+			assertTrue(first.grow(60));
+			assertTrue(second.grow(30));
+
+			long start = System.nanoTime();
+			assertFalse(first.grow(20));
+			assertFalse(second.grow(20));
+			assertTrue(System.nanoTime() - start < 1000000000L);
+			assertEquals(90, budget.getUsedBytes());
+		}
+		assertEquals(0, budget.getUsedBytes());
+	}
+
+	@Test
+	public void requestWithoutMemoryWaitsUpToTheMaxWait() throws Exception {
+		try (ResponseMemoryBudget.Reservation holder = budget.reserve(ResponseMemoryPolicy.WAIT, 0, logger);
+			 ResponseMemoryBudget.Reservation waiter = budget.reserve(ResponseMemoryPolicy.WAIT, 100, logger)) {
+			assertTrue(holder.grow(90));
+			try {
+				waiter.grow(20);
+				fail("got memory over the budget");
+			} catch (AbortException expected) {
+				// nothing was given back within the max wait
+			}
+		}
+	}
+}
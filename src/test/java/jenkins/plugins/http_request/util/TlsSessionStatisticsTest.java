@@ -0,0 +1,66 @@
+package jenkins.plugins.http_request.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.net.ssl.SSLSession;
+
+import org.junit.Test;
+
+public class TlsSessionStatisticsTest {
+
+	@Test
+	public void sessionResumedAsANewObjectIsCounted() {
+		TlsSessionStatistics statistics = new TlsSessionStatistics();
+		Map<String, Object> values = new HashMap<>();
+
+		//a TLS 1.3 resumption gives a new session, with a new id, carrying the values of the one it resumes
+		statistics.handshakeCompleted(session(new byte[]{1}, values));
+		statistics.handshakeCompleted(session(new byte[]{2}, values));
+		statistics.handshakeCompleted(session(new byte[]{3}, values));
+
+		assertEquals(1, statistics.getFullHandshakes());
+		assertEquals(2, statistics.getResumedHandshakes());
+	}
+
+	@Test
+	public void newSessionsAreFullHandshakes() {
+		TlsSessionStatistics statistics = new TlsSessionStatistics();
+
+		statistics.handshakeCompleted(session(new byte[]{1}, new HashMap<String, Object>()));
+		statistics.handshakeCompleted(session(new byte[0], new HashMap<String, Object>()));
+
+		assertEquals(2, statistics.getFullHandshakes());
+		assertEquals(0, statistics.getResumedHandshakes());
+		assertEquals(0, statistics.getResumptionRate(), 0);
+	}
+
+	private static SSLSession session(final byte[] id, final Map<String, Object> values) {
+		return (SSLSession) Proxy.newProxyInstance(SSLSession.class.getClassLoader(), new Class<?>[]{SSLSession.class},
+				new InvocationHandler() {
+					@Override
+					public Object invoke(Object proxy, Method method, Object[] args) {
+						switch (method.getName()) {
+							case "getId":
+								return id;
+							case "getValue":
+								return values.get((String) args[0]);
+							case "putValue":
+								values.put((String) args[0], args[1]);
+								return null;
+							case "hashCode":
+								return System.identityHashCode(proxy);
+							case "equals":
+								return proxy == args[0];
+							default:
+								throw new UnsupportedOperationException(method.getName());
+						}
+					}
+				});
+	}
+}